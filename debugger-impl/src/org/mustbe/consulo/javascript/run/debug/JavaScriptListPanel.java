@@ -19,22 +19,29 @@ package org.mustbe.consulo.javascript.run.debug;
 import java.awt.BorderLayout;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
+import javax.swing.AbstractListModel;
 import javax.swing.JList;
 import javax.swing.JPanel;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import com.intellij.ide.actions.OpenFileAction;
+import com.intellij.openapi.fileTypes.FileTypeRegistry;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.FileColorManager;
 import com.intellij.ui.ListCellRendererWrapper;
-import com.intellij.ui.SortedListModel;
 import com.intellij.ui.components.JBList;
 import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.PathUtil;
 import lombok.val;
 
 /**
@@ -43,22 +50,59 @@ import lombok.val;
  */
 public abstract class JavaScriptListPanel<T> extends JPanel
 {
-	@NotNull
-	private final Project myProject;
-	private SortedListModel<T> myModel = SortedListModel.create(new Comparator<T>()
+	/**
+	 * Items sorted by path. Bulk additions fire one model event, so panel can take thousands of scripts at once.
+	 */
+	private class SortedModel extends AbstractListModel
 	{
+		private final List<T> myItems = new ArrayList<T>();
+		private final Comparator<T> myComparator = new Comparator<T>()
+		{
+			@Override
+			public int compare(T o1, T o2)
+			{
+				String p1 = getPath(o1);
+				String p2 = getPath(o2);
+				if(p1 == null || p2 == null)
+				{
+					return p1 == null ? (p2 == null ? 0 : -1) : 1;
+				}
+				return FileUtil.comparePaths(p1, p2);
+			}
+		};
+
 		@Override
-		public int compare(T o1, T o2)
+		public int getSize()
 		{
-			VirtualFile v1 = toVirtualFile(o1, false);
-			VirtualFile v2 = toVirtualFile(o2, false);
-			if(v1 == null || v2 == null)
+			return myItems.size();
+		}
+
+		@Override
+		public Object getElementAt(int index)
+		{
+			return myItems.get(index);
+		}
+
+		void addAll(Collection<? extends T> values)
+		{
+			if(values.isEmpty())
+			{
+				return;
+			}
+			int oldSize = myItems.size();
+			myItems.addAll(values);
+			Collections.sort(myItems, myComparator);
+			if(oldSize > 0)
 			{
-				return -1;
+				fireContentsChanged(this, 0, oldSize - 1);
 			}
-			return FileUtil.comparePaths(v1.getPath(), v2.getPath());
+			fireIntervalAdded(this, oldSize, myItems.size() - 1);
 		}
-	});
+	}
+
+	@NotNull
+	private final Project myProject;
+	private final SortedModel myModel = new SortedModel();
 
 	public JavaScriptListPanel(@NotNull Project project)
 	{
@@ -75,16 +119,21 @@ public abstract class JavaScriptListPanel<T> extends JPanel
 			@Override
 			public void customize(JList list, T value, int index, boolean selected, boolean hasFocus)
 			{
-				VirtualFile virtualFile = toVirtualFile(value, false);
-				if(virtualFile == null)
+				String path = getPath(value);
+				if(path == null)
 				{
 					setText("<invalid>");
 				}
 				else
 				{
-					setBackground(FileColorManager.getInstance(myProject).getFileColor(virtualFile));
-					setText(virtualFile.getPath());
-					setIcon(virtualFile.getFileType().getIcon());
+					// only existing local files are looked up, no virtual file is created for rendering
+					VirtualFile localFile = LocalFileSystem.getInstance().findFileByPath(path);
+					if(localFile != null)
+					{
+						setBackground(FileColorManager.getInstance(myProject).getFileColor(localFile));
+					}
+					setText(path);
+					setIcon(FileTypeRegistry.getInstance().getFileTypeByFileName(PathUtil.getFileName(path)).getIcon());
 				}
 			}
 		});
@@ -117,8 +166,19 @@ public abstract class JavaScriptListPanel<T> extends JPanel
 	@Nullable
 	public abstract VirtualFile toVirtualFile(@NotNull T value, boolean toOpen);
 
+	/**
+	 * Path used for sorting and rendering, must be cheap: it is called for every comparison and painted row
+	 */
+	@Nullable
+	public abstract String getPath(@NotNull T value);
+
 	public void add(T value)
 	{
-		myModel.add(value);
+		addAll(Collections.singletonList(value));
+	}
+
+	public void addAll(@NotNull Collection<? extends T> values)
+	{
+		myModel.addAll(values);
 	}
 }
@@ -49,6 +49,15 @@ public class EcmaScript4StatementParsing extends StatementParsing
 		}
 	}
 
+	/**
+	 * Function level imports and use namespace directives have stubs
+	 */
+	@Override
+	protected boolean isStubbedInFunctionBody(final IElementType tokenType)
+	{
+		return tokenType == JSTokenTypes.IMPORT_KEYWORD || tokenType == JSTokenTypes.USE_KEYWORD;
+	}
+
 	@Override
 	protected void parseVarDeclaration(final PsiBuilder builder, boolean allowIn)
 	{
@@ -1,6 +1,10 @@
 package com.sixrr.inspectjs;
 
 import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -18,11 +22,15 @@ import com.intellij.psi.PsiElementVisitor;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiNamedElement;
 import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.ArrayUtil;
 
 public abstract class BaseInspection extends LocalInspectionTool implements CustomSuppressableInspectionTool
 {
 	private final String m_shortName = null;
 
+	// visitor class -> parameter types of the visit methods it declares
+	private static final ConcurrentMap<Class<?>, Class<?>[]> ourVisitedTypes = new ConcurrentHashMap<Class<?>, Class<?>[]>();
+
 	@Override
 	@NotNull
 	public String getShortName()
@@ -51,7 +59,61 @@ public abstract class BaseInspection extends LocalInspectionTool implements Cust
 		visitor.setProblemsHolder(problemsHolder);
 		visitor.setOnTheFly(onTheFly);
 		visitor.setInspection(this);
-		return visitor;
+
+		final Class<?>[] visitedTypes = getVisitedTypes(visitor.getClass());
+		return ArrayUtil.contains(PsiElement.class, visitedTypes) ? visitor : new VisitedTypesFilter(visitor, visitedTypes);
+	}
+
+	private static Class<?>[] getVisitedTypes(Class<?> visitorClass)
+	{
+		Class<?>[] types = ourVisitedTypes.get(visitorClass);
+		if(types == null)
+		{
+			final Set<Class<?>> visitedTypes = new HashSet<Class<?>>();
+			for(Class<?> aClass = visitorClass; aClass != BaseInspectionVisitor.class; aClass = aClass.getSuperclass())
+			{
+				for(final Method method : aClass.getDeclaredMethods())
+				{
+					final Class<?>[] parameterTypes = method.getParameterTypes();
+					if(method.getName().startsWith("visit") && parameterTypes.length == 1 && PsiElement.class.isAssignableFrom(parameterTypes[0]))
+					{
+						visitedTypes.add(parameterTypes[0]);
+					}
+				}
+			}
+			types = visitedTypes.toArray(new Class<?>[visitedTypes.size()]);
+			ourVisitedTypes.put(visitorClass, types);
+		}
+		return types;
+	}
+
+	/**
+	 * Element visitors dispatch an element only to visit methods taking one of its supertypes, so elements that are not instances
+	 * of any type the inspection visits are dropped here instead of going through the whole visitor dispatch chain
+	 */
+	private static class VisitedTypesFilter extends PsiElementVisitor
+	{
+		private final BaseInspectionVisitor myVisitor;
+		private final Class<?>[] myVisitedTypes;
+
+		private VisitedTypesFilter(BaseInspectionVisitor visitor, Class<?>[] visitedTypes)
+		{
+			myVisitor = visitor;
+			myVisitedTypes = visitedTypes;
+		}
+
+		@Override
+		public void visitElement(PsiElement element)
+		{
+			for(Class<?> type : myVisitedTypes)
+			{
+				if(type.isInstance(element))
+				{
+					element.accept(myVisitor);
+					return;
+				}
+			}
+		}
 	}
 
 	public boolean canBuildVisitor(@NotNull PsiFile psiFile)
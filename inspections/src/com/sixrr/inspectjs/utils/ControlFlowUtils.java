@@ -1,6 +1,7 @@
 package com.sixrr.inspectjs.utils;
 
 import com.intellij.lang.javascript.psi.*;
+import com.intellij.lang.javascript.psi.util.JSControlFlow;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.sixrr.inspectjs.JSRecursiveElementVisitor;
 import org.jetbrains.annotations.NotNull;
@@ -16,172 +17,12 @@ public class ControlFlowUtils {
         if (statement == null) {
             return true;
         }
-        if (statement instanceof JSBreakStatement ||
-                statement instanceof JSContinueStatement ||
-                statement instanceof JSReturnStatement ||
-                statement instanceof JSThrowStatement) {
-            return false;
-        } else if (statement instanceof JSExpressionStatement ||
-                statement instanceof JSEmptyStatement ||
-                statement instanceof JSVarStatement) {
-            return true;
-        } else if (statement instanceof JSForStatement) {
-            return forStatementMayReturnNormally((JSForStatement) statement);
-        } else if (statement instanceof JSForInStatement) {
-            return foreachStatementMayReturnNormally(
-                    (JSForInStatement) statement);
-        } else if (statement instanceof JSWhileStatement) {
-            return whileStatementMayReturnNormally(
-                    (JSWhileStatement) statement);
-        } else if (statement instanceof JSDoWhileStatement) {
-            return doWhileStatementMayReturnNormally(
-                    (JSDoWhileStatement) statement);
-        } else if (statement instanceof JSBlockStatement) {
-            return blockMayCompleteNormally((JSBlockStatement) statement);
-        } else if (statement instanceof JSLabeledStatement) {
-            return labeledStatementMayCompleteNormally(
-                    (JSLabeledStatement) statement);
-        } else if (statement instanceof JSIfStatement) {
-            return ifStatementMayReturnNormally((JSIfStatement) statement);
-        } else if (statement instanceof JSTryStatement) {
-            return tryStatementMayReturnNormally((JSTryStatement) statement);
-        } else if (statement instanceof JSSwitchStatement) {
-            return switchStatementMayReturnNormally(
-                    (JSSwitchStatement) statement);
-        } else if (statement instanceof JSWithStatement) {
-            return withStatementMayReturnNormally(
-                    (JSWithStatement) statement);
-        } else   // unknown statement type
-        {
-            return true;
-        }
-    }
-
-    private static boolean withStatementMayReturnNormally(JSWithStatement jsWithStatement) {
-        final JSStatement body = jsWithStatement.getStatement();
-        return statementMayCompleteNormally(body);
-    }
-
-    private static boolean doWhileStatementMayReturnNormally(
-            @NotNull JSDoWhileStatement loopStatement) {
-        final JSExpression test = loopStatement.getCondition();
-        final JSStatement body = loopStatement.getBody();
-        return statementMayCompleteNormally(body) && !BoolUtils.isTrue(test)
-                || statementIsBreakTarget(loopStatement);
-    }
-
-    private static boolean whileStatementMayReturnNormally(
-            @NotNull JSWhileStatement loopStatement) {
-        final JSExpression test = loopStatement.getCondition();
-        return !BoolUtils.isTrue(test)
-                || statementIsBreakTarget(loopStatement);
-    }
-
-    private static boolean forStatementMayReturnNormally(
-            @NotNull JSForStatement loopStatement) {
-        final JSExpression test = loopStatement.getCondition();
-        if (statementIsBreakTarget(loopStatement)) {
-            return true;
-        }
-        if (test == null) {
-            return false;
-        }
-        return !BoolUtils.isTrue(test);
-    }
-
-    private static boolean foreachStatementMayReturnNormally(
-            @NotNull JSForInStatement loopStatement) {
-        return true;
-    }
-
-    private static boolean switchStatementMayReturnNormally(
-            @NotNull JSSwitchStatement switchStatement) {
-        if (statementIsBreakTarget(switchStatement)) {
-            return true;
-        }
-        final JSCaseClause[] caseClauses = switchStatement.getCaseClauses();
-
-        if (caseClauses.length == 0) {
-            return true;
-        }
-        boolean hasDefaultCase = false;
-        for (JSCaseClause clause : caseClauses) {
-            if(clause.isDefault())
-            {
-                hasDefaultCase = true;
-            }
-        }
-
-        if (!hasDefaultCase) {
-            return true;
-        }
-        final JSCaseClause lastClause = caseClauses[caseClauses.length - 1];
-        final JSStatement[] statements = lastClause.getStatements();
-        if(statements.length == 0)
-        {
-            return true;
-        }
-        return statementMayCompleteNormally(statements[statements.length-1]);
-    }
-
-    private static boolean tryStatementMayReturnNormally(
-            @NotNull JSTryStatement tryStatement) {
-        final JSStatement finallyBlock = tryStatement.getFinallyStatement();
-        if (finallyBlock != null) {
-            if (!statementMayCompleteNormally(finallyBlock)) {
-                return false;
-            }
-        }
-        final JSStatement tryBlock = tryStatement.getStatement();
-        if (statementMayCompleteNormally(tryBlock)) {
-            return true;
-        }
-        final JSCatchBlock catchBlock = tryStatement.getCatchBlock();
-        if(catchBlock == null)
-        {
-            return false;
-        }
-        final JSStatement catchStatement = catchBlock.getStatement();
-        return statementMayCompleteNormally(catchStatement);
-    }
-
-    private static boolean ifStatementMayReturnNormally(
-            @NotNull JSIfStatement ifStatement) {
-        final JSStatement thenBranch = ifStatement.getThen();
-        if (statementMayCompleteNormally(thenBranch)) {
-            return true;
-        }
-        final JSStatement elseBranch = ifStatement.getElse();
-        return elseBranch == null ||
-                statementMayCompleteNormally(elseBranch);
-    }
-
-    private static boolean labeledStatementMayCompleteNormally(
-            @NotNull JSLabeledStatement labeledStatement) {
-        final JSStatement statement = labeledStatement.getStatement();
-        return statementMayCompleteNormally(statement) ||
-                statementIsBreakTarget(statement);
+        return JSControlFlow.getControlFlow(statement).mayCompleteNormally(statement);
     }
 
     public static boolean blockMayCompleteNormally(
             @Nullable JSBlockStatement block) {
-        if (block == null) {
-            return true;
-        }
-        final JSStatement[] statements = block.getStatements();
-        for (final JSStatement statement : statements) {
-            if (!statementMayCompleteNormally(statement)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    private static boolean statementIsBreakTarget(
-            @NotNull JSStatement statement) {
-        final BreakFinder breakFinder = new BreakFinder(statement);
-        statement.accept(breakFinder);
-        return breakFinder.breakFound();
+        return statementMayCompleteNormally(block);
     }
 
     public static boolean statementContainsReturn(
@@ -193,9 +34,7 @@ public class ControlFlowUtils {
 
     public static boolean statementIsContinueTarget(
             @NotNull JSStatement statement) {
-        final ContinueFinder continueFinder = new ContinueFinder(statement);
-        statement.accept(continueFinder);
-        return continueFinder.continueFound();
+        return JSControlFlow.getControlFlow(statement).isContinueTarget(statement);
     }
 
     public static boolean isInLoop(@NotNull JSElement element) {
@@ -408,66 +247,6 @@ public class ControlFlowUtils {
         }
     }
 
-    private static class BreakFinder extends JSRecursiveElementVisitor {
-        private boolean m_found = false;
-        private final JSStatement m_target;
-
-        private BreakFinder(@NotNull JSStatement target) {
-            super();
-            m_target = target;
-        }
-
-        public boolean breakFound() {
-            return m_found;
-        }
-
-        @Override public void visitJSBreakStatement(
-                @NotNull JSBreakStatement breakStatement) {
-            if (m_found) {
-                return;
-            }
-            super.visitJSBreakStatement(breakStatement);
-            final JSStatement exitedStatement =
-                    breakStatement.getStatementToBreak();
-            if (exitedStatement == null) {
-                return;
-            }
-            if (PsiTreeUtil.isAncestor(exitedStatement, m_target, false)) {
-                m_found = true;
-            }
-        }
-    }
-
-    private static class ContinueFinder extends JSRecursiveElementVisitor {
-        private boolean m_found = false;
-        private final JSStatement m_target;
-
-        private ContinueFinder(@NotNull JSStatement target) {
-            super();
-            m_target = target;
-        }
-
-        public boolean continueFound() {
-            return m_found;
-        }
-
-        @Override public void visitJSContinueStatement(
-                @NotNull JSContinueStatement continueStatement) {
-            if (m_found) {
-                return;
-            }
-            super.visitJSContinueStatement(continueStatement);
-            final JSStatement exitedStatement =
-                    continueStatement.getStatementToContinue();
-            if (exitedStatement == null) {
-                return;
-            }
-            if (PsiTreeUtil.isAncestor(exitedStatement, m_target, false)) {
-                m_found = true;
-            }
-        }
-    }
-
     public static boolean isInExitStatement(@NotNull JSExpression expression) {
         return isInReturnStatementArgument(expression) ||
                 isInThrowStatementArgument(expression);
@@ -3,10 +3,9 @@ package com.sixrr.inspectjs.validity;
 import com.intellij.codeInspection.ProblemHighlightType;
 import com.intellij.lang.javascript.psi.*;
 import com.intellij.lang.javascript.JavaScriptSupportLoader;
+import com.intellij.lang.javascript.psi.util.JSControlFlow;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.util.PsiTreeUtil;
 import com.sixrr.inspectjs.*;
-import com.sixrr.inspectjs.utils.ControlFlowUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -79,72 +78,27 @@ public class FunctionWithInconsistentReturnsJSInspection extends JavaScriptInspe
     }
 
     private static boolean functionHasReturnValues(JSFunction function) {
-        final ReturnValuesVisitor visitor = new ReturnValuesVisitor(function);
-        function.accept(visitor);
-        return visitor.hasReturnValues();
+        for (JSStatement exitPoint : JSControlFlow.getControlFlow(function).getExitPoints()) {
+            if (exitPoint instanceof JSReturnStatement && ((JSReturnStatement) exitPoint).getExpression() != null) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private static boolean functionHasValuelessReturns(JSFunction function) {
+        final JSControlFlow controlFlow = JSControlFlow.getControlFlow(function);
         final PsiElement lastChild = function.getLastChild();
         if (lastChild instanceof JSBlockStatement) {
-            if (ControlFlowUtils.statementMayCompleteNormally((JSStatement) lastChild)) {
+            if (controlFlow.mayCompleteNormally((JSStatement) lastChild)) {
                 return true;
             }
         }
-        final ValuelessReturnVisitor visitor = new ValuelessReturnVisitor(function);
-        function.acceptChildren(visitor);
-        return visitor.hasValuelessReturns();
-    }
-
-    private static class ReturnValuesVisitor extends JSRecursiveElementVisitor {
-        private final JSFunction function;
-        private boolean hasReturnValues = false;
-
-        ReturnValuesVisitor(JSFunction function) {
-            this.function = function;
-        }
-
-        @Override public void visitJSReturnStatement(JSReturnStatement statement) {
-            super.visitJSReturnStatement(statement);
-            if (statement.getExpression() != null) {
-                final JSFunction containingFunction =
-                        PsiTreeUtil.getParentOfType(statement, JSFunction.class);
-                if (function.equals(containingFunction)) {
-                    hasReturnValues = true;
-                }
-            }
-        }
-
-        public boolean hasReturnValues() {
-            return hasReturnValues;
-        }
-    }
-
-    private static class ValuelessReturnVisitor extends JSRecursiveElementVisitor {
-        private final JSFunction function;
-        private boolean hasValuelessReturns = false;
-
-        ValuelessReturnVisitor(JSFunction function) {
-            this.function = function;
-        }
-
-        @Override public void visitJSReturnStatement(JSReturnStatement statement) {
-            super.visitJSReturnStatement(statement);
-            if (statement.getExpression() == null) {
-                final JSFunction containingFunction =
-                        PsiTreeUtil.getParentOfType(statement, JSFunction.class);
-                if (function.equals(containingFunction)) {
-                    hasValuelessReturns = true;
-                }
+        for (JSStatement exitPoint : controlFlow.getExitPoints()) {
+            if (exitPoint instanceof JSReturnStatement && ((JSReturnStatement) exitPoint).getExpression() == null) {
+                return true;
             }
         }
-
-        @Override public void visitJSFunctionDeclaration(JSFunction function) {
-            // do nothing, so that it doesn't drill into nested functions
-        }
-
-        public boolean hasValuelessReturns() {
-            return hasValuelessReturns;
-        }
+        return false;
     }
 }
@@ -25,7 +25,6 @@ import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.xml.XmlElement;
 import com.intellij.util.IncorrectOperationException;
 
 public abstract class JSIntention extends PsiElementBaseIntentionAction {
@@ -51,6 +50,7 @@ public abstract class JSIntention extends PsiElementBaseIntentionAction {
     protected JSIntention() {
         if (JS_LANGUAGE == null) initJSLanguage();
         this.predicate = this.getElementPredicate();
+        JSIntentionAvailability.register(this);
     }
 
 	@Override
@@ -83,18 +83,17 @@ public abstract class JSIntention extends PsiElementBaseIntentionAction {
         final Language language = element.getLanguage();
         if (language != Language.ANY && language != JS_LANGUAGE) return null;
 
-        while (element != null) {
-            if (this.predicate.satisfiedBy(element)) {
-                return element;
-            }
-            element = element.getParent();
-            if (element instanceof PsiFile ||
-                element instanceof XmlElement
-               ) {
-              break;
-            }
+        // the walk up from the element is shared by all enabled intentions
+        final JSIntentionAvailability.Matches matches = JSIntentionAvailability.getMatches(element);
+        if (matches.isEvaluated(this)) {
+            return matches.getMatch(this);
         }
-        return null;
+        return JSIntentionAvailability.findMatchingElement(element, this.predicate);
+    }
+
+    @NotNull
+    JSElementPredicate getPredicate() {
+        return this.predicate;
     }
 
 
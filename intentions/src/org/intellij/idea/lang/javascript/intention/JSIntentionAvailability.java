@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.idea.lang.javascript.intention;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import com.intellij.codeInsight.intention.impl.config.IntentionManagerSettings;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataCache;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.xml.XmlElement;
+
+/**
+ * Finds the elements all enabled JavaScript intentions apply to in one walk up from the caret element. The matches are kept
+ * on the caret element until the next psi change, so every other availability check for that element is a lookup.
+ */
+class JSIntentionAvailability {
+    // intention class -> intention, one entry however many times an intention gets instantiated
+    private static final ConcurrentMap<Class<?>, JSIntention> intentions = new ConcurrentHashMap<Class<?>, JSIntention>();
+
+    private static final Key<CachedValue<Matches>> MATCHES_KEY = Key.create("JS.IntentionMatches");
+    private static final UserDataCache<CachedValue<Matches>, PsiElement, Object> matchesCache =
+            new UserDataCache<CachedValue<Matches>, PsiElement, Object>() {
+        @Override
+        protected CachedValue<Matches> compute(final PsiElement element, Object o) {
+            return CachedValuesManager.getManager(element.getProject()).createCachedValue(new CachedValueProvider<Matches>() {
+                @Override
+                public Result<Matches> compute() {
+                    return new Result<Matches>(computeMatches(element), PsiModificationTracker.MODIFICATION_COUNT);
+                }
+            }, false);
+        }
+    };
+
+    private JSIntentionAvailability() {}
+
+    static class Matches {
+        // intention class -> matching element or null, for intentions that were enabled when the walk was done
+        private final Map<Class<?>, PsiElement> matches;
+
+        Matches(Map<Class<?>, PsiElement> matches) {
+            this.matches = matches;
+        }
+
+        boolean isEvaluated(@NotNull JSIntention intention) {
+            return matches.containsKey(intention.getClass());
+        }
+
+        @Nullable
+        PsiElement getMatch(@NotNull JSIntention intention) {
+            return matches.get(intention.getClass());
+        }
+    }
+
+    static void register(@NotNull JSIntention intention) {
+        intentions.putIfAbsent(intention.getClass(), intention);
+    }
+
+    @NotNull
+    static Matches getMatches(@NotNull PsiElement element) {
+        if (!element.isPhysical()) {
+            return computeMatches(element); // psi modification count doesn't track changes of non-physical copies
+        }
+        return matchesCache.get(MATCHES_KEY, element, null).getValue();
+    }
+
+    @NotNull
+    private static Matches computeMatches(@NotNull PsiElement element) {
+        final IntentionManagerSettings settings = IntentionManagerSettings.getInstance();
+        final Map<Class<?>, JSElementPredicate> pending = new HashMap<Class<?>, JSElementPredicate>();
+        for (JSIntention intention : intentions.values()) {
+            if (settings.isEnabled(intention)) {
+                pending.put(intention.getClass(), intention.getPredicate());
+            }
+        }
+
+        final Map<Class<?>, PsiElement> matches = new HashMap<Class<?>, PsiElement>();
+        for (Class<?> intentionClass : pending.keySet()) {
+            matches.put(intentionClass, null);
+        }
+
+        PsiElement current = element;
+        while (current != null && !pending.isEmpty()) {
+            for (Iterator<Map.Entry<Class<?>, JSElementPredicate>> iterator = pending.entrySet().iterator(); iterator.hasNext(); ) {
+                final Map.Entry<Class<?>, JSElementPredicate> entry = iterator.next();
+                if (entry.getValue().satisfiedBy(current)) {
+                    matches.put(entry.getKey(), current);
+                    iterator.remove();
+                }
+            }
+            current = getParentToCheck(current);
+        }
+        return new Matches(matches);
+    }
+
+    @Nullable
+    static PsiElement findMatchingElement(@NotNull PsiElement element, @NotNull JSElementPredicate predicate) {
+        PsiElement current = element;
+        while (current != null) {
+            if (predicate.satisfiedBy(current)) {
+                return current;
+            }
+            current = getParentToCheck(current);
+        }
+        return null;
+    }
+
+    @Nullable
+    private static PsiElement getParentToCheck(@NotNull PsiElement element) {
+        final PsiElement parent = element.getParent();
+        return parent instanceof PsiFile || parent instanceof XmlElement ? null : parent;
+    }
+}
@@ -16,6 +16,7 @@
 package org.intellij.idea.lang.javascript.psiutil;
 
 import com.intellij.lang.javascript.psi.*;
+import com.intellij.lang.javascript.psi.util.JSControlFlow;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiReference;
 import com.intellij.psi.util.PsiTreeUtil;
@@ -134,10 +135,7 @@ public class ControlFlowUtils {
             return false;
         }
 
-        final BreakTargetFinder breakFinder = new BreakTargetFinder(statement);
-
-        statement.accept(breakFinder);
-        return breakFinder.breakFound();
+        return JSControlFlow.getControlFlow(statement).hasBreakTo(statement);
     }
 
     public static boolean statementContainsExitingBreak(@Nullable JSStatement statement) {
@@ -156,10 +154,7 @@ public class ControlFlowUtils {
             return false;
         }
 
-        final ContinueTargetFinder continueFinder = new ContinueTargetFinder(statement);
-
-        statement.accept(continueFinder);
-        return continueFinder.continueFound();
+        return JSControlFlow.getControlFlow(statement).hasContinueTo(statement);
     }
 
     public static boolean statementContainsReturn(@Nullable JSStatement statement) {
@@ -416,54 +411,6 @@ public class ControlFlowUtils {
         }
     }
 
-    private static class BreakTargetFinder extends JSRecursiveElementVisitor {
-        private boolean           found;
-        private final JSStatement target;
-
-        private BreakTargetFinder(JSStatement target) {
-            this.target = target;
-        }
-
-        private boolean breakFound() {
-            return this.found;
-        }
-
-        @Override public void visitJSReferenceExpression(JSReferenceExpression JSReferenceExpression) {}
-
-        @Override public void visitJSBreakStatement(JSBreakStatement breakStatement) {
-            super.visitJSBreakStatement(breakStatement);
-            final JSStatement exitedStatement = breakStatement.getStatementToBreak();
-            if (exitedStatement == null) {
-                return;
-            }
-            this.found = (exitedStatement.equals(this.target));
-        }
-    }
-
-    private static class ContinueTargetFinder extends JSRecursiveElementVisitor {
-        private boolean           found;
-        private final JSStatement target;
-
-        private ContinueTargetFinder(JSStatement target) {
-            this.target = target;
-        }
-
-        private boolean continueFound() {
-            return this.found;
-        }
-
-        @Override public void visitJSReferenceExpression(JSReferenceExpression JSReferenceExpression) {}
-
-        @Override public void visitJSContinueStatement(JSContinueStatement continueStatement) {
-            super.visitJSContinueStatement(continueStatement);
-            final JSStatement statement = continueStatement.getStatementToContinue();
-            if (statement == null) {
-                return;
-            }
-            this.found = (statement.equals(this.target));
-        }
-    }
-
     private static class ExitingBreakFinder extends JSRecursiveElementVisitor {
         private boolean found;
 
@@ -15,38 +15,14 @@
  */
 package org.intellij.idea.lang.javascript.psiutil;
 
+import com.intellij.lang.javascript.psi.util.JSErrorElementUtil;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiErrorElement;
-import com.intellij.psi.PsiRecursiveElementVisitor;
-import com.intellij.psi.util.PsiUtilBase;
 import org.jetbrains.annotations.NotNull;
 
 public class ErrorUtil {
     private ErrorUtil() {}
 
-    private static final boolean fullTraversal = false;
-
     public static boolean containsError(@NotNull PsiElement element) {
-        // check only immediate children, full tree traversal is too expensive
-        if (fullTraversal) {
-            final ErrorElementVisitor visitor = new ErrorElementVisitor();
-
-            element.accept(visitor);
-            return visitor.containsErrorElement();
-        } else {
-            return PsiUtilBase.hasErrorElementChild(element);
-        }
-    }
-
-    private static class ErrorElementVisitor extends PsiRecursiveElementVisitor {
-        private boolean containsErrorElement;
-
-        @Override public void visitErrorElement(PsiErrorElement element) {
-            this.containsErrorElement = true;
-        }
-
-        private boolean containsErrorElement(){
-            return this.containsErrorElement;
-        }
+        return JSErrorElementUtil.containsErrorElement(element);
     }
 }
@@ -1,58 +1,242 @@
 package org.mustbe.consulo.json.lang;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.mustbe.consulo.javascript.lang.parsing.JavaScriptParser;
-import org.mustbe.consulo.javascript.lang.parsing.JavaScriptParsingContext;
-import com.intellij.lang.ASTNode;
 import com.intellij.lang.LanguageVersion;
 import com.intellij.lang.PsiBuilder;
 import com.intellij.lang.javascript.JSBundle;
+import com.intellij.lang.javascript.JSElementTypes;
 import com.intellij.lang.javascript.JSTokenTypes;
 import com.intellij.psi.tree.IElementType;
 
 /**
+ * Single pass json parser. Builds the same tree as javascript expression parsing (object/array literals, properties, literals)
+ * but does not go through the javascript expression precedence chain.
+ *
  * @author VISTALL
  * @since 05.03.2015
  */
 public class JsonJavaScriptParser extends JavaScriptParser
 {
-	@NotNull
 	@Override
-	public ASTNode parse(@NotNull IElementType root, @NotNull PsiBuilder builder, @NotNull LanguageVersion languageVersion)
+	public void parseFile(@NotNull IElementType root, @NotNull PsiBuilder builder, @NotNull LanguageVersion languageVersion)
 	{
 		final PsiBuilder.Marker rootMarker = builder.mark();
-		JavaScriptParsingContext parsingContext = createParsingContext();
-		parseRoot(builder, parsingContext.getExpressionParsing());
+		parseRoot(builder);
 		rootMarker.done(root);
-		return builder.getTreeBuilt();
 	}
 
-	private void parseRoot(PsiBuilder builder, org.mustbe.consulo.javascript.lang.parsing.ExpressionParsing expressionParsing)
+	private static void parseRoot(PsiBuilder builder)
 	{
-		if(builder.getTokenType() == JSTokenTypes.LBRACKET)
+		final IElementType tokenType = builder.getTokenType();
+		if(tokenType == JSTokenTypes.LBRACKET || tokenType == JSTokenTypes.LBRACE)
 		{
-			expressionParsing.parseArrayLiteralExpression(builder);
+			parseValue(builder);
 			if(builder.getTokenType() != null)
 			{
 				builder.error(JSBundle.message("javascript.parser.message.expected.eof"));
 			}
 		}
-		else if(builder.getTokenType() == JSTokenTypes.LBRACE)
+		else
 		{
-			expressionParsing.parseObjectLiteralExpression(builder);
-			if(builder.getTokenType() != null)
+			builder.error(JSBundle.message("javascript.parser.message.expected.lbrace.or.lbracket"));
+		}
+
+		while(builder.getTokenType() != null)
+		{
+			builder.advanceLexer();
+		}
+	}
+
+	private static boolean parseValue(PsiBuilder builder)
+	{
+		final IElementType tokenType = builder.getTokenType();
+		if(tokenType == JSTokenTypes.LBRACE)
+		{
+			parseObject(builder);
+		}
+		else if(tokenType == JSTokenTypes.LBRACKET)
+		{
+			parseArray(builder);
+		}
+		else if(tokenType == JSTokenTypes.STRING_LITERAL ||
+				tokenType == JSTokenTypes.NUMERIC_LITERAL ||
+				tokenType == JSTokenTypes.TRUE_KEYWORD ||
+				tokenType == JSTokenTypes.FALSE_KEYWORD ||
+				tokenType == JSTokenTypes.NULL_KEYWORD)
+		{
+			parseLiteral(builder);
+		}
+		else if(tokenType == JSTokenTypes.MINUS)
+		{
+			final PsiBuilder.Marker marker = builder.mark();
+			builder.advanceLexer();
+			if(builder.getTokenType() == JSTokenTypes.NUMERIC_LITERAL)
 			{
-				builder.error(JSBundle.message("javascript.parser.message.expected.eof"));
+				parseLiteral(builder);
+			}
+			else
+			{
+				builder.error(JSBundle.message("javascript.parser.message.expected.expression"));
 			}
+			marker.done(JSElementTypes.PREFIX_EXPRESSION);
+		}
+		else if(tokenType == JSTokenTypes.IDENTIFIER)
+		{
+			final PsiBuilder.Marker marker = builder.mark();
+			builder.advanceLexer();
+			marker.done(JSElementTypes.REFERENCE_EXPRESSION);
+			marker.precede().error(JSBundle.message("javascript.parser.message.expected.expression"));
 		}
 		else
 		{
-			builder.error(JSBundle.message("javascript.parser.message.expected.lbrace.or.lbracket"));
+			return false;
 		}
+		return true;
+	}
 
-		while(builder.getTokenType() != null)
+	private static void parseLiteral(PsiBuilder builder)
+	{
+		final String errorMessage = validateLiteral(builder);
+		final PsiBuilder.Marker marker = builder.mark();
+		builder.advanceLexer();
+		marker.done(JSElementTypes.LITERAL_EXPRESSION);
+		if(errorMessage != null)
+		{
+			builder.error(errorMessage);
+		}
+	}
+
+	@Nullable
+	private static String validateLiteral(PsiBuilder builder)
+	{
+		if(builder.getTokenType() != JSTokenTypes.STRING_LITERAL)
+		{
+			return null;
+		}
+		final String text = builder.getTokenText();
+		assert text != null;
+		final char quote = text.charAt(0);
+		if(text.length() == 1 || text.charAt(text.length() - 1) != quote || isLastQuoteEscaped(text))
+		{
+			return JSBundle.message("javascript.parser.message.unclosed.string.literal");
+		}
+		return null;
+	}
+
+	private static boolean isLastQuoteEscaped(String text)
+	{
+		int backslashes = 0;
+		for(int i = text.length() - 2; i > 0 && text.charAt(i) == '\\'; i--)
+		{
+			backslashes++;
+		}
+		return backslashes % 2 != 0;
+	}
+
+	private static void parseObject(PsiBuilder builder)
+	{
+		final PsiBuilder.Marker marker = builder.mark();
+		builder.advanceLexer();
+
+		IElementType tokenType = builder.getTokenType();
+		while(tokenType != JSTokenTypes.RBRACE && tokenType != null)
+		{
+			if(!isPropertyNameToken(tokenType))
+			{
+				builder.error(JSBundle.message("javascript.parser.message.expected.identifier.string.literal.or.numeric.literal"));
+				break;
+			}
+			parseProperty(builder);
+
+			tokenType = builder.getTokenType();
+			if(tokenType == JSTokenTypes.RBRACE)
+			{
+				break;
+			}
+			if(tokenType != JSTokenTypes.COMMA)
+			{
+				builder.error(JSBundle.message("javascript.parser.message.expected.comma"));
+				if(!isPropertyNameToken(tokenType))
+				{
+					break;
+				}
+				continue;
+			}
+			builder.advanceLexer();
+
+			tokenType = builder.getTokenType();
+			if(tokenType == JSTokenTypes.RBRACE)
+			{
+				builder.error(JSBundle.message("javascript.parser.property.expected"));
+			}
+		}
+
+		checkMatches(builder, JSTokenTypes.RBRACE, JSBundle.message("javascript.parser.message.expected.rbrace"));
+		marker.done(JSElementTypes.OBJECT_LITERAL_EXPRESSION);
+	}
+
+	private static boolean isPropertyNameToken(IElementType tokenType)
+	{
+		return tokenType == JSTokenTypes.STRING_LITERAL || tokenType == JSTokenTypes.IDENTIFIER || tokenType == JSTokenTypes.NUMERIC_LITERAL;
+	}
+
+	private static void parseProperty(PsiBuilder builder)
+	{
+		final PsiBuilder.Marker marker = builder.mark();
+		builder.advanceLexer();
+		if(checkMatches(builder, JSTokenTypes.COLON, JSBundle.message("javascript.parser.message.expected.colon")))
+		{
+			if(!parseValue(builder))
+			{
+				builder.error(JSBundle.message("javascript.parser.message.expected.expression"));
+			}
+		}
+		marker.done(JSElementTypes.PROPERTY);
+	}
+
+	private static void parseArray(PsiBuilder builder)
+	{
+		final PsiBuilder.Marker marker = builder.mark();
+		builder.advanceLexer();
+
+		boolean commaExpected = false;
+		while(builder.getTokenType() != JSTokenTypes.RBRACKET && builder.getTokenType() != null)
+		{
+			if(commaExpected)
+			{
+				if(!checkMatches(builder, JSTokenTypes.COMMA, JSBundle.message("javascript.parser.message.expected.comma")))
+				{
+					break;
+				}
+				if(builder.getTokenType() == JSTokenTypes.RBRACKET)
+				{
+					builder.error(JSBundle.message("javascript.parser.message.expected.expression"));
+					break;
+				}
+			}
+
+			if(!parseValue(builder))
+			{
+				builder.error(JSBundle.message("javascript.parser.message.expected.expression"));
+				break;
+			}
+			commaExpected = true;
+		}
+
+		checkMatches(builder, JSTokenTypes.RBRACKET, JSBundle.message("javascript.parser.message.expected.rbracket"));
+		marker.done(JSElementTypes.ARRAY_LITERAL_EXPRESSION);
+	}
+
+	private static boolean checkMatches(PsiBuilder builder, IElementType token, String message)
+	{
+		if(builder.getTokenType() == token)
 		{
 			builder.advanceLexer();
+			return true;
 		}
+		builder.error(message);
+		return false;
 	}
 }
@@ -8,7 +8,6 @@ import com.intellij.lang.LanguageVersionWithDefinition;
 import com.intellij.lang.PsiParser;
 import com.intellij.lang.javascript.DialectOptionHolder;
 import com.intellij.lang.javascript.JSONLexer;
-import com.intellij.lang.javascript.JavaScriptParsingLexer;
 import com.intellij.lang.javascript.JavascriptLanguage;
 import com.intellij.lang.javascript.highlighting.JSHighlighter;
 import com.intellij.lexer.Lexer;
@@ -48,7 +47,7 @@ public class JsonJavaScriptVersion extends BaseJavaScriptLanguageVersion impleme
 	@Override
 	public Lexer createLexer(@Nullable Project project)
 	{
-		return new JSONLexer(new JavaScriptParsingLexer(myDialectOptionHolder));
+		return new JsonLexer();
 	}
 
 	@NotNull
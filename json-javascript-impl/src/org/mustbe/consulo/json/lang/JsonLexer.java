@@ -0,0 +1,282 @@
+/*
+ * Copyright 2013-2014 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mustbe.consulo.json.lang;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import com.intellij.lang.javascript.JSTokenTypes;
+import com.intellij.lexer.LexerBase;
+import com.intellij.psi.tree.IElementType;
+
+/**
+ * Hand written lexer for json files. Produces the same tokens as {@link com.intellij.lang.javascript.JSONLexer} over
+ * {@link com.intellij.lang.javascript.JavaScriptParsingLexer} but knows nothing about javascript keywords, regexp literals or operators.
+ * It never keeps state between tokens, so {@link #getState()} is always 0 and lexing may be restarted at any token.
+ */
+public class JsonLexer extends LexerBase
+{
+	private CharSequence myBuffer;
+	private int myBufferEnd;
+	private int myTokenStart;
+	private int myTokenEnd;
+	private IElementType myTokenType;
+
+	@Override
+	public void start(@NotNull CharSequence buffer, int startOffset, int endOffset, int initialState)
+	{
+		myBuffer = buffer;
+		myBufferEnd = endOffset;
+		myTokenEnd = startOffset;
+		advance();
+	}
+
+	@Override
+	public int getState()
+	{
+		return 0;
+	}
+
+	@Nullable
+	@Override
+	public IElementType getTokenType()
+	{
+		return myTokenType;
+	}
+
+	@Override
+	public int getTokenStart()
+	{
+		return myTokenStart;
+	}
+
+	@Override
+	public int getTokenEnd()
+	{
+		return myTokenEnd;
+	}
+
+	@NotNull
+	@Override
+	public CharSequence getBufferSequence()
+	{
+		return myBuffer;
+	}
+
+	@Override
+	public int getBufferEnd()
+	{
+		return myBufferEnd;
+	}
+
+	@Override
+	public void advance()
+	{
+		myTokenStart = myTokenEnd;
+		if(myTokenStart >= myBufferEnd)
+		{
+			myTokenType = null;
+			return;
+		}
+
+		final char c = myBuffer.charAt(myTokenStart);
+		int end = myTokenStart + 1;
+
+		switch(c)
+		{
+			case '{':
+				myTokenType = JSTokenTypes.LBRACE;
+				break;
+			case '}':
+				myTokenType = JSTokenTypes.RBRACE;
+				break;
+			case '[':
+				myTokenType = JSTokenTypes.LBRACKET;
+				break;
+			case ']':
+				myTokenType = JSTokenTypes.RBRACKET;
+				break;
+			case ',':
+				myTokenType = JSTokenTypes.COMMA;
+				break;
+			case ':':
+				myTokenType = JSTokenTypes.COLON;
+				break;
+			case '-':
+				myTokenType = JSTokenTypes.MINUS;
+				break;
+			case '"':
+			case '\'':
+				end = skipString(end, c);
+				myTokenType = JSTokenTypes.STRING_LITERAL;
+				break;
+			case '/':
+				if(end < myBufferEnd && myBuffer.charAt(end) == '/')
+				{
+					end = skipLine(end);
+					myTokenType = JSTokenTypes.END_OF_LINE_COMMENT;
+				}
+				else if(end < myBufferEnd && myBuffer.charAt(end) == '*')
+				{
+					end = skipBlockComment(end + 1);
+					myTokenType = JSTokenTypes.C_STYLE_COMMENT;
+				}
+				else
+				{
+					myTokenType = JSTokenTypes.BAD_CHARACTER;
+				}
+				break;
+			default:
+				if(isWhiteSpace(c))
+				{
+					while(end < myBufferEnd && isWhiteSpace(myBuffer.charAt(end)))
+					{
+						end++;
+					}
+					myTokenType = JSTokenTypes.WHITE_SPACE;
+				}
+				else if(c >= '0' && c <= '9' || c == '.')
+				{
+					end = skipNumber(myTokenStart);
+					myTokenType = end > myTokenStart + 1 || c != '.' ? JSTokenTypes.NUMERIC_LITERAL : JSTokenTypes.BAD_CHARACTER;
+				}
+				else if(Character.isJavaIdentifierStart(c))
+				{
+					while(end < myBufferEnd && Character.isJavaIdentifierPart(myBuffer.charAt(end)))
+					{
+						end++;
+					}
+					myTokenType = getWordType(myTokenStart, end);
+				}
+				else
+				{
+					myTokenType = JSTokenTypes.BAD_CHARACTER;
+				}
+		}
+
+		myTokenEnd = end;
+	}
+
+	private static boolean isWhiteSpace(char c)
+	{
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+	}
+
+	private IElementType getWordType(int start, int end)
+	{
+		final int length = end - start;
+		if(length == 4 && matches(start, "true"))
+		{
+			return JSTokenTypes.TRUE_KEYWORD;
+		}
+		if(length == 4 && matches(start, "null"))
+		{
+			return JSTokenTypes.NULL_KEYWORD;
+		}
+		if(length == 5 && matches(start, "false"))
+		{
+			return JSTokenTypes.FALSE_KEYWORD;
+		}
+		return JSTokenTypes.IDENTIFIER;
+	}
+
+	private boolean matches(int start, String word)
+	{
+		for(int i = 0; i < word.length(); i++)
+		{
+			if(myBuffer.charAt(start + i) != word.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Unterminated string ends at the line end, like in javascript lexer
+	 */
+	private int skipString(int offset, char quote)
+	{
+		while(offset < myBufferEnd)
+		{
+			final char c = myBuffer.charAt(offset);
+			if(c == quote)
+			{
+				return offset + 1;
+			}
+			if(c == '\n' || c == '\r')
+			{
+				return offset;
+			}
+			if(c == '\\')
+			{
+				offset++;
+			}
+			offset++;
+		}
+		return myBufferEnd;
+	}
+
+	private int skipLine(int offset)
+	{
+		while(offset < myBufferEnd && myBuffer.charAt(offset) != '\n' && myBuffer.charAt(offset) != '\r')
+		{
+			offset++;
+		}
+		return offset;
+	}
+
+	private int skipBlockComment(int offset)
+	{
+		while(offset < myBufferEnd)
+		{
+			if(myBuffer.charAt(offset) == '*' && offset + 1 < myBufferEnd && myBuffer.charAt(offset + 1) == '/')
+			{
+				return offset + 2;
+			}
+			offset++;
+		}
+		return myBufferEnd;
+	}
+
+	private int skipNumber(int offset)
+	{
+		offset = skipDigits(offset);
+		if(offset < myBufferEnd && myBuffer.charAt(offset) == '.')
+		{
+			offset = skipDigits(offset + 1);
+		}
+		if(offset < myBufferEnd && (myBuffer.charAt(offset) == 'e' || myBuffer.charAt(offset) == 'E'))
+		{
+			offset++;
+			if(offset < myBufferEnd && (myBuffer.charAt(offset) == '+' || myBuffer.charAt(offset) == '-'))
+			{
+				offset++;
+			}
+			offset = skipDigits(offset);
+		}
+		return offset;
+	}
+
+	private int skipDigits(int offset)
+	{
+		while(offset < myBufferEnd && myBuffer.charAt(offset) >= '0' && myBuffer.charAt(offset) <= '9')
+		{
+			offset++;
+		}
+		return offset;
+	}
+}
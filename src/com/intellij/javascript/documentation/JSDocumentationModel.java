@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.javascript.documentation;
+
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import gnu.trove.THashSet;
+
+/**
+ * Doc comment lines already matched against documentation patterns. Built once per comment text by
+ * {@link JSDocumentationUtils#processDocumentationTextFromComment} and replayed to every {@link JSDocumentationProcessor}.
+ */
+final class JSDocumentationModel
+{
+	static final class Match
+	{
+		final JSDocumentationProcessor.MetaDocType myType;
+		final String myName;
+		final String myValue;
+		final String myRemainingLineContent;
+		final String myPattern;
+
+		Match(@NotNull JSDocumentationProcessor.MetaDocType type, @Nullable String name, @Nullable String value, @Nullable String remainingLineContent,
+				String pattern)
+		{
+			myType = type;
+			myName = name;
+			myValue = value;
+			myRemainingLineContent = remainingLineContent;
+			myPattern = pattern;
+		}
+	}
+
+	static final class Line
+	{
+		final String myText;
+		// null for plain text lines, empty if line matched a pattern without meta doc type
+		final Match[] myMatches;
+
+		Line(@NotNull String text, @Nullable Match[] matches)
+		{
+			myText = text;
+			myMatches = matches;
+		}
+	}
+
+	private final String mySourceText;
+	private final Line[] myLines;
+	private final boolean myDeprecated;
+	private final Set<String> myOptionalParameters;
+
+	JSDocumentationModel(@NotNull String sourceText, @NotNull Line[] lines)
+	{
+		mySourceText = sourceText;
+		myLines = lines;
+
+		boolean deprecated = false;
+		Set<String> optionalParameters = null;
+		for(Line line : lines)
+		{
+			if(line.myMatches == null)
+			{
+				continue;
+			}
+			for(Match match : line.myMatches)
+			{
+				if(match.myType == JSDocumentationProcessor.MetaDocType.DEPRECATED)
+				{
+					deprecated = true;
+				}
+				else if(match.myType == JSDocumentationProcessor.MetaDocType.OPTIONAL_PARAMETERS && match.myName != null && match.myValue == null)
+				{
+					if(optionalParameters == null)
+					{
+						optionalParameters = new THashSet<String>();
+					}
+					optionalParameters.add(match.myName);
+				}
+			}
+		}
+		myDeprecated = deprecated;
+		myOptionalParameters = optionalParameters;
+	}
+
+	@NotNull
+	String getSourceText()
+	{
+		return mySourceText;
+	}
+
+	boolean isDeprecated()
+	{
+		return myDeprecated;
+	}
+
+	boolean isOptionalParameter(@Nullable String name)
+	{
+		return myOptionalParameters != null && myOptionalParameters.contains(name);
+	}
+
+	/**
+	 * Same callbacks in the same order as matching the comment text: false from {@link JSDocumentationProcessor#onPatternMatch}
+	 * skips the rest of the line and reports it as plain text, false from {@link JSDocumentationProcessor#onCommentLine} stops processing
+	 */
+	void process(@NotNull JSDocumentationProcessor processor)
+	{
+		final boolean needPlainCharData = processor.needsPlainCommentData();
+
+		for(Line line : myLines)
+		{
+			boolean matchedSomething = line.myMatches != null;
+
+			if(matchedSomething)
+			{
+				for(Match match : line.myMatches)
+				{
+					if(!processor.onPatternMatch(match.myType, match.myName, match.myValue, match.myRemainingLineContent, line.myText, match.myPattern))
+					{
+						matchedSomething = false;
+						break;
+					}
+				}
+			}
+
+			if(!matchedSomething && needPlainCharData)
+			{
+				if(!processor.onCommentLine(line.myText))
+				{
+					break;
+				}
+			}
+		}
+	}
+}
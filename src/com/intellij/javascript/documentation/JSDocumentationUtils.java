@@ -22,8 +22,9 @@
  */
 package com.intellij.javascript.documentation;
 
-import java.util.Enumeration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.regex.Matcher;
@@ -34,11 +35,15 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import com.intellij.codeInsight.documentation.DocumentationManager;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
 import com.intellij.lang.javascript.JSElementTypes;
 import com.intellij.lang.javascript.JSTokenTypes;
 import com.intellij.lang.javascript.index.JSNamedElementProxy;
 import com.intellij.lang.javascript.psi.*;
 import com.intellij.lang.javascript.psi.resolve.JSResolveUtil;
+import com.intellij.lang.javascript.types.JSLightTreeUtil;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiComment;
@@ -53,6 +58,8 @@ import com.intellij.psi.util.PsiTreeUtil;
 
 public class JSDocumentationUtils
 {
+	private static final Key<JSDocumentationModel> ourDocumentationModelKey = Key.create("js.documentation.model");
+
 	private static final
 	@NonNls
 	Pattern ourDojoParametersPattern = Pattern.compile("^\\s*(\\w+):(.*)$");
@@ -220,6 +227,15 @@ public class JSDocumentationUtils
 	}
 
 	public static void processDocumentationTextFromComment(ASTNode _initialComment, JSDocumentationProcessor processor)
+	{
+		getDocumentationModel(_initialComment).process(processor);
+	}
+
+	/**
+	 * Comment lines are matched once per comment text, model is kept on the comment node until its text changes
+	 */
+	@NotNull
+	private static JSDocumentationModel getDocumentationModel(@NotNull ASTNode _initialComment)
 	{
 		ASTNode prev = _initialComment.getTreePrev();
 
@@ -241,61 +257,57 @@ public class JSDocumentationUtils
 		}
 
 		final ASTNode initialComment = prev != null ? prev : _initialComment;
-		Enumeration<Object> commentLineIterator;
-
-		if(initialComment.getElementType() == JSTokenTypes.END_OF_LINE_COMMENT)
+		final boolean lineComments = initialComment.getElementType() == JSTokenTypes.END_OF_LINE_COMMENT;
+		final String sourceText;
+		if(lineComments)
 		{
-			commentLineIterator = new Enumeration<Object>()
+			final StringBuilder builder = new StringBuilder();
+			for(ASTNode commentNode = initialComment; commentNode != null; )
 			{
-				ASTNode commentNode = initialComment;
-
-				@Override
-				public boolean hasMoreElements()
+				if(builder.length() > 0)
 				{
-					return commentNode != null;
+					builder.append('\n');
 				}
+				builder.append(commentNode.getText());
 
-				@Override
-				public String nextElement()
+				commentNode = commentNode.getTreeNext();
+				if(commentNode != null && commentNode.getElementType() == TokenType.WHITE_SPACE)
 				{
-					ASTNode resultCommentNode = commentNode;
 					commentNode = commentNode.getTreeNext();
-
-					if(commentNode != null && commentNode.getElementType() == TokenType.WHITE_SPACE)
-					{
-						commentNode = commentNode.getTreeNext();
-					}
-
-					if(commentNode != null && commentNode.getElementType() != JSTokenTypes.END_OF_LINE_COMMENT)
-					{
-						commentNode = null;
-					}
-
-					final String text = resultCommentNode.getText();
-					if(text.startsWith("//"))
-					{
-						return text.substring(2);
-					}
-					return "";
 				}
-			};
+				if(commentNode != null && commentNode.getElementType() != JSTokenTypes.END_OF_LINE_COMMENT)
+				{
+					commentNode = null;
+				}
+			}
+			sourceText = builder.toString();
 		}
 		else
 		{
-			String text = initialComment.getText();
-			text = unwrapCommentDelimiters(text);
+			sourceText = initialComment.getText();
+		}
 
-			commentLineIterator = new StringTokenizer(text, "\r\n");
+		JSDocumentationModel model = initialComment.getUserData(ourDocumentationModelKey);
+		if(model == null || !model.getSourceText().equals(sourceText))
+		{
+			model = buildDocumentationModel(sourceText, lineComments);
+			initialComment.putUserData(ourDocumentationModelKey, model);
 		}
+		return model;
+	}
 
-		final boolean needPlainCharData = processor.needsPlainCommentData();
+	@NotNull
+	private static JSDocumentationModel buildDocumentationModel(@NotNull String sourceText, boolean lineComments)
+	{
+		final List<JSDocumentationModel.Line> lines = new ArrayList<JSDocumentationModel.Line>();
+		final StringTokenizer commentLineIterator = new StringTokenizer(lineComments ? sourceText : unwrapCommentDelimiters(sourceText), lineComments ? "\n" : "\r\n");
 
-		while(commentLineIterator.hasMoreElements())
+		while(commentLineIterator.hasMoreTokens())
 		{
-			final String s = (String) commentLineIterator.nextElement();
-			if(s.indexOf('@') == -1 && s.indexOf(':') == -1 && !needPlainCharData)
+			String s = commentLineIterator.nextToken();
+			if(lineComments)
 			{
-				continue;
+				s = s.startsWith("//") ? s.substring(2) : "";
 			}
 
 			String commentText = s.replace('\t', ' ');
@@ -315,7 +327,14 @@ public class JSDocumentationUtils
 				}
 			}
 
-			boolean matchedSomething = false;
+			if(s.indexOf('@') == -1 && s.indexOf(':') == -1)
+			{
+				// no pattern hint can be found, plain text only
+				lines.add(new JSDocumentationModel.Line(commentText, null));
+				continue;
+			}
+
+			List<JSDocumentationModel.Match> matches = null;
 
 			for(Map.Entry<Pattern, String> entry : patternToHintMap.entrySet())
 			{
@@ -327,6 +346,7 @@ public class JSDocumentationUtils
 
 				if(matcher.matches())
 				{
+					matches = new ArrayList<JSDocumentationModel.Match>(1);
 					final JSDocumentationProcessor.MetaDocType docType = patternToMetaDocTypeMap.get(entry.getKey());
 					if(docType != null)
 					{
@@ -377,48 +397,34 @@ public class JSDocumentationUtils
 
 						if(reportAboutFieldInParameter)
 						{
-							if(!processor.onPatternMatch(JSDocumentationProcessor.MetaDocType.FIELD, matchName, null, matcher.group(groupForFieldName), commentText, matched))
-
-							{
-								break;
-							}
+							matches.add(new JSDocumentationModel.Match(JSDocumentationProcessor.MetaDocType.FIELD, matchName, null, matcher.group(groupForFieldName),
+									matched));
 						}
 						else
 						{
-							if(!processor.onPatternMatch(docType, matchName, matchValue, remainingLineContent, commentText, matched))
-							{
-								break;
-							}
+							matches.add(new JSDocumentationModel.Match(docType, matchName, matchValue, remainingLineContent, matched));
 						}
+
 						if(reportAboutOptionalParameter)
 						{
-							if(!processor.onPatternMatch(JSDocumentationProcessor.MetaDocType.OPTIONAL_PARAMETERS, matchName, fieldName, null, commentText, matched))
-							{
-								break;
-							}
+							matches.add(new JSDocumentationModel.Match(JSDocumentationProcessor.MetaDocType.OPTIONAL_PARAMETERS, matchName, fieldName, null, matched));
 						}
 
 						if(reportAboutDefaultValue)
 						{
-							if(!processor.onPatternMatch(JSDocumentationProcessor.MetaDocType.DEFAULT, matchName, fieldName, matcher.group(groupForInitialValue), commentText, matched))
-							{
-								break;
-							}
+							matches.add(new JSDocumentationModel.Match(JSDocumentationProcessor.MetaDocType.DEFAULT, matchName, fieldName, matcher.group
+									(groupForInitialValue), matched));
 						}
 					}
-					matchedSomething = true;
 					break;
 				}
 			}
 
-			if(!matchedSomething && needPlainCharData)
-			{
-				if(!processor.onCommentLine(commentText))
-				{
-					break;
-				}
-			}
+			lines.add(new JSDocumentationModel.Line(commentText, matches != null ? matches.toArray(new JSDocumentationModel.Match[matches.size()]) :
+					null));
 		}
+
+		return new JSDocumentationModel(sourceText, lines.toArray(new JSDocumentationModel.Line[lines.size()]));
 	}
 
 	public static String unwrapCommentDelimiters(String text)
@@ -625,46 +631,48 @@ public class JSDocumentationUtils
 	{
 		if(docComment != null)
 		{
-			final String[] detectedType = new String[1];
+			return findTypeFromParameter(parameter.getName(), parameter instanceof JSParameter, getDocumentationModel(docComment.getNode()));
+		}
+		return null;
+	}
 
-			processDocumentationTextFromComment(docComment.getNode(), new JSDocumentationProcessor()
+	private static String findTypeFromParameter(final String name, final boolean isparameter, @NotNull JSDocumentationModel model)
+	{
+		final String[] detectedType = new String[1];
+
+		model.process(new JSDocumentationProcessor()
+		{
+			@Override
+			public boolean needsPlainCommentData()
 			{
-				final String name = parameter.getName();
-				final boolean isparameter = parameter instanceof JSParameter;
+				return false;
+			}
 
-				@Override
-				public boolean needsPlainCommentData()
-				{
-					return false;
-				}
+			@Override
+			public boolean onCommentLine(@NotNull final String line)
+			{
+				return true;
+			}
 
-				@Override
-				public boolean onCommentLine(@NotNull final String line)
+			@Override
+			public boolean onPatternMatch(@NotNull final MetaDocType type, @Nullable final String matchName, @Nullable final String matchValue,
+					@Nullable final String remainingLineContent, @NotNull final String line, final String patternMatched)
+			{
+				if(isparameter && type == MetaDocType.PARAMETER && matchName != null && matchName.equals(name))
 				{
-					return true;
+					detectedType[0] = matchValue;
+					return false;
 				}
-
-				@Override
-				public boolean onPatternMatch(@NotNull final MetaDocType type, @Nullable final String matchName, @Nullable final String matchValue,
-						@Nullable final String remainingLineContent, @NotNull final String line, final String patternMatched)
+				else if(type == MetaDocType.TYPE)
 				{
-					if(isparameter && type == MetaDocType.PARAMETER && matchName != null && matchName.equals(name))
-					{
-						detectedType[0] = matchValue;
-						return false;
-					}
-					else if(type == MetaDocType.TYPE)
-					{
-						detectedType[0] = matchName;
-						return false;
-					}
-					return true;
+					detectedType[0] = matchName;
+					return false;
 				}
-			});
+				return true;
+			}
+		});
 
-			return detectedType[0];
-		}
-		return null;
+		return detectedType[0];
 	}
 
 	public static final TokenSet ourPrimitiveTypeFilter = TokenSet.create(JSTokenTypes.INT_KEYWORD, JSTokenTypes.UINT_KEYWORD,
@@ -685,60 +693,60 @@ public class JSDocumentationUtils
 
 			if(docComment != null)
 			{
-				final Ref<String> detectedType = new Ref<String>();
-
-				final PsiElement anchor1 = anchor;
-				processDocumentationTextFromComment(docComment.getNode(), new JSDocumentationProcessor()
+				boolean skipTypeTag = false;
+				if(_anchor instanceof JSFunction)
 				{
-					@Override
-					public boolean needsPlainCommentData()
-					{
-						return false;
-					}
+					final JSParameterList jsParameterList = ((JSFunction) _anchor).getParameterList();
+					skipTypeTag = jsParameterList != null && jsParameterList.getParameters().length > 0 || _anchor.getParent() instanceof JSProperty;
+				}
+				return findDocForAnchor(getDocumentationModel(docComment.getNode()), skipTypeTag, expectedTypes);
+			}
+		}
+		return null;
+	}
 
-					@Override
-					public boolean onCommentLine(@NotNull final String line)
-					{
-						return true;
-					}
+	// @type of a function with parameters or of an object literal function does not describe its return value
+	private static String findDocForAnchor(@NotNull JSDocumentationModel model, final boolean skipTypeTag,
+			final JSDocumentationProcessor.MetaDocType... expectedTypes)
+	{
+		final Ref<String> detectedType = new Ref<String>();
 
-					@Override
-					public boolean onPatternMatch(@NotNull final MetaDocType type, @Nullable final String matchName, @Nullable final String matchValue,
-							@Nullable final String remainingLineContent, @NotNull final String line, final String patternMatched)
+		model.process(new JSDocumentationProcessor()
+		{
+			@Override
+			public boolean needsPlainCommentData()
+			{
+				return false;
+			}
+
+			@Override
+			public boolean onCommentLine(@NotNull final String line)
+			{
+				return true;
+			}
+
+			@Override
+			public boolean onPatternMatch(@NotNull final MetaDocType type, @Nullable final String matchName, @Nullable final String matchValue,
+					@Nullable final String remainingLineContent, @NotNull final String line, final String patternMatched)
+			{
+				for(MetaDocType expectedType : expectedTypes)
+				{
+					if(type == expectedType)
 					{
-						for(MetaDocType expectedType : expectedTypes)
+						if(type == MetaDocType.TYPE && skipTypeTag)
 						{
-							if(type == expectedType)
-							{
-								if(type == MetaDocType.TYPE && _anchor instanceof JSFunction)
-								{
-									final JSParameterList jsParameterList = ((JSFunction) _anchor).getParameterList();
-									if(jsParameterList != null && jsParameterList.getParameters().length > 0)
-									{
-										return true;
-									}
-									if(_anchor.getParent() instanceof JSProperty)
-									{
-										return true;
-									}
-								}
-								else if(type == MetaDocType.RETURN)
-								{
-									//if (!isOurDocComment()) return true;
-								}
-
-								detectedType.set(matchName);
-								return false;
-							}
+							return true;
 						}
-						return true;
-					}
-				});
 
-				return detectedType.get();
+						detectedType.set(matchName);
+						return false;
+					}
+				}
+				return true;
 			}
-		}
-		return null;
+		});
+
+		return detectedType.get();
 	}
 
 	public static String findType(final PsiElement def)
@@ -782,36 +790,7 @@ public class JSDocumentationUtils
 		final PsiElement docComment = element != null ? findDocComment(element) : null;
 		if(docComment != null)
 		{
-			final boolean[] deprecatedStatus = new boolean[1];
-
-			processDocumentationTextFromComment(docComment.getNode(), new JSDocumentationProcessor()
-			{
-				@Override
-				public boolean needsPlainCommentData()
-				{
-					return false;
-				}
-
-				@Override
-				public boolean onCommentLine(@NotNull final String line)
-				{
-					return true;
-				}
-
-				@Override
-				public boolean onPatternMatch(@NotNull final MetaDocType type, @Nullable final String matchName, @Nullable final String matchValue,
-						@Nullable final String remainingLineContent, @NotNull final String line, final String patternMatched)
-				{
-					if(type == MetaDocType.DEPRECATED)
-					{
-						deprecatedStatus[0] = true;
-						return false;
-					}
-					return true;
-				}
-			});
-
-			return deprecatedStatus[0];
+			return getDocumentationModel(docComment.getNode()).isDeprecated();
 		}
 		return false;
 	}
@@ -950,38 +929,291 @@ public class JSDocumentationUtils
 			return false;
 		}
 
-		final boolean[] detectedType = new boolean[1];
+		return getDocumentationModel(docComment.getNode()).isOptionalParameter(parameter.getName());
+	}
+
+	// Light tree counterparts of the methods above, stubs of JavaScript files are built with them without psi. Outer language elements
+	// are not looked at, only plain JavaScript files get their stubs from the light tree.
+
+	private static final TokenSet ourStatementsAndProperties = TokenSet.orSet(JSLightTreeUtil.STATEMENTS, TokenSet.create(JSElementTypes
+			.PROPERTY));
 
-		processDocumentationTextFromComment(docComment.getNode(), new JSDocumentationProcessor()
+	public static boolean calculateDeprecated(@NotNull LighterAST tree, @NotNull LighterASTNode element)
+	{
+		LighterASTNode anchor = element;
+		if(JSElementTypes.EXPRESSIONS.contains(element.getTokenType()))
 		{
-			final String name = parameter.getName();
+			anchor = JSLightTreeUtil.getParentOfType(tree, element, ourStatementsAndProperties);
+		}
 
-			@Override
-			public boolean needsPlainCommentData()
+		final LighterASTNode docComment = anchor != null ? findDocComment(tree, anchor) : null;
+		return docComment != null && getDocumentationModel(tree, docComment).isDeprecated();
+	}
+
+	@Nullable
+	public static String findTypeFromComments(@NotNull LighterAST tree, @NotNull LighterASTNode element)
+	{
+		final IElementType type = element.getTokenType();
+		if(type == JSElementTypes.FORMAL_PARAMETER)
+		{
+			String s = evaluateTypeFromVariable(tree, element);
+			if(s == null)
 			{
-				return false;
+				final LighterASTNode docComment = findFunctionComment(tree, element);
+				s = docComment != null ? findTypeFromParameter(JSLightTreeUtil.getName(tree, element), true, getDocumentationModel(tree,
+						docComment)) : null;
 			}
+			return s;
+		}
+		else if(type == JSElementTypes.VARIABLE)
+		{
+			return evaluateTypeFromVariable(tree, element);
+		}
+		else if(JSLightTreeUtil.isFunction(element))
+		{
+			return evaluateTypeFromFunction(tree, element);
+		}
+		return null;
+	}
 
-			@Override
-			public boolean onCommentLine(@NotNull final String line)
+	public static boolean findOptionalStatusFromComments(@NotNull LighterAST tree, @NotNull LighterASTNode parameter)
+	{
+		final LighterASTNode docComment = findFunctionComment(tree, parameter);
+		return docComment != null && getDocumentationModel(tree, docComment).isOptionalParameter(JSLightTreeUtil.getName(tree, parameter));
+	}
+
+	@NotNull
+	private static JSDocumentationModel getDocumentationModel(@NotNull LighterAST tree, @NotNull LighterASTNode initialComment)
+	{
+		final boolean lineComments = initialComment.getTokenType() == JSTokenTypes.END_OF_LINE_COMMENT;
+		if(!lineComments)
+		{
+			return buildDocumentationModel(JSLightTreeUtil.getText(tree, initialComment), false);
+		}
+
+		final StringBuilder builder = new StringBuilder();
+		for(LighterASTNode commentNode = initialComment; commentNode != null; )
+		{
+			if(builder.length() > 0)
 			{
-				return true;
+				builder.append('\n');
 			}
+			builder.append(JSLightTreeUtil.getText(tree, commentNode));
 
-			@Override
-			public boolean onPatternMatch(@NotNull final MetaDocType type, @Nullable final String matchName, @Nullable final String matchValue,
-					@Nullable final String remainingLineContent, @NotNull final String line, final String patternMatched)
+			commentNode = JSLightTreeUtil.getNextSibling(tree, commentNode);
+			if(commentNode != null && commentNode.getTokenType() == TokenType.WHITE_SPACE)
 			{
-				if(type == MetaDocType.OPTIONAL_PARAMETERS && matchName != null && matchName.equals(name) && matchValue == null)
+				commentNode = JSLightTreeUtil.getNextSibling(tree, commentNode);
+			}
+			if(commentNode != null && commentNode.getTokenType() != JSTokenTypes.END_OF_LINE_COMMENT)
+			{
+				commentNode = null;
+			}
+		}
+		return buildDocumentationModel(builder.toString(), true);
+	}
+
+	@Nullable
+	private static LighterASTNode findDocComment(@NotNull LighterAST tree, @NotNull LighterASTNode element)
+	{
+		if(JSLightTreeUtil.isAttributeListOwner(element))
+		{
+			final LighterASTNode attributeList = JSLightTreeUtil.getAttributeList(tree, element);
+
+			if(attributeList != null)
+			{
+				final List<LighterASTNode> children = tree.getChildren(attributeList);
+				for(int i = children.size() - 1; i >= 0; i--)
 				{
-					detectedType[0] = true;
-					return false;
+					final IElementType nodeType = children.get(i).getTokenType();
+
+					if(!JSTokenTypes.MODIFIERS.contains(nodeType) &&
+							nodeType != JSTokenTypes.WHITE_SPACE &&
+							nodeType != JSElementTypes.REFERENCE_EXPRESSION // namespace
+							)
+					{
+						if(i + 1 < children.size())
+						{
+							element = children.get(i + 1);
+						}
+						break;
+					}
 				}
+			}
+		}
 
-				return true;
+		final LighterASTNode parent = tree.getParent(element);
+		if(parent == null)
+		{
+			return null;
+		}
+
+		LighterASTNode docComment = null;
+		boolean skippedExprStatementOnce = false;
+		final String propName = getPropertyNameFromExprStatement(tree, element);
+		final List<LighterASTNode> siblings = tree.getChildren(parent);
+
+		for(int i = JSLightTreeUtil.indexOf(siblings, element) - 1; i >= 0; i--)
+		{
+			final LighterASTNode prev = siblings.get(i);
+			final IElementType prevType = prev.getTokenType();
+			if(prevType == JSTokenTypes.WHITE_SPACE)
+			{
+				continue;
 			}
-		});
 
-		return detectedType[0];
+			if(JSTokenTypes.COMMENTS.contains(prevType))
+			{
+				docComment = prev;
+			}
+			else if(propName != null && prevType == JSElementTypes.EXPRESSION_STATEMENT && !skippedExprStatementOnce)
+			{
+				if(!propName.equals(getPropertyNameFromExprStatement(tree, prev)))
+				{
+					break;
+				}
+				skippedExprStatementOnce = true; // presumably another accessor definition
+				continue;
+			}
+
+			break;
+		}
+		return docComment;
+	}
+
+	@Nullable
+	private static String getPropertyNameFromExprStatement(@NotNull LighterAST tree, @NotNull LighterASTNode element)
+	{
+		if(element.getTokenType() != JSElementTypes.EXPRESSION_STATEMENT)
+		{
+			return null;
+		}
+
+		final LighterASTNode expression = JSLightTreeUtil.findChildByType(tree, element, JSElementTypes.EXPRESSIONS);
+		if(expression != null && expression.getTokenType() == JSElementTypes.ASSIGNMENT_EXPRESSION)
+		{
+			final LighterASTNode rOperand = JSLightTreeUtil.getROperand(tree, expression);
+			if(rOperand != null && rOperand.getTokenType() == JSElementTypes.FUNCTION_EXPRESSION)
+			{
+				final String name = JSLightTreeUtil.getName(tree, rOperand);
+				if(name != null && (StringUtil.startsWith(name, "get") || (StringUtil.startsWith(name, "set"))))
+				{
+					return name.substring(3);
+				}
+			}
+		}
+		return null;
+	}
+
+	@Nullable
+	private static LighterASTNode findFunctionComment(@NotNull LighterAST tree, @NotNull LighterASTNode parameter)
+	{
+		LighterASTNode anchor = JSLightTreeUtil.getParentOfType(tree, parameter, TokenSet.create(JSElementTypes.FUNCTION_DECLARATION,
+				JSElementTypes.FUNCTION_EXPRESSION));
+
+		if(anchor != null && anchor.getTokenType() == JSElementTypes.FUNCTION_EXPRESSION)
+		{
+			anchor = JSLightTreeUtil.getParentOfType(tree, anchor, ourStatementsAndProperties);
+		}
+
+		return anchor != null ? findDocComment(tree, anchor) : null;
+	}
+
+	@Nullable
+	private static String evaluateTypeFromFunction(@NotNull LighterAST tree, @NotNull LighterASTNode function)
+	{
+		final LighterASTNode lastCommentInFunctionBody = findTrailingCommentInFunctionBody(tree, function);
+		if(lastCommentInFunctionBody != null)
+		{
+			return unwrapCommentDelimiters(JSLightTreeUtil.getText(tree, lastCommentInFunctionBody)).trim();
+		}
+
+		LighterASTNode anchor = function;
+		if(function.getTokenType() == JSElementTypes.FUNCTION_EXPRESSION)
+		{
+			anchor = JSLightTreeUtil.getParentOfType(tree, function, ourStatementsAndProperties);
+		}
+
+		final LighterASTNode docComment = anchor != null ? findDocComment(tree, anchor) : null;
+		if(docComment == null)
+		{
+			return null;
+		}
+
+		final LighterASTNode parent = tree.getParent(function);
+		final boolean skipTypeTag = JSLightTreeUtil.getParameterCount(tree, function) > 0 || parent != null && parent.getTokenType() ==
+				JSElementTypes.PROPERTY;
+		return findDocForAnchor(getDocumentationModel(tree, docComment), skipTypeTag, JSDocumentationProcessor.MetaDocType.RETURN,
+				JSDocumentationProcessor.MetaDocType.TYPE);
+	}
+
+	@Nullable
+	private static LighterASTNode findTrailingCommentInFunctionBody(@NotNull LighterAST tree, @NotNull LighterASTNode function)
+	{
+		final LighterASTNode block = JSLightTreeUtil.findChildByType(tree, function, JSElementTypes.BLOCK_STATEMENT);
+		if(block == null)
+		{
+			return null;
+		}
+
+		final List<LighterASTNode> children = tree.getChildren(block);
+		for(int i = children.size() - 1; i >= 0; i--)
+		{
+			final LighterASTNode prev = children.get(i);
+			if(prev.getTokenType() == JSElementTypes.RETURN_STATEMENT)
+			{
+				return JSLightTreeUtil.findChildByType(tree, block, JSTokenTypes.COMMENTS, prev);
+			}
+			else if(JSElementTypes.STATEMENTS.contains(prev.getTokenType()))
+			{
+				break;
+			}
+		}
+		return null;
+	}
+
+	@Nullable
+	private static String evaluateTypeFromVariable(@NotNull LighterAST tree, @NotNull LighterASTNode variable)
+	{
+		final List<LighterASTNode> children = tree.getChildren(variable);
+		LighterASTNode prevSibling = children.isEmpty() ? null : children.get(0);
+		if(prevSibling != null && prevSibling.getTokenType() == JSTokenTypes.IDENTIFIER)
+		{
+			prevSibling = JSLightTreeUtil.getPrevSibling(tree, variable);
+		}
+
+		if(prevSibling != null && prevSibling.getTokenType() == JSTokenTypes.WHITE_SPACE)
+		{
+			prevSibling = JSLightTreeUtil.getPrevSibling(tree, prevSibling);
+		}
+
+		if(prevSibling != null && JSTokenTypes.COMMENTS.contains(prevSibling.getTokenType()) && prevSibling.getTokenType() != JSTokenTypes
+				.END_OF_LINE_COMMENT)
+		{
+			final String parameterCommentText = unwrapCommentDelimiters(JSLightTreeUtil.getText(tree, prevSibling)).trim();
+
+			if(parameterCommentText.length() > 0 && (Character.isUpperCase(parameterCommentText.charAt(0)) || parameterCommentText.indexOf(' ') == -1))
+			{
+				return parameterCommentText;
+			}
+		}
+
+		final LighterASTNode varStatement = tree.getParent(variable);
+		if(prevSibling != null && prevSibling.getTokenType() == JSTokenTypes.VAR_KEYWORD && varStatement != null)
+		{
+			prevSibling = JSLightTreeUtil.getPrevSibling(tree, varStatement);
+
+			if(prevSibling != null && prevSibling.getTokenType() == JSTokenTypes.WHITE_SPACE)
+			{
+				prevSibling = JSLightTreeUtil.getPrevSibling(tree, prevSibling);
+			}
+
+			if(prevSibling != null && JSTokenTypes.COMMENTS.contains(prevSibling.getTokenType()))
+			{
+				return findTypeFromParameter(JSLightTreeUtil.getName(tree, variable), variable.getTokenType() == JSElementTypes.FORMAL_PARAMETER,
+						getDocumentationModel(tree, prevSibling));
+			}
+		}
+		return null;
 	}
-}
\ No newline at end of file
+}
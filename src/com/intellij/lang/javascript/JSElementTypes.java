@@ -87,7 +87,7 @@ public interface JSElementTypes
 	IElementType GENERIC_SIGNATURE = new ElementTypeAsPsiFactory("GENERIC_SIGNATURE", JavascriptLanguage.INSTANCE, JSGenericSignatureImpl.class);
 
 	// Statements
-	IElementType BLOCK_STATEMENT = new ElementTypeAsPsiFactory("BLOCK_STATEMENT", JavascriptLanguage.INSTANCE, JSBlockStatementImpl.class);
+	IElementType BLOCK_STATEMENT = new JSBlockStatementElementType();
 	IElementType LABELED_STATEMENT = new ElementTypeAsPsiFactory("LABELED_STATEMENT", JavascriptLanguage.INSTANCE, JSLabeledStatementImpl.class);
 	IElementType EXPRESSION_STATEMENT = new ElementTypeAsPsiFactory("EXPRESSION_STATEMENT", JavascriptLanguage.INSTANCE,
 			JSExpressionStatementImpl.class);
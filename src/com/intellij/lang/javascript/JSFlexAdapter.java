@@ -20,12 +20,17 @@ import com.intellij.lexer.FlexAdapter;
 
 /**
  * @author Maxim.Mossienko
+ *         <p/>
+ *         State layout: lexical state of {@link _JavaScriptLexer} in the low bits, xml tag nesting (e4x) above it.
+ *         Both are taken before the current token, so lexing may be restarted at any token with the state reported for it.
  */
 public class JSFlexAdapter extends FlexAdapter
 {
 	private static final int BASE_STATE_MASK = 0xF;
 	private static final int TAG_COUNT_SHIFT = 4;
 
+	private int myTokenTagCount;
+
 	public JSFlexAdapter(boolean highlight, DialectOptionHolder optionHolder)
 	{
 		super(new _JavaScriptLexer(highlight, optionHolder));
@@ -35,17 +40,26 @@ public class JSFlexAdapter extends FlexAdapter
 	public void start(final CharSequence buffer, final int startOffset, final int endOffset, final int initialState)
 	{
 		super.start(buffer, startOffset, endOffset, initialState & BASE_STATE_MASK);
-		((_JavaScriptLexer) getFlex()).setTagCount(initialState >> TAG_COUNT_SHIFT);
+		myTokenTagCount = initialState >> TAG_COUNT_SHIFT;
+		((_JavaScriptLexer) getFlex()).setTagCount(myTokenTagCount);
+	}
+
+	@Override
+	public void advance()
+	{
+		super.advance();
+		// flex lexer already moved past the previous token, its tag count is the one next token starts with
+		myTokenTagCount = ((_JavaScriptLexer) getFlex()).getTagCount();
 	}
 
 	@Override
 	public int getState()
 	{
-		return getStateInternal() + (((_JavaScriptLexer) getFlex()).getTagCount() << TAG_COUNT_SHIFT);
+		return getStateInternal() + (myTokenTagCount << TAG_COUNT_SHIFT);
 	}
 
 	protected int getStateInternal()
 	{
 		return super.getState();
 	}
-}
\ No newline at end of file
+}
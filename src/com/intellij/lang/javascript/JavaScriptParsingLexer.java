@@ -20,20 +20,31 @@ import com.intellij.psi.tree.IElementType;
 
 /**
  * @author max
+ *         <p/>
+ *         State is the {@link JSFlexAdapter} state shifted left by one, low bit is set only on a synthetic
+ *         {@link JSTokenTypes#SEMANTIC_LINEFEED}. So 0 is reported only where restarting is the same as lexing from the file start.
  */
 public class JavaScriptParsingLexer extends JSFlexAdapter
 {
 	private boolean myOnBreakOrContinueOrReturn = false;
 	private boolean myOnSemanticLineFeed = false;
 
-	private final static int ON_BREAK_OR_CONTINUE_OR_RETURN = _JavaScriptLexer.LAST_STATE;
-	private final static int ON_SEMANTIC_LF = ON_BREAK_OR_CONTINUE_OR_RETURN + 1;
+	private final static int ON_SEMANTIC_LF = 1;
+	private final static int BASE_STATE_SHIFT = 1;
 
 	public JavaScriptParsingLexer(DialectOptionHolder dialectOptionsHolder)
 	{
 		super(false, dialectOptionsHolder);
 	}
 
+	@Override
+	public void start(final CharSequence buffer, final int startOffset, final int endOffset, final int initialState)
+	{
+		super.start(buffer, startOffset, endOffset, initialState >> BASE_STATE_SHIFT);
+		myOnBreakOrContinueOrReturn = false;
+		myOnSemanticLineFeed = (initialState & ON_SEMANTIC_LF) != 0;
+	}
+
 	@Override
 	public void advance()
 	{
@@ -89,17 +100,13 @@ public class JavaScriptParsingLexer extends JSFlexAdapter
 		return myOnSemanticLineFeed ? super.getTokenStart() : super.getTokenEnd();
 	}
 
+	/**
+	 * Break/continue/return flag is not part of the state: it only matters for the whitespace right after the keyword,
+	 * and when that whitespace has a line feed the lexer stands on the semantic line feed first
+	 */
 	@Override
 	public int getState()
 	{
-		if(myOnSemanticLineFeed)
-		{
-			return ON_SEMANTIC_LF;
-		}
-		if(myOnBreakOrContinueOrReturn)
-		{
-			return ON_BREAK_OR_CONTINUE_OR_RETURN;
-		}
-		return super.getState();
+		return super.getState() << BASE_STATE_SHIFT | (myOnSemanticLineFeed ? ON_SEMANTIC_LF : 0);
 	}
 }
@@ -22,6 +22,7 @@ import com.intellij.ide.highlighter.XmlFileType;
 import com.intellij.lang.DependentLanguage;
 import com.intellij.lang.LanguageParserDefinitions;
 import com.intellij.lang.LanguageVersion;
+import com.intellij.lang.javascript.flex.SwfFileType;
 import com.intellij.lang.javascript.highlighting.JSHighlighter;
 import com.intellij.lexer.Lexer;
 import com.intellij.openapi.fileTypes.FileTypeConsumer;
@@ -101,6 +102,7 @@ public class JavaScriptSupportLoader extends FileTypeFactory
 	public void createFileTypes(final @NotNull FileTypeConsumer consumer)
 	{
 		consumer.consume(JavaScriptFileType.INSTANCE);
+		consumer.consume(SwfFileType.INSTANCE);
 		//consumer.consume(JsonFileType.INSTANCE);
 		//consumer.consume(EcmaScriptFileType.INSTANCE, "es;js2");
 		//consumer.consume(ActionScriptFileType.INSTANCE);
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.lang.javascript.flex;
+
+import javax.swing.Icon;
+
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import com.intellij.icons.AllIcons;
+import com.intellij.lang.javascript.JSBundle;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.vfs.VirtualFile;
+
+/**
+ * Compiled flash movies. Swc libraries stay archives, their bytecode is indexed through the library.swf entry.
+ */
+public class SwfFileType implements FileType
+{
+	public static final SwfFileType INSTANCE = new SwfFileType();
+
+	@NonNls
+	public static final String DEFAULT_EXTENSION = "swf";
+
+	@NotNull
+	@Override
+	public String getName()
+	{
+		return "SWF";
+	}
+
+	@NotNull
+	@Override
+	public String getDescription()
+	{
+		return JSBundle.message("swf.filetype.description");
+	}
+
+	@NotNull
+	@Override
+	public String getDefaultExtension()
+	{
+		return DEFAULT_EXTENSION;
+	}
+
+	@Override
+	public Icon getIcon()
+	{
+		return AllIcons.FileTypes.Any_type;
+	}
+
+	@Override
+	public boolean isBinary()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean isReadOnly()
+	{
+		return true;
+	}
+
+	@Nullable
+	@Override
+	public String getCharset(@NotNull VirtualFile file, byte[] content)
+	{
+		return null;
+	}
+}
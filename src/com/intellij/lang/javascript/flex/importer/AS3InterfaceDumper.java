@@ -150,6 +150,12 @@ class AS3InterfaceDumper extends AbstractDumpProcessor
 		return md.name.indexOf("__") == -1;
 	}
 
+	@Override
+	public boolean doParseMethodBodies()
+	{
+		return false;
+	}
+
 	@Override
 	public void processParameter(@NotNull String name, @Nullable Multiname type, String parentName, @Nullable Multiname value, boolean rest)
 	{
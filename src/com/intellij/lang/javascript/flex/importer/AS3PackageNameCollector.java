@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.lang.javascript.flex.importer;
+
+import java.util.Collection;
+
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Collects package names of top level classes, functions and variables, class members are not visited
+ */
+class AS3PackageNameCollector extends AS3InterfaceDumper
+{
+	private final Collection<String> myPackageNames;
+
+	AS3PackageNameCollector(@NotNull Collection<String> packageNames)
+	{
+		myPackageNames = packageNames;
+	}
+
+	@Override
+	public void append(@NotNull @NonNls String str)
+	{
+	}
+
+	@Override
+	public void hasError(@NotNull String error)
+	{
+	}
+
+	@Override
+	public boolean doDumpMetaData(@NotNull MetaData md)
+	{
+		return false;
+	}
+
+	@Override
+	public void processClass(SlotInfo slotInfo, Abc abc, String attr, String indent)
+	{
+		addPackageName(slotInfo.name);
+	}
+
+	@Override
+	public void processFunction(MethodInfo methodInfo, boolean referenceNameRequested, Abc abc, String indent, String attr)
+	{
+		addPackageName(methodInfo.name);
+	}
+
+	@Override
+	public void processVariable(SlotInfo info, String indent, String attr)
+	{
+		addPackageName(info.name);
+	}
+
+	private void addPackageName(Multiname name)
+	{
+		// members in namespaces (private, mx_internal and so on) don't belong to a package
+		if(name != null && name.hasNotEmptyNs() && !name.hasNamespace())
+		{
+			myPackageNames.add(name.nsset[0]);
+		}
+	}
+}
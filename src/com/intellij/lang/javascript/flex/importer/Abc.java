@@ -21,6 +21,7 @@ import java.util.Set;
 
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.ArrayUtil;
 
@@ -577,35 +578,51 @@ class Abc
 
 		parseCpool();
 
-		defaults[CONSTANT_Utf8] = strings;
-		defaults[CONSTANT_Int] = ints;
-		defaults[CONSTANT_UInt] = uints;
-		defaults[CONSTANT_Double] = doubles;
-		defaults[CONSTANT_Int] = ints;
-		defaults[CONSTANT_False] = buildSparseArray(10, "false");
-		defaults[CONSTANT_True] = buildSparseArray(11, "true");
-		defaults[CONSTANT_Namespace] = namespaces;
-		defaults[CONSTANT_PrivateNs] = namespaces;
-		defaults[CONSTANT_PackageNs] = namespaces;
-		defaults[CONSTANT_PackageInternalNs] = namespaces;
-		defaults[CONSTANT_ProtectedNs] = namespaces;
-		defaults[CONSTANT_StaticProtectedNs] = namespaces;
-		defaults[CONSTANT_StaticProtectedNs2] = namespaces;
-		defaults[CONSTANT_Null] = buildSparseArray(12, "null");
-
 		parseMethodInfos();
 		parseMetadataInfos();
 		parseInstanceInfos();
 		parseClassInfos();
 		parseScriptInfos();
-		parseMethodBodies();
+		// method bodies are the last section, so declarations-only processors just stop before it
+		if(processor.doParseMethodBodies())
+		{
+			parseMethodBodies();
+		}
 	}
 
-	private static Object[] buildSparseArray(int index, @NonNls String s1)
+	/**
+	 * Value of constant pool entry referenced by default value of parameter or slot, numbers are boxed only here
+	 */
+	@Nullable
+	Object getDefaultValue(int kind, int index)
 	{
-		final Object[] result = new Object[index + 1];
-		result[index] = s1;
-		return result;
+		switch(kind)
+		{
+			case CONSTANT_Utf8:
+				return strings[index];
+			case CONSTANT_Int:
+				return ints[index];
+			case CONSTANT_UInt:
+				return uints[index];
+			case CONSTANT_Double:
+				return doubles[index];
+			case CONSTANT_False:
+				return "false";
+			case CONSTANT_True:
+				return "true";
+			case CONSTANT_Null:
+				return "null";
+			case CONSTANT_Namespace:
+			case CONSTANT_PrivateNs:
+			case CONSTANT_PackageNs:
+			case CONSTANT_PackageInternalNs:
+			case CONSTANT_ProtectedNs:
+			case CONSTANT_StaticProtectedNs:
+			case CONSTANT_StaticProtectedNs2:
+				return namespaces[index];
+			default:
+				return null;
+		}
 	}
 
 	public void dump(String indent)
@@ -650,9 +667,9 @@ class Abc
 	int major;
 	int minor;
 
-	Integer[] ints;
-	Integer[] uints;
-	Double[] doubles;
+	int[] ints;
+	int[] uints;
+	double[] doubles;
 	@NonNls
 	String[] strings;
 	@NonNls
@@ -661,8 +678,6 @@ class Abc
 	String[][] nssets;
 	Multiname[] names;
 
-	final Object[][] defaults = new Object[Math.max(constantKinds.length, CONSTANT_MultinameLA + 1)][];
-
 	MethodInfo methods[];
 	Traits instances[];
 	Traits classes[];
@@ -689,7 +704,7 @@ class Abc
 
 		// ints
 		n = readU32();
-		ints = new Integer[n > 0 ? n : 1];
+		ints = new int[n > 0 ? n : 1];
 		ints[0] = 0;
 		for(i = 1; i < n; i++)
 		{
@@ -698,7 +713,7 @@ class Abc
 
 		// uints
 		n = readU32();
-		uints = new Integer[n > 0 ? n : 1];
+		uints = new int[n > 0 ? n : 1];
 		uints[0] = 0;
 		for(i = 1; i < n; i++)
 		{
@@ -707,7 +722,7 @@ class Abc
 
 		// doubles
 		n = readU32();
-		doubles = new Double[n > 0 ? n : 1];
+		doubles = new double[n > 0 ? n : 1];
 		doubles[0] = Double.NaN;
 		for(i = 1; i < n; i++)
 		{
@@ -923,13 +938,14 @@ class Abc
 					}
 					else
 					{
-						if(defaults[kind] == null)
+						final Object value = getDefaultValue(kind, index);
+						if(value == null)
 						{
 							processor.hasError("ERROR kind=" + kind + " method_id " + i + "\n");
 						}
 						else
 						{
-							m.optionalValues[k] = new Multiname(null, defaults[kind][index].toString());
+							m.optionalValues[k] = new Multiname(null, value.toString());
 						}
 					}
 				}
@@ -1041,7 +1057,7 @@ class Abc
 						int index = readU32();
 						if(index > 0)
 						{
-							slot.value = defaults[data.readByte()][index];
+							slot.value = getDefaultValue(data.readByte(), index);
 						}
 					}
 					else // (kind == TRAIT_Class)
@@ -108,6 +108,12 @@ class AbcDumper extends AbstractDumpProcessor
 		return true;
 	}
 
+	@Override
+	public boolean doParseMethodBodies()
+	{
+		return dumpCode;
+	}
+
 	@Override
 	public void processParameter(@NotNull String name, @Nullable Multiname type, String parentName, @Nullable Multiname value, boolean rest)
 	{
@@ -16,30 +16,38 @@
 
 package com.intellij.lang.javascript.flex.importer;
 
-import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
-import java.util.zip.InflaterInputStream;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import org.jetbrains.annotations.NotNull;
 
 /**
+ * View over {@link java.nio.ByteBuffer}: wrapped content array, memory mapped file or slice of another buffer, bytes are never copied
+ * except when inflating compressed swf.
+ *
  * @author Maxim.Mossienko
  *         Date: Oct 20, 2008
  *         Time: 7:02:53 PM
  */
 class ByteBuffer
 {
-	private byte[] bytes;
-	private int position;
+	private static final int MAX_INITIAL_INFLATE_RATIO = 16;
+
+	private java.nio.ByteBuffer buffer;
 	private boolean littleEndian;
 
 	void read(@NotNull InputStream inputStream) throws IOException
 	{
 		try
 		{
-			bytes = readStream(inputStream);
+			readStream(inputStream);
 		}
 		finally
 		{
@@ -50,26 +58,102 @@ class ByteBuffer
 		}
 	}
 
-	void setLittleEndian()
+	void map(@NotNull File file) throws IOException
 	{
-		littleEndian = true;
+		final FileInputStream inputStream = new FileInputStream(file);
+		try
+		{
+			final FileChannel channel = inputStream.getChannel();
+			setBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		finally
+		{
+			inputStream.close();
+		}
 	}
 
-	int readInt()
+	void setBytes(@NotNull byte[] bytes)
+	{
+		setBuffer(java.nio.ByteBuffer.wrap(bytes));
+	}
+
+	private void setBuffer(java.nio.ByteBuffer buffer)
 	{
-		int result;
-		if(littleEndian)
+		this.buffer = buffer;
+		buffer.order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * Replaces contents with inflated bytes from current position. Inflates straight into array of expected size
+	 * (taken from swf header, capped by compressed input size), grows it only if header lies.
+	 */
+	void inflate(int expectedSize) throws IOException
+	{
+		final Inflater inflater = new Inflater();
+		try
+		{
+			byte[] input = null;
+			if(buffer.hasArray())
+			{
+				inflater.setInput(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			}
+			else
+			{
+				input = new byte[8192];
+			}
+
+			// header size is not trusted beyond what the compressed input can reasonably produce, the array grows if needed
+			final long sizeLimit = Math.max(8192L, (long) buffer.remaining() * MAX_INITIAL_INFLATE_RATIO);
+			byte[] result = new byte[expectedSize > 0 ? (int) Math.min(expectedSize, sizeLimit) : 8192];
+			int total = 0;
+			while(!inflater.finished())
+			{
+				if(input != null && inflater.needsInput() && buffer.hasRemaining())
+				{
+					final int length = Math.min(input.length, buffer.remaining());
+					buffer.get(input, 0, length);
+					inflater.setInput(input, 0, length);
+				}
+
+				if(total == result.length)
+				{
+					byte[] newresult = new byte[result.length * 2];
+					System.arraycopy(result, 0, newresult, 0, total);
+					result = newresult;
+				}
+
+				int read = inflater.inflate(result, total, result.length - total);
+				if(read == 0 && (inflater.needsDictionary() || inflater.needsInput() && (input == null || !buffer.hasRemaining())))
+				{
+					break;
+				}
+				total += read;
+			}
+
+			setBuffer(java.nio.ByteBuffer.wrap(result, 0, total));
+		}
+		catch(DataFormatException e)
+		{
+			throw new IOException(e.getMessage());
+		}
+		finally
 		{
-			result = (((bytes[position + 3] & 0xFF) << 8 | (bytes[position + 2] & 0xFF)) << 16) + ((bytes[position + 1] & 0xFF) << 8) | (bytes[position] &
-					0xFF);
+			inflater.end();
 		}
-		else
+	}
+
+	void setLittleEndian()
+	{
+		littleEndian = true;
+		if(buffer != null)
 		{
-			result = (((bytes[position] & 0xFF) << 8 | (bytes[position + 1] & 0xFF)) << 16) + ((bytes[position + 2] & 0xFF) << 8) | (bytes[position + 3] &
-					0xFF);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
 		}
-		position += 4;
-		return result;
+	}
+
+	int readInt()
+	{
+		return buffer.getInt();
 	}
 
 	public int readUnsignedInt()
@@ -79,24 +163,19 @@ class ByteBuffer
 
 	public void setPosition(final int i)
 	{
-		position = i;
+		if(i < 0 || i > buffer.limit())
+		{
+			throw new IndexOutOfBoundsException("position " + i + " out of " + buffer.limit());
+		}
+		buffer.position(i);
 	}
 
 	public int bytesSize()
 	{
-		return bytes.length;
+		return buffer.limit();
 	}
 
-	public void uncompress() throws IOException
-	{
-		final InflaterInputStream zipInputStream = new InflaterInputStream(new ByteArrayInputStream(bytes));
-
-		bytes = readStream(zipInputStream);
-
-		zipInputStream.close();
-	}
-
-	private static byte[] readStream(final InputStream zipInputStream) throws IOException
+	private void readStream(final InputStream zipInputStream) throws IOException
 	{
 		final byte[] buf = new byte[8192];
 		byte[] result = new byte[8192];
@@ -120,58 +199,55 @@ class ByteBuffer
 			total += read;
 		}
 
-		final byte[] realResult = new byte[total];
-		System.arraycopy(result, 0, realResult, 0, total);
-		return realResult;
+		// no trimming copy, the view is limited to the bytes read
+		setBuffer(java.nio.ByteBuffer.wrap(result, 0, total));
 	}
 
 	public int readUnsignedByte()
 	{
-		return bytes[position++] & 0xFF;
+		return buffer.get() & 0xFF;
 	}
 
 	public int readByte()
 	{
-		return bytes[position++];
+		return buffer.get();
 	}
 
 	public int readUnsignedShort()
 	{
-		int result;
-		if(littleEndian)
-		{
-			result = (bytes[position + 1] & 0xFF) << 8 | (bytes[position] & 0xFF);
-		}
-		else
-		{
-			result = (bytes[position] & 0xFF) << 8 | (bytes[position + 1] & 0xFF);
-		}
-		position += 2;
-		return result;
+		return buffer.getShort() & 0xFFFF;
 	}
 
+	/**
+	 * data2 becomes a view of next length bytes, no copying
+	 */
 	public void readBytes(ByteBuffer data2, int length)
 	{
-		data2.bytes = new byte[length];
-		System.arraycopy(bytes, position, data2.bytes, 0, length);
-		position += length;
+		checkRemaining(length);
+		final java.nio.ByteBuffer duplicate = buffer.duplicate();
+		duplicate.limit(buffer.position() + length);
+		data2.setBuffer(duplicate.slice());
+		incPosition(length);
 	}
 
 	public boolean eof()
 	{
-		return position >= bytes.length;
+		return !buffer.hasRemaining();
 	}
 
 	public String readUTFBytes(int i)
 	{
+		checkRemaining(i);
 		try
 		{
-			final byte[] buf = new byte[i];
-			while(i > 0)
+			if(buffer.hasArray())
 			{
-				buf[buf.length - i] = (byte) readByte();
-				--i;
+				final String result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), i, "utf-8");
+				incPosition(i);
+				return result;
 			}
+			final byte[] buf = new byte[i];
+			buffer.get(buf);
 			return new String(buf, "utf-8");
 		}
 		catch(UnsupportedEncodingException e)
@@ -214,16 +290,30 @@ class ByteBuffer
 
 	public byte getByte(int i)
 	{
-		return bytes[i];
+		return buffer.get(i);
 	}
 
 	public int getPosition()
 	{
-		return position;
+		return buffer.position();
 	}
 
 	public void incPosition(final int length)
 	{
-		position += length;
+		if(length < 0)
+		{
+			throw new IndexOutOfBoundsException("negative length " + length);
+		}
+		// skipping past the end leaves buffer at eof, like reading truncated data did before
+		buffer.position((int) Math.min((long) buffer.position() + length, buffer.limit()));
+	}
+
+	// corrupt lengths fail the same way reads past the end of array did, nio would throw IllegalArgumentException
+	private void checkRemaining(int length)
+	{
+		if(length < 0 || length > buffer.remaining())
+		{
+			throw new IndexOutOfBoundsException("length " + length + " out of " + buffer.remaining() + " remaining");
+		}
 	}
 }
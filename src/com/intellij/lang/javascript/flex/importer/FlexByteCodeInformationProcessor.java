@@ -49,6 +49,11 @@ interface FlexByteCodeInformationProcessor
 
 	boolean doDumpMetaData(final @NotNull MetaData md);
 
+	/**
+	 * false for processors that need only declarations (signatures, traits and metadata), method bodies are not read then
+	 */
+	boolean doParseMethodBodies();
+
 	String REST_PARAMETER_TYPE = "...";
 
 	void processParameter(final @NotNull String name, @Nullable Multiname type, String parentName, @Nullable Multiname value, boolean rest);
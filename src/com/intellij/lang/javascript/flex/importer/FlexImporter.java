@@ -16,11 +16,12 @@
 
 package com.intellij.lang.javascript.flex.importer;
 
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.util.Collection;
 
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -45,7 +46,7 @@ public class FlexImporter
 			{
 				try
 				{
-					String result = dumpContentsFromStream(new BufferedInputStream(new FileInputStream(file)), true);
+					String result = dumpContentsFromFile(new File(file), true);
 
 					saveStringAsFile(result, file + ".il");
 				}
@@ -78,6 +79,18 @@ public class FlexImporter
 		return abcDumper.getResult();
 	}
 
+	/**
+	 * Same as {@link #dumpContentsFromStream} but works on memory mapped file
+	 */
+	public static String dumpContentsFromFile(final File file, boolean _dumpCode) throws IOException
+	{
+		final AbstractDumpProcessor abcDumper = new AbcDumper(_dumpCode);
+		ByteBuffer data = new ByteBuffer();
+		data.map(file);
+		processFlexByteCode(data, abcDumper);
+		return abcDumper.getResult();
+	}
+
 	@NonNls
 	public static String buildInterfaceFromStream(final InputStream in)
 	{
@@ -93,22 +106,42 @@ public class FlexImporter
 		{
 			return "/* " + ex.getLocalizedMessage() + " */";
 		}
-		catch(ArrayIndexOutOfBoundsException ex)
+		catch(IndexOutOfBoundsException ex)
+		{
+			return "/* Invalid format */";
+		}
+		catch(BufferUnderflowException ex)
 		{
 			return "/* Invalid format */";
 		}
 	}
 
 	@NonNls
-	public static void buildStubsInterfaceFromStream(final InputStream in, final StubElement parent) throws Exception
+	public static void buildStubsInterfaceFromStream(final InputStream in, final StubElement parent) throws IOException
 	{
 		processFlexByteCode(in, new AS3InterfaceStubDumper(parent));
 	}
 
+	/**
+	 * Collects package names of top level declarations right from file content, the content array is used as is
+	 */
+	public static void collectPackageNamesFromContent(@NotNull byte[] content, @NotNull Collection<String> packageNames) throws IOException
+	{
+		ByteBuffer data = new ByteBuffer();
+		data.setBytes(content);
+		processFlexByteCode(data, new AS3PackageNameCollector(packageNames));
+	}
+
 	private static void processFlexByteCode(@NotNull final InputStream in, @NotNull FlexByteCodeInformationProcessor processor) throws IOException
 	{
 		ByteBuffer data = new ByteBuffer();
 		data.read(in);
+		processFlexByteCode(data, processor);
+		in.close();
+	}
+
+	private static void processFlexByteCode(@NotNull ByteBuffer data, @NotNull FlexByteCodeInformationProcessor processor) throws IOException
+	{
 		data.setLittleEndian();
 		int version = data.readUnsignedInt();
 
@@ -126,15 +159,13 @@ public class FlexImporter
 			case 67 | 87 << 8 | 83 << 16 | 7 << 24: // SWC7
 			case 67 | 87 << 8 | 83 << 16 | 6 << 24: // SWC6
 				final int delta = 8;
+				// header keeps uncompressed file length, so inflate once into exact size array
+				final int usize = data.readUnsignedInt() - delta;
+				final int csize = data.bytesSize() - delta;
 				data.setPosition(delta);
-				ByteBuffer udata = new ByteBuffer();
-				udata.setLittleEndian();
-				data.readBytes(udata, data.bytesSize() - delta);
-				int csize = udata.bytesSize();
-				udata.uncompress();
-				processor.dumpStat("decompressed swf " + csize + " -> " + udata.bytesSize() + "\n");
-				udata.setPosition(0);
-				new Swf(udata, processor);
+				data.inflate(usize);
+				processor.dumpStat("decompressed swf " + csize + " -> " + data.bytesSize() + "\n");
+				new Swf(data, processor);
 				break;
 			case 70 | 87 << 8 | 83 << 16 | 9 << 24: // SWC9
 			case 70 | 87 << 8 | 83 << 16 | 8 << 24: // SWC8
@@ -149,7 +180,6 @@ public class FlexImporter
 				processor.hasError("unknown format " + version + "\n");
 				break;
 		}
-		in.close();
 	}
 
 }
@@ -114,7 +114,7 @@ class MethodInfo extends MemberInfo
 					processor.append(u + "\t// 0x" + Integer.toString(u, 16));
 					break;
 				case OP_pushdouble:
-					processor.append(abc.doubles[readU32()].toString());
+					processor.append(String.valueOf(abc.doubles[readU32()]));
 					break;
 				case OP_getsuper:
 				case OP_setsuper:
@@ -25,7 +25,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -608,7 +607,6 @@ public class JavaScriptLineMarkerProvider implements LineMarkerProvider
 			.NamespaceProcessor
 	{
 		private final Set<JSFunction> myFunctions;
-		private LinkedList<String> myDescendants = new LinkedList<String>();
 		private final Set<String> myProcessed = new THashSet<String>();
 		protected JSFunction function;
 		private int myDescendantNameId;
@@ -630,7 +628,6 @@ public class JavaScriptLineMarkerProvider implements LineMarkerProvider
 			}
 			myProcessed.add(qName);
 
-			myDescendants.add(qName);
 			boolean result = false;
 			Iterator<JSFunction> functionIterator = myFunctions.iterator();
 
@@ -684,15 +681,8 @@ public class JavaScriptLineMarkerProvider implements LineMarkerProvider
 
 		public void processDescendantsOf(String qName, Project project)
 		{
-			ProgressManager progressManager = ProgressManager.getInstance();
-			progressManager.checkCanceled();
-			boolean b = JSTypeEvaluateManager.getInstance(project).iterateSubclasses(qName, this);
-
-			while(b && myDescendants.size() > 0)
-			{
-				progressManager.checkCanceled();
-				b = JSTypeEvaluateManager.getInstance(project).iterateSubclasses(myDescendants.removeFirst(), this);
-			}
+			ProgressManager.getInstance().checkCanceled();
+			JSTypeEvaluateManager.getInstance(project).iterateAllSubclasses(qName, this);
 		}
 	}
 }
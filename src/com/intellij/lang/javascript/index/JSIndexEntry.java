@@ -55,6 +55,7 @@ import com.intellij.psi.xml.XmlAttributeValue;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.reference.SoftReference;
+import com.intellij.util.ArrayUtil;
 
 /**
  * @by yole, maxim.mossienko
@@ -171,12 +172,14 @@ public class JSIndexEntry
 
 		IndexEntryContent(Project project, JSIndexEntry entry)
 		{
-			myNamespace = new JSRootNamespace(JavaScriptIndex.getInstance(project).getDefaultPackage(), entry);
+			myNamespace = new JSRootNamespace(JavaScriptIndex.getInstance(project).getRootPackage(), entry);
 		}
 	}
 
 	private CachedValue<IndexEntryContent> myIndexValue;
-	private IndexEntryContent myContent;
+	// replaced as a whole on rebuild (under entry lock), so readers always see consistent content
+	private volatile IndexEntryContent myContent;
+	private int[] myPublishedNameIds; // name ids this entry is registered under in JavaScriptIndex, null if not registered, guarded by entry lock
 
 	public JSIndexEntry(final DeserializationContext context, @Nullable VirtualFile constructionData) throws IOException
 	{
@@ -296,6 +299,7 @@ public class JSIndexEntry
 					{ // loaded from disk
 						myContent = content;
 						myContent.timestamp = psiFile != null ? psiFile.getModificationStamp() : -1;
+						publishNameIds();
 						return new Result<IndexEntryContent>(myContent, tracker);
 					}
 				}
@@ -304,36 +308,41 @@ public class JSIndexEntry
 				if(psiFile == null)
 				{ // virtual file become invalid?
 					myContent = new IndexEntryContent(project, JSIndexEntry.this);
+					if(!myContentBelongsOnlyToMyFile)
+					{
+						myContent.myNamespace.validate();
+					}
+					publishNameIds();
 					return new Result<IndexEntryContent>(myContent);
 				}
 
-				synchronized(myIndex)
+				synchronized(JSIndexEntry.this)
 				{
-					if(myContent == null)
-					{
-						myContent = new IndexEntryContent(project, JSIndexEntry.this);
-						updateFromTree(psiFile);
-					}
-					else if(myContent.timestamp != psiFile.getModificationStamp())
+					IndexEntryContent currentContent = myContent;
+					if(currentContent == null || currentContent.timestamp != psiFile.getModificationStamp())
 					{
-						if(!myContentBelongsOnlyToMyFile)
+						if(currentContent != null && !myContentBelongsOnlyToMyFile)
 						{
 							invalidate();
 						}
-						myContent.myNamespace.clear();
-						myContent.mySymbolNameComponents.clear();
-						myContent.mySymbols.clear();
-
-						updateFromTree(psiFile);
+						currentContent = new IndexEntryContent(project, JSIndexEntry.this);
+						updateFromTree(psiFile, currentContent);
+						myContent = currentContent;
+						if(!myContentBelongsOnlyToMyFile)
+						{
+							// added to the package once published, so package readers never reach content being built
+							currentContent.myNamespace.validate();
+						}
 					}
-				}
+					publishNameIds();
 
-				return new Result<IndexEntryContent>(myContent, tracker);
+					return new Result<IndexEntryContent>(currentContent, tracker);
+				}
 			}
 
-			private void updateFromTree(final PsiFile psiFile)
+			private void updateFromTree(final PsiFile psiFile, final IndexEntryContent content)
 			{
-				JSSymbolUtil.visitSymbols(psiFile, myContent.myNamespace, new JSSymbolUtil.JavaScriptSymbolProcessorEx()
+				JSSymbolUtil.visitSymbols(psiFile, content.myNamespace, new JSSymbolUtil.JavaScriptSymbolProcessorEx()
 				{
 					private JSSymbolUtil.JavaScriptSymbolProcessingHost myProcessingHost;
 
@@ -485,7 +494,7 @@ public class JSIndexEntry
 							toCheckUniqueness = expression instanceof JSThisExpression;
 						}
 
-						doAddNamedItemProxy(nameId, myElement, toCheckUniqueness, namespace, myContent);
+						doAddNamedItemProxy(nameId, myElement, toCheckUniqueness, namespace, content);
 					}
 
 					@Override
@@ -560,11 +569,7 @@ public class JSIndexEntry
 						myProcessingHost = processingHost;
 					}
 				});
-				myContent.timestamp = psiFile.getModificationStamp();
-				if(!myContentBelongsOnlyToMyFile)
-				{
-					myContent.myNamespace.validate();
-				}
+				content.timestamp = psiFile.getModificationStamp();
 			}
 		}, false);
 
@@ -574,6 +579,31 @@ public class JSIndexEntry
 		}
 	}
 
+	private synchronized void publishNameIds()
+	{
+		final IndexEntryContent content = myContent;
+		final int[] nameIds = content != null ? content.mySymbols.keys() : ArrayUtil.EMPTY_INT_ARRAY;
+		if(myIndex.updateEntryNameIds(this, myPublishedNameIds, nameIds))
+		{
+			myPublishedNameIds = nameIds;
+		}
+	}
+
+	/**
+	 * Brings content up to date and makes sure its name ids are registered in {@link JavaScriptIndex}
+	 */
+	void syncNameIds()
+	{
+		myIndexValue.getValue();
+		synchronized(this)
+		{
+			if(myPublishedNameIds == null)
+			{
+				publishNameIds();
+			}
+		}
+	}
+
 	private static void saveModifiersFromAttrList(final MyJSNamedItem proxy, final JSAttributeListOwner function)
 	{
 		final JSAttributeList attributeList = function.getAttributeList();
@@ -657,10 +687,7 @@ public class JSIndexEntry
 
 	public void processSymbols(JavaScriptSymbolProcessor processor)
 	{
-		synchronized(myIndex)
-		{
-			processSymbolsNoLock(processor);
-		}
+		processSymbolsNoLock(processor);
 	}
 
 	void processSymbolsNoLock(JavaScriptSymbolProcessor processor)
@@ -903,10 +930,7 @@ public class JSIndexEntry
 
 	JSNamespace getNamespace(final JSNamedElement myJSNamedItem)
 	{
-		synchronized(myIndex)
-		{
-			return myIndexValue.getValue().mySymbolNameComponents.get(myJSNamedItem);
-		}
+		return myIndexValue.getValue().mySymbolNameComponents.get(myJSNamedItem);
 	}
 
 	void invalidate()
@@ -922,19 +946,20 @@ public class JSIndexEntry
 
 	void invalidate(@NotNull Project project)
 	{
-		synchronized(JavaScriptIndex.getInstance(project))
+		synchronized(this)
 		{
-			if(myContent == null)
+			final IndexEntryContent content = myContent;
+			if(content == null)
 			{
 				return; // no one ever cared about it
 			}
 
 			final JSTypeEvaluateManager typeEvaluateManager = JSTypeEvaluateManager.getInstance(project);
-			for(Map.Entry<JSNamedElement, JSNamespace> entry : myContent.mySymbolNameComponents.entrySet())
+			for(Map.Entry<JSNamedElement, JSNamespace> entry : content.mySymbolNameComponents.entrySet())
 			{
 				typeEvaluateManager.removeElementInfo(entry.getKey());
 			}
-			myContent.myNamespace.invalidate(typeEvaluateManager);
+			content.myNamespace.invalidate(typeEvaluateManager);
 		}
 	}
 
@@ -945,10 +970,7 @@ public class JSIndexEntry
 
 	public JSNamespace getTopLevelNs()
 	{
-		synchronized(myIndex)
-		{
-			return getTopLevelNsNoLock();
-		}
+		return getTopLevelNsNoLock();
 	}
 
 	public boolean processSymbolsInNs(final @NotNull JavaScriptSymbolProcessor myProcessor, final @NotNull JSNamespace jsNamespace)
@@ -963,56 +985,53 @@ public class JSIndexEntry
 			return true;
 		}
 
-		synchronized(myIndex)
-		{
-			final IndexEntryContent index = myIndexValue.getValue();
-			final int requiredNameId = myProcessor.getRequiredNameId();
+		final IndexEntryContent index = myIndexValue.getValue();
+		final int requiredNameId = myProcessor.getRequiredNameId();
 
-			if(requiredNameId == -1)
+		if(requiredNameId == -1)
+		{
+			for(Map.Entry<JSNamedElement, JSNamespace> e : index.mySymbolNameComponents.entrySet())
 			{
-				for(Map.Entry<JSNamedElement, JSNamespace> e : index.mySymbolNameComponents.entrySet())
+				if(e.getValue() == jsNamespace)
 				{
-					if(e.getValue() == jsNamespace)
+					if(!dispatchProcessorCall(index, (JSNamedElementProxy) e.getKey(), myProcessor))
 					{
-						if(!dispatchProcessorCall(index, (JSNamedElementProxy) e.getKey(), myProcessor))
-						{
-							return false;
-						}
+						return false;
 					}
 				}
 			}
-			else
-			{
-				final Object o = index.mySymbols.get(requiredNameId);
+		}
+		else
+		{
+			final Object o = index.mySymbols.get(requiredNameId);
 
-				if(o instanceof Object[])
+			if(o instanceof Object[])
+			{
+				for(Object o2 : (Object[]) o)
 				{
-					for(Object o2 : (Object[]) o)
+					final JSNamespace o2Ns = index.mySymbolNameComponents.get(o2);
+					if(o2Ns == jsNamespace)
 					{
-						final JSNamespace o2Ns = index.mySymbolNameComponents.get(o2);
-						if(o2Ns == jsNamespace)
+						if(!dispatchProcessorCall(index, (JSNamedElementProxy) o2, myProcessor))
 						{
-							if(!dispatchProcessorCall(index, (JSNamedElementProxy) o2, myProcessor))
-							{
-								return false;
-							}
+							return false;
 						}
 					}
 				}
-				else
+			}
+			else
+			{
+				final JSNamespace oNs = o != null ? index.mySymbolNameComponents.get(o) : null;
+				if(oNs == jsNamespace)
 				{
-					final JSNamespace oNs = o != null ? index.mySymbolNameComponents.get(o) : null;
-					if(oNs == jsNamespace)
+					if(!dispatchProcessorCall(index, (JSNamedElementProxy) o, myProcessor))
 					{
-						if(!dispatchProcessorCall(index, (JSNamedElementProxy) o, myProcessor))
-						{
-							return false;
-						}
+						return false;
 					}
 				}
 			}
-
-			return true;
 		}
+
+		return true;
 	}
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013-2014 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.lang.javascript.index;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Lock free name <-> id table behind {@link JavaScriptIndex#getIndexOf(String)} and {@link JavaScriptIndex#getStringByIndex(int)}.
+ * Ids are dense positive ints, reverse lookup goes through array chunks allocated on demand.
+ */
+final class JSNameTable
+{
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int MAX_CHUNKS = 1 << 16;
+
+	private final ConcurrentMap<String, Integer> myName2Id = new ConcurrentHashMap<String, Integer>(50);
+	private final AtomicReferenceArray<String[]> myId2Name = new AtomicReferenceArray<String[]>(MAX_CHUNKS);
+	private final AtomicInteger myNextId = new AtomicInteger(1);
+
+	int getId(@NotNull String name)
+	{
+		final Integer id = myName2Id.get(name);
+		if(id != null)
+		{
+			return id;
+		}
+
+		final int newId = myNextId.getAndIncrement();
+		// name slot is written before the id is published through myName2Id, so anyone who got the id sees the name
+		getChunk(newId >>> CHUNK_SHIFT)[newId & CHUNK_MASK] = name;
+
+		final Integer existingId = myName2Id.putIfAbsent(name, newId);
+		return existingId != null ? existingId : newId; // lost the race: newId stays unused
+	}
+
+	@NotNull
+	String getName(int id)
+	{
+		final int chunkIndex = id >>> CHUNK_SHIFT;
+		final String[] chunk = id > 0 && chunkIndex < MAX_CHUNKS ? myId2Name.get(chunkIndex) : null;
+		final String name = chunk != null ? chunk[id & CHUNK_MASK] : null;
+		if(name == null)
+		{
+			throw new NoSuchElementException("" + id);
+		}
+		return name;
+	}
+
+	private String[] getChunk(int chunkIndex)
+	{
+		String[] chunk = myId2Name.get(chunkIndex);
+		if(chunk == null)
+		{
+			myId2Name.compareAndSet(chunkIndex, null, new String[CHUNK_SIZE]);
+			chunk = myId2Name.get(chunkIndex);
+		}
+		return chunk;
+	}
+}
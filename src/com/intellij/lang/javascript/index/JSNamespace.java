@@ -30,9 +30,14 @@ public class JSNamespace
 	private TIntObjectHashMap<JSNamespace> myChildNamespaces;
 
 	public JSNamespace(JSPackage _package)
+	{
+		this(_package, true);
+	}
+
+	protected JSNamespace(JSPackage _package, boolean addInstance)
 	{
 		myPackage = _package;
-		if(_package != null)
+		if(_package != null && addInstance)
 		{
 			_package.addInstance(this);
 		}
@@ -25,6 +25,7 @@ import java.util.Collection;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import com.intellij.util.ArrayUtil;
 
 /**
  * @by Maxim.Mosienko
@@ -34,7 +35,7 @@ public class JSPackage
 	private JSPackage myParent;
 	private int myNameId;
 	private TIntObjectHashMap<JSPackage> myChildPackages;
-	private THashSet<JSNamespace> myInstances;
+	private volatile THashSet<JSNamespace> myInstances; // copy on write
 	private boolean myRootPackage;
 
 	public JSPackage()
@@ -191,11 +192,12 @@ public class JSPackage
 		}
 	}
 
-	public synchronized boolean processDeclarations(final JavaScriptSymbolProcessor myProcessor)
+	public boolean processDeclarations(final JavaScriptSymbolProcessor myProcessor)
 	{
-		if(myInstances != null)
+		final THashSet<JSNamespace> instances = myInstances;
+		if(instances != null)
 		{
-			for(JSNamespace ns : myInstances)
+			for(JSNamespace ns : instances)
 			{
 				if(!ns.processDeclarations(myProcessor))
 				{
@@ -207,7 +209,7 @@ public class JSPackage
 		if(myProcessor instanceof PackageElementProcessor)
 		{
 			final PackageElementProcessor processor = (PackageElementProcessor) myProcessor;
-			if(!processor.processPackages() || myChildPackages == null)
+			if(!processor.processPackages())
 			{
 				return true;
 			}
@@ -215,7 +217,7 @@ public class JSPackage
 			final int requiredNameId = myProcessor.getRequiredNameId();
 			if(requiredNameId != -1)
 			{
-				final JSPackage jsPackage = myChildPackages.get(requiredNameId);
+				final JSPackage jsPackage = findPackageWithNameId(requiredNameId);
 				if(jsPackage != null)
 				{
 					return processor.processPackage(jsPackage);
@@ -223,12 +225,9 @@ public class JSPackage
 			}
 			else
 			{
-				final TIntObjectIterator<JSPackage> tIntObjectIterator = myChildPackages.iterator();
-				while(tIntObjectIterator.hasNext())
+				for(Object o : getChildPackages())
 				{
-					tIntObjectIterator.advance();
-
-					if(!processor.processPackage(tIntObjectIterator.value()))
+					if(!processor.processPackage((JSPackage) o))
 					{
 						return false;
 					}
@@ -238,6 +237,11 @@ public class JSPackage
 		return true;
 	}
 
+	private synchronized Object[] getChildPackages()
+	{
+		return myChildPackages != null ? myChildPackages.getValues() : ArrayUtil.EMPTY_OBJECT_ARRAY; // stable copy
+	}
+
 	public synchronized
 	@Nullable
 	JSPackage findPackageWithNameId(final int packageIndex)
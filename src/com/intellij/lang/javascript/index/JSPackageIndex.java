@@ -17,21 +17,24 @@
 package com.intellij.lang.javascript.index;
 
 import gnu.trove.THashMap;
+import gnu.trove.THashSet;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import com.intellij.idea.LoggerFactory;
 import com.intellij.lang.javascript.JavaScriptSupportLoader;
 import com.intellij.lang.javascript.flex.JSResolveHelper;
-import com.intellij.lang.javascript.psi.JSFile;
+import com.intellij.lang.javascript.flex.SwfFileType;
+import com.intellij.lang.javascript.flex.importer.FlexImporter;
 import com.intellij.lang.javascript.psi.stubs.JSClassStub;
 import com.intellij.lang.javascript.psi.stubs.JSFunctionStub;
 import com.intellij.lang.javascript.psi.stubs.JSNamespaceDeclarationStub;
@@ -40,20 +43,16 @@ import com.intellij.lang.javascript.psi.stubs.JSParameterStub;
 import com.intellij.lang.javascript.psi.stubs.JSQualifiedStub;
 import com.intellij.lang.javascript.psi.stubs.JSVarStatementStub;
 import com.intellij.lang.javascript.psi.stubs.JSVariableStub;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.extensions.Extensions;
 import com.intellij.openapi.fileTypes.FileType;
-import com.intellij.openapi.fileTypes.FileTypeManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.impl.source.PsiFileImpl;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.stubs.BinaryFileStubBuilder;
-import com.intellij.psi.stubs.BinaryFileStubBuilders;
 import com.intellij.psi.stubs.PsiFileStub;
 import com.intellij.psi.stubs.Stub;
 import com.intellij.psi.stubs.StubElement;
-import com.intellij.psi.stubs.StubTree;
+import com.intellij.psi.stubs.StubTreeBuilder;
 import com.intellij.util.Processor;
 import com.intellij.util.SmartList;
 import com.intellij.util.indexing.*;
@@ -72,7 +71,9 @@ import com.intellij.util.text.StringTokenizer;
  */
 public class JSPackageIndex extends CustomImplementationFileBasedIndexExtension<String, List<JSPackageIndexInfo>, FileContent>
 {
-	private static final int myVersion = 6;
+	private static final Logger LOG = Logger.getInstance(JSPackageIndex.class);
+
+	private static final int myVersion = 9;
 
 	public static final ID<String, List<JSPackageIndexInfo>> INDEX_ID = new ID<String, List<JSPackageIndexInfo>>("js.package.index")
 	{
@@ -87,50 +88,45 @@ public class JSPackageIndex extends CustomImplementationFileBasedIndexExtension<
 		{
 			final THashMap<String, List<JSPackageIndexInfo>> map = new THashMap<String, List<JSPackageIndexInfo>>();
 
-			StubTree tree;
-
-			if(inputData.getFileType().isBinary())
+			if(inputData.getFileType() == SwfFileType.INSTANCE)
 			{
-				BinaryFileStubBuilder binaryFileStubBuilder = BinaryFileStubBuilders.INSTANCE.forFileType(inputData.getFileType());
-				if(binaryFileStubBuilder == null)
-				{
-					return Collections.emptyMap();
-				}
-
-				Stub stubElement;
-
+				// compiled declarations have no psi to resolve to, only their packages are indexed (they resolve to package wrappers)
+				final Set<String> packageNames = new THashSet<String>();
 				try
 				{
-					stubElement = binaryFileStubBuilder.buildStubTree(inputData);
+					FlexImporter.collectPackageNamesFromContent(inputData.getContent(), packageNames);
 				}
-				catch(Exception e)
+				catch(IOException e)
 				{
-					stubElement = null;
-					LoggerFactory.getInstance().getLoggerInstance(getClass().getName()).error("Corrupted zip file", e);
+					LOG.info("Can't read swf file " + inputData.getFileName(), e);
 				}
-				if(stubElement == null)
+				catch(IndexOutOfBoundsException e)
 				{
-					return Collections.emptyMap();
+					LOG.info("Invalid format of swf file " + inputData.getFileName(), e);
 				}
-
-				tree = new StubTree((PsiFileStub) stubElement);
-			}
-			else
-			{
-				PsiFile psiFile = inputData.getPsiFile();
-				if(!(psiFile instanceof JSFile))
+				catch(BufferUnderflowException e)
 				{
-					return Collections.emptyMap();
+					LOG.info("Invalid format of swf file " + inputData.getFileName(), e);
 				}
 
-				tree = ((PsiFileImpl) psiFile).getStubTree();
-				if(tree == null)
+				for(String packageName : packageNames)
 				{
-					tree = ((PsiFileImpl) psiFile).calcStubTree();
+					indexQualifiedName(packageName, JSPackageIndexInfo.Kind.PACKAGE, map);
 				}
+				return map;
 			}
 
-			for(StubElement e : tree.getPlainList())
+			// stub tree is built once per file content and shared with the stub index
+			final Stub rootStub = StubTreeBuilder.buildStubTree(inputData);
+			if(!(rootStub instanceof PsiFileStub))
+			{
+				return Collections.emptyMap();
+			}
+
+			final List<StubElement> stubs = new ArrayList<StubElement>();
+			collectStubs((StubElement) rootStub, stubs);
+
+			for(StubElement e : stubs)
 			{
 				JSQualifiedStub element = null;
 				if(e instanceof JSQualifiedStub)
@@ -167,8 +163,16 @@ public class JSPackageIndex extends CustomImplementationFileBasedIndexExtension<
 			return map;
 		}
 
-		final StringBuilder builder = new StringBuilder();
+		private void collectStubs(StubElement<?> stub, List<StubElement> result)
+		{
+			result.add(stub);
+			for(StubElement child : stub.getChildrenStubs())
+			{
+				collectStubs(child, result);
+			}
+		}
 
+		// called concurrently for different files, must not keep any state in the indexer
 		private void indexQualifiedElement(JSQualifiedStub element, Map<String, List<JSPackageIndexInfo>> map)
 		{
 			String qName = element.getQualifiedName();
@@ -177,48 +181,53 @@ public class JSPackageIndex extends CustomImplementationFileBasedIndexExtension<
 				JSPackageIndexInfo.Kind kind = element instanceof JSClassStub || element instanceof JSNamespaceDeclarationStub ? JSPackageIndexInfo.Kind.CLASS :
 						element instanceof JSFunctionStub ? JSPackageIndexInfo.Kind.FUNCTION : element instanceof JSVariableStub ? JSPackageIndexInfo.Kind.VARIABLE :
 								JSPackageIndexInfo.Kind.PACKAGE;
-				StringTokenizer tokenizer = new StringTokenizer(qName, ".");
-				builder.setLength(0);
-				String el = null;
+				indexQualifiedName(qName, kind, map);
+			}
+		}
+
+		private void indexQualifiedName(String qName, JSPackageIndexInfo.Kind kind, Map<String, List<JSPackageIndexInfo>> map)
+		{
+			StringTokenizer tokenizer = new StringTokenizer(qName, ".");
+			final StringBuilder builder = new StringBuilder(qName.length());
+			String el = null;
 
-				while(tokenizer.hasMoreElements())
+			while(tokenizer.hasMoreElements())
+			{
+				if(el != null)
 				{
-					if(el != null)
+					if(builder.length() != 0)
 					{
-						if(builder.length() != 0)
-						{
-							builder.append('.');
-						}
-						builder.append(el);
+						builder.append('.');
 					}
+					builder.append(el);
+				}
 
-					el = tokenizer.nextElement();
-					JSPackageIndexInfo.Kind currentKind = tokenizer.hasMoreElements() ? JSPackageIndexInfo.Kind.PACKAGE : kind;
+				el = tokenizer.nextElement();
+				JSPackageIndexInfo.Kind currentKind = tokenizer.hasMoreElements() ? JSPackageIndexInfo.Kind.PACKAGE : kind;
 
-					String key = builder.length() != 0 ? builder.toString() : "";
-					List<JSPackageIndexInfo> infoList = map.get(key);
-					boolean toAdd = true;
+				String key = builder.length() != 0 ? builder.toString() : "";
+				List<JSPackageIndexInfo> infoList = map.get(key);
+				boolean toAdd = true;
 
-					if(infoList == null)
-					{
-						map.put(key, infoList = new SmartList<JSPackageIndexInfo>());
-					}
-					else
+				if(infoList == null)
+				{
+					map.put(key, infoList = new SmartList<JSPackageIndexInfo>());
+				}
+				else
+				{
+					for(JSPackageIndexInfo info : infoList)
 					{
-						for(JSPackageIndexInfo info : infoList)
+						if(info.isEquivalentTo(el, currentKind))
 						{
-							if(info.isEquivalentTo(el, currentKind))
-							{
-								toAdd = false;
-								break;
-							}
+							toAdd = false;
+							break;
 						}
 					}
+				}
 
-					if(toAdd)
-					{
-						infoList.add(new JSPackageIndexInfo(el, currentKind));
-					}
+				if(toAdd)
+				{
+					infoList.add(new JSPackageIndexInfo(el, currentKind));
 				}
 			}
 		}
@@ -231,20 +240,17 @@ public class JSPackageIndex extends CustomImplementationFileBasedIndexExtension<
 
 	private final FileBasedIndex.InputFilter myInputFilter = new FileBasedIndex.InputFilter()
 	{
-		final FileType swfFileType = FileTypeManager.getInstance().getFileTypeByExtension("swf");
-
 		@Override
 		public boolean acceptInput(final Project project, final VirtualFile file)
 		{
 			FileType type = file.getFileType();
-			return type == JavaScriptSupportLoader.JAVASCRIPT || type == swfFileType;
+			return type == JavaScriptSupportLoader.JAVASCRIPT || type == SwfFileType.INSTANCE;
 		}
 	};
 
 	private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
 	private final DataExternalizer<List<JSPackageIndexInfo>> myDataExternalizer = new DataExternalizer<List<JSPackageIndexInfo>>()
 	{
-		private final byte[] buffer = IOUtil.allocReadWriteUTFBuffer();
 		private final JSPackageIndexInfo.Kind[] kinds = JSPackageIndexInfo.Kind.values();
 
 		@Override
@@ -254,7 +260,7 @@ public class JSPackageIndex extends CustomImplementationFileBasedIndexExtension<
 			for(JSPackageIndexInfo s : value)
 			{
 				out.writeByte(s.kind.ordinal());
-				IOUtil.writeUTFFast(buffer, out, s.name);
+				IOUtil.writeUTF(out, s.name);
 			}
 		}
 
@@ -267,7 +273,7 @@ public class JSPackageIndex extends CustomImplementationFileBasedIndexExtension<
 			while(size-- > 0)
 			{
 				JSPackageIndexInfo.Kind kind = kinds[in.readByte()];
-				String s = IOUtil.readUTFFast(buffer, in);
+				String s = IOUtil.readUTF(in);
 				strings.add(new JSPackageIndexInfo(s, kind));
 			}
 			return strings;
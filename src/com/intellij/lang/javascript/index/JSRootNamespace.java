@@ -25,9 +25,12 @@ class JSRootNamespace extends JSNamespace
 {
 	final JSIndexEntry myEntry;
 
+	/**
+	 * Namespace is added to the package by {@link #validate()}, once content of the entry is published
+	 */
 	public JSRootNamespace(JSPackage _package, @NotNull JSIndexEntry entry)
 	{
-		super(_package);
+		super(_package, false);
 		myEntry = entry;
 	}
 
@@ -16,14 +16,14 @@
 
 package com.intellij.lang.javascript.index;
 
+import gnu.trove.TIntArrayList;
 import gnu.trove.TIntHashSet;
-import gnu.trove.TIntObjectHashMap;
-import gnu.trove.TObjectIntHashMap;
-import gnu.trove.TObjectIntProcedure;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -32,6 +32,7 @@ import com.intellij.lang.javascript.psi.JSReferenceExpression;
 import com.intellij.lang.javascript.psi.resolve.BaseJSSymbolProcessor;
 import com.intellij.lang.javascript.psi.resolve.JSResolveUtil;
 import com.intellij.openapi.components.ProjectComponent;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiNamedElement;
 import com.intellij.psi.ResolveResult;
@@ -41,11 +42,17 @@ import com.intellij.psi.ResolveResult;
  */
 public class JSTypeEvaluateManager implements ProjectComponent
 {
-	private TObjectIntHashMap<JSNamedElement> myTypeMap = new TObjectIntHashMap<JSNamedElement>(30);
-	private TObjectIntHashMap<JSNamespace> myNsToSuperMap = new TObjectIntHashMap<JSNamespace>(50);
-	private TIntObjectHashMap<List<JSNamespace>> myName2ElementMap = new TIntObjectHashMap<List<JSNamespace>>(30);
+	// all maps are read without locking, myName2ElementMap values are copy on write lists
+	private final ConcurrentMap<JSNamedElement, Integer> myTypeMap = new ConcurrentHashMap<JSNamedElement, Integer>(30);
+	private final ConcurrentMap<JSNamespace, Integer> myNsToSuperMap = new ConcurrentHashMap<JSNamespace, Integer>(50);
+	private final ConcurrentMap<Integer, List<JSNamespace>> myName2ElementMap = new ConcurrentHashMap<Integer, List<JSNamespace>>(30);
+	// super type name id -> namespaces directly extending it, reverse of myNsToSuperMap
+	private final ConcurrentMap<Integer, List<JSNamespace>> mySuper2SubNsMap = new ConcurrentHashMap<Integer, List<JSNamespace>>(50);
+	// type name id -> all direct and indirect subclasses, replaced as a whole when hierarchy changes
+	private volatile ConcurrentMap<Integer, JSNamespace[]> myAllSubclassesCache = new ConcurrentHashMap<Integer, JSNamespace[]>();
+	private final Object myLock = new Object(); // guards updates of myNsToSuperMap, myName2ElementMap and mySuper2SubNsMap
 	private final JavaScriptIndex myIndex;
-	private int myObjectNameIndex = -1;
+	private volatile int myObjectNameIndex = -1;
 
 	public static JSTypeEvaluateManager getInstance(Project project)
 	{
@@ -87,42 +94,46 @@ public class JSTypeEvaluateManager implements ProjectComponent
 
 	public void setElementType(JSNamedElement element, String type)
 	{
-		synchronized(myIndex)
-		{
-			myTypeMap.put(element, myIndex.getIndexOf(type));
-		}
+		myTypeMap.put(element, myIndex.getIndexOf(type));
 	}
 
 	public String getElementType(PsiNamedElement element)
 	{
-		synchronized(myIndex)
+		if(element instanceof JSNamedElement)
 		{
-			if(element instanceof JSNamedElement)
+			final Integer i = myTypeMap.get(element);
+			if(i == null)
 			{
-				int i = myTypeMap.get((JSNamedElement) element);
-				if(i == 0)
-				{
-					return null;
-				}
-				return myIndex.getStringByIndex(i);
+				return null;
 			}
-			return null;
+			return myIndex.getStringByIndex(i);
 		}
+		return null;
 	}
 
 	public void setBaseType(JSNamespace namespace, int fqtypeIndex, int fqSuperIndex)
 	{
-		synchronized(myIndex)
+		if(myObjectNameIndex == -1)
+		{
+			myObjectNameIndex = myIndex.getIndexOf(JSResolveUtil.OBJECT_CLASS_NAME);
+		}
+
+		synchronized(myLock)
 		{
-			if(myObjectNameIndex == -1)
-			{
-				myObjectNameIndex = myIndex.getIndexOf(JSResolveUtil.OBJECT_CLASS_NAME);
-			}
 			if(fqSuperIndex != myObjectNameIndex)
 			{
-				myNsToSuperMap.put(namespace, fqSuperIndex);
+				final Integer previousSuperIndex = myNsToSuperMap.put(namespace, fqSuperIndex);
+				if(previousSuperIndex == null || previousSuperIndex != fqSuperIndex)
+				{
+					if(previousSuperIndex != null)
+					{
+						removeNs(mySuper2SubNsMap, previousSuperIndex, namespace);
+					}
+					addNs(mySuper2SubNsMap, fqSuperIndex, namespace);
+					hierarchyChanged();
+				}
 			}
-			doAddNsWithType(fqtypeIndex, namespace);
+			addNs(myName2ElementMap, fqtypeIndex, namespace);
 		}
 	}
 
@@ -150,29 +161,26 @@ public class JSTypeEvaluateManager implements ProjectComponent
 		}
 		boolean result = true;
 
-		synchronized(myIndex)
+		myIndex.getDefaultPackage();
+		final int key = myIndex.getIndexOf(fqTypeName);
+
+		List<JSNamespace> namedElements = myName2ElementMap.get(key);
+		if(namedElements != null)
 		{
-			myIndex.getDefaultPackage();
-			final int key = myIndex.getIndexOf(fqTypeName);
 
-			List<JSNamespace> namedElements = myName2ElementMap.get(key);
-			if(namedElements != null)
+			for(JSNamespace namespace : namedElements)
 			{
-
-				for(JSNamespace namespace : namedElements)
-				{
-					result &= doIterateTypeImpl(namespace, processor, new TIntHashSet());
-				}
+				result &= doIterateTypeImpl(namespace, processor, new TIntHashSet());
 			}
-			else
+		}
+		else
+		{
+			final JSPackage aPackage = JSResolveUtil.findPackageByText("Object", myIndex);
+			if(aPackage != null)
 			{
-				final JSPackage aPackage = JSResolveUtil.findPackageByText("Object", myIndex);
-				if(aPackage != null)
+				for(JSNamespace superNs : aPackage.getInstances())
 				{
-					for(JSNamespace superNs : aPackage.getInstances())
-					{
-						result &= processor.process(superNs);
-					}
+					result &= processor.process(superNs);
 				}
 			}
 		}
@@ -181,7 +189,7 @@ public class JSTypeEvaluateManager implements ProjectComponent
 
 	private boolean doIterateTypeImpl(final JSNamespace namespace, final NamespaceProcessor processor, TIntHashSet visited)
 	{
-		int superNameId = myNsToSuperMap.get(namespace);
+		int superNameId = getSuperNameId(namespace);
 
 		if(superNameId == 0)
 		{
@@ -284,18 +292,15 @@ public class JSTypeEvaluateManager implements ProjectComponent
 
 	public String evaluateType(JSReferenceExpression expr)
 	{
-		synchronized(myIndex)
+		for(ResolveResult r : expr.multiResolve(false))
 		{
-			for(ResolveResult r : expr.multiResolve(false))
+			final String type = getElementType((JSNamedElement) r.getElement());
+			if(type != null)
 			{
-				final String type = getElementType((JSNamedElement) r.getElement());
-				if(type != null)
-				{
-					return type;
-				}
+				return type;
 			}
-			return null;
 		}
+		return null;
 	}
 
 	public static String getInstanceNameByType(String className)
@@ -317,29 +322,40 @@ public class JSTypeEvaluateManager implements ProjectComponent
 
 	public void clear()
 	{
-		synchronized(myIndex)
+		synchronized(myLock)
 		{
 			myTypeMap.clear();
 			myNsToSuperMap.clear();
 			myName2ElementMap.clear();
+			mySuper2SubNsMap.clear();
+			hierarchyChanged();
 			myObjectNameIndex = -1;
 		}
 	}
 
 	public void removeNSInfo(final JSNamespace el)
 	{
-		synchronized(myIndex)
+		synchronized(myLock)
 		{
-			myNsToSuperMap.remove(el);
+			final Integer superIndex = myNsToSuperMap.remove(el);
+			if(superIndex != null)
+			{
+				removeNs(mySuper2SubNsMap, superIndex, el);
+				hierarchyChanged();
+			}
 
-			remove(el);
+			removeNs(myName2ElementMap, el.getQualifiedNameId(myIndex), el);
 		}
 	}
 
-	private void remove(final JSNamespace el)
+	private void hierarchyChanged()
 	{
-		final int ourId = el.getQualifiedNameId(myIndex);
-		List<JSNamespace> list = myName2ElementMap.get(ourId);
+		myAllSubclassesCache = new ConcurrentHashMap<Integer, JSNamespace[]>();
+	}
+
+	private static void removeNs(final ConcurrentMap<Integer, List<JSNamespace>> map, final int key, final JSNamespace el)
+	{
+		List<JSNamespace> list = map.get(key);
 
 		if(list != null)
 		{
@@ -347,76 +363,134 @@ public class JSTypeEvaluateManager implements ProjectComponent
 			list.remove(el);
 			if(list.size() == 0)
 			{
-				myName2ElementMap.remove(ourId);
+				map.remove(key);
 			}
 			else
 			{
-				myName2ElementMap.put(ourId, list);
+				map.put(key, list);
 			}
 		}
 	}
 
 	public void removeElementInfo(final JSNamedElement el)
 	{
-		synchronized(myIndex)
-		{
-			myTypeMap.remove(el);
-		}
+		myTypeMap.remove(el);
 	}
 
 	public String getBaseType(final JSNamespace namespace)
 	{
-		synchronized(myIndex)
+		int i = getSuperNameId(namespace);
+		if(i == 0)
 		{
-			int i = myNsToSuperMap.get(namespace);
-			if(i == 0)
-			{
-				return JSResolveUtil.OBJECT_CLASS_NAME;
-			}
-			return myIndex.getStringByIndex(i);
+			return JSResolveUtil.OBJECT_CLASS_NAME;
 		}
+		return myIndex.getStringByIndex(i);
 	}
 
-	private void doAddNsWithType(final int key, final JSNamespace superNs)
+	private int getSuperNameId(final JSNamespace namespace)
 	{
-		List<JSNamespace> namespaces = myName2ElementMap.get(key);
+		final Integer i = myNsToSuperMap.get(namespace);
+		return i != null ? i : 0;
+	}
+
+	private static void addNs(final ConcurrentMap<Integer, List<JSNamespace>> map, final int key, final JSNamespace superNs)
+	{
+		List<JSNamespace> namespaces = map.get(key);
 
 		if(namespaces == null)
 		{
 			namespaces = new ArrayList<JSNamespace>(1);
-			myName2ElementMap.put(key, namespaces);
 			namespaces.add(superNs);
+			map.put(key, namespaces);
 		}
 		else
 		{
 			if(namespaces.indexOf(superNs) == -1)
 			{ // copy on write
 				namespaces = new ArrayList<JSNamespace>(namespaces);
-				myName2ElementMap.put(key, namespaces);
 				namespaces.add(superNs);
+				map.put(key, namespaces);
 			}
 		}
 	}
 
+	/**
+	 * Processes namespaces that directly extend given type
+	 */
 	public boolean iterateSubclasses(final String s, final NamespaceProcessor processor)
 	{
-		synchronized(myIndex)
+		myIndex.getDefaultPackage();
+		final List<JSNamespace> subclasses = mySuper2SubNsMap.get(myIndex.getIndexOf(s));
+
+		if(subclasses != null)
+		{
+			for(JSNamespace ns : subclasses)
+			{
+				if(!processor.process(ns))
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Processes all direct and indirect subclasses of given type, nearest ones first
+	 */
+	public boolean iterateAllSubclasses(final String s, final NamespaceProcessor processor)
+	{
+		myIndex.getDefaultPackage();
+
+		final ProgressManager progressManager = ProgressManager.getInstance();
+		for(JSNamespace ns : getAllSubclasses(myIndex.getIndexOf(s)))
 		{
-			myIndex.getDefaultPackage();
-			return myNsToSuperMap.forEachEntry(new TObjectIntProcedure<JSNamespace>()
+			progressManager.checkCanceled();
+			if(!processor.process(ns))
 			{
-				final int nameIndex = myIndex.getIndexOf(s);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private JSNamespace[] getAllSubclasses(final int nameId)
+	{
+		final ConcurrentMap<Integer, JSNamespace[]> cache = myAllSubclassesCache;
+		JSNamespace[] result = cache.get(nameId);
 
-				@Override
-				public boolean execute(final JSNamespace a, final int b)
+		if(result == null)
+		{
+			final List<JSNamespace> subclasses = new ArrayList<JSNamespace>();
+			final TIntArrayList toVisit = new TIntArrayList();
+			final TIntHashSet visited = new TIntHashSet();
+			toVisit.add(nameId);
+			visited.add(nameId);
+
+			final ProgressManager progressManager = ProgressManager.getInstance();
+			for(int i = 0; i < toVisit.size(); ++i)
+			{
+				progressManager.checkCanceled();
+				final List<JSNamespace> directSubclasses = mySuper2SubNsMap.get(toVisit.get(i));
+				if(directSubclasses == null)
+				{
+					continue;
+				}
+
+				for(JSNamespace ns : directSubclasses)
 				{
-					if(nameIndex == b)
+					subclasses.add(ns);
+					final int subclassNameId = ns.getQualifiedNameId(myIndex);
+					if(visited.add(subclassNameId))
 					{
-						return processor.process(a);
+						toVisit.add(subclassNameId);
 					}
-					return true;
 				}
-			});
+			}
+
+			result = subclasses.toArray(new JSNamespace[subclasses.size()]);
+			cache.put(nameId, result); // goes to discarded map if hierarchy changed meanwhile
 		}
+		return result;
 	}
 }
@@ -22,11 +22,14 @@ import gnu.trove.TIntObjectHashMap;
 import gnu.trove.TObjectIntHashMap;
 
 import java.lang.ref.SoftReference;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -50,13 +53,20 @@ import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.UserDataHolder;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.MultiplePsiFilesPerDocumentFileViewProvider;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.containers.HashSet;
@@ -67,14 +77,34 @@ import com.intellij.util.containers.HashSet;
 public final class JavaScriptIndex implements ProjectComponent
 {
 	private Project myProject;
-	private THashMap<String, JSIndexEntry> myJavaScriptFiles = new THashMap<String, JSIndexEntry>();
+	// copy on write: published map is never modified, readers iterate it without locking
+	private volatile THashMap<String, JSIndexEntry> myJavaScriptFiles = new THashMap<String, JSIndexEntry>();
+	private volatile long myEntriesModificationCount;
+	private final ModificationTracker myEntriesTracker = new ModificationTracker()
+	{
+		@Override
+		public long getModificationCount()
+		{
+			return myEntriesModificationCount;
+		}
+	};
 
 	private final JSPackage myRootPackage = new JSPackage();
 	private static Key<JSIndexEntry> ourEntryKey = Key.create("js.indexentry");
+	private static final Key<CachedValue<VisibleEntries>> ourVisibleEntriesKey = Key.create("js.visible.entries");
 
-	private TObjectIntHashMap<String> myNames2Index = new TObjectIntHashMap<String>(50);
-	private TIntObjectHashMap<String> myIndex2Names = new TIntObjectHashMap<String>(50);
-	private THashSet<JSIndexEntry> myFilesToUpdate = new THashSet<JSIndexEntry>(50);
+	private volatile JSNameTable myNameTable = new JSNameTable();
+	private final THashSet<JSIndexEntry> myFilesToUpdate = new THashSet<JSIndexEntry>(50);
+	// entries taken from myFilesToUpdate and not synced yet -> number of threads syncing them
+	private final TObjectIntHashMap<JSIndexEntry> myFilesInUpdate = new TObjectIntHashMap<JSIndexEntry>();
+	private final Object myFilesToUpdateLock = new Object(); // guards myFilesToUpdate and myFilesInUpdate, never held while syncing entries
+	private volatile int myPendingUpdatesCount; // size of myFilesToUpdate and myFilesInUpdate, lets readers skip the lock
+	private final ThreadLocal<Boolean> myInUpdate = new ThreadLocal<Boolean>();
+
+	// name id -> entries that have symbols with such name, maintained by JSIndexEntry when its content is rebuilt
+	private final TIntObjectHashMap<THashSet<JSIndexEntry>> myNameId2Entries = new TIntObjectHashMap<THashSet<JSIndexEntry>>();
+	private final ReadWriteLock myNameId2EntriesLock = new ReentrantReadWriteLock();
+	private static final JSIndexEntry[] EMPTY_ENTRY_ARRAY = new JSIndexEntry[0];
 
 	static final Logger LOG = Logger.getInstance("#com.intellij.lang.javascript.index.JavaScriptIndex");
 
@@ -148,6 +178,54 @@ public final class JavaScriptIndex implements ProjectComponent
 	@Override
 	public void projectOpened()
 	{
+		// entries of changed files are rebuilt before next lookup, so name id -> entries table is never behind
+		PsiManager.getInstance(myProject).addPsiTreeChangeListener(new PsiTreeChangeAdapter()
+		{
+			@Override
+			public void childAdded(@NotNull PsiTreeChangeEvent event)
+			{
+				fileChanged(event.getFile());
+			}
+
+			@Override
+			public void childRemoved(@NotNull PsiTreeChangeEvent event)
+			{
+				fileChanged(event.getFile());
+			}
+
+			@Override
+			public void childReplaced(@NotNull PsiTreeChangeEvent event)
+			{
+				fileChanged(event.getFile());
+			}
+
+			@Override
+			public void childMoved(@NotNull PsiTreeChangeEvent event)
+			{
+				fileChanged(event.getFile());
+			}
+
+			@Override
+			public void childrenChanged(@NotNull PsiTreeChangeEvent event)
+			{
+				fileChanged(event.getFile());
+			}
+		}, myProject);
+	}
+
+	private void fileChanged(@Nullable PsiFile file)
+	{
+		final VirtualFile virtualFile = file != null ? file.getViewProvider().getVirtualFile() : null;
+		final JSIndexEntry entry = virtualFile != null ? myJavaScriptFiles.get(virtualFile.getPath()) : null;
+		if(entry == null)
+		{
+			return;
+		}
+		synchronized(myFilesToUpdateLock)
+		{
+			myFilesToUpdate.add(entry);
+			updatePendingUpdatesCount();
+		}
 	}
 
 	private boolean isAcceptableFile(final VirtualFile fileOrDir)
@@ -199,25 +277,40 @@ public final class JavaScriptIndex implements ProjectComponent
 		return project.getComponent(JavaScriptIndex.class);
 	}
 
-	public synchronized void clear()
+	public void clear()
 	{
-		myJavaScriptFiles.clear();
+		myJavaScriptFiles = new THashMap<String, JSIndexEntry>();
+		++myEntriesModificationCount;
 		JSTypeEvaluateManager.getInstance(myProject).clear();
 		BrowserSupportManager.getInstance(myProject).clear();
 
 		myRootPackage.clear();
-		myFilesToUpdate.clear();
+		synchronized(myFilesToUpdateLock)
+		{
+			myFilesToUpdate.clear();
+			updatePendingUpdatesCount();
+		}
+
+		myNameId2EntriesLock.writeLock().lock();
+		try
+		{
+			myNameId2Entries.clear();
+		}
+		finally
+		{
+			myNameId2EntriesLock.writeLock().unlock();
+		}
+
+		myNameTable = new JSNameTable();
 
 		synchronized(cachesLock)
 		{
-			myIndex2Names.clear();
-			myNames2Index.clear();
 			myPackageResolveResult.clear();
 			myTopLevelResolveResult.clear();
 		}
 	}
 
-	public synchronized void processAllSymbols(JavaScriptSymbolProcessor processor)
+	public void processAllSymbols(JavaScriptSymbolProcessor processor)
 	{
 		assert processor.getBaseFile() != null;
 		boolean ecmaL4 = processor.getBaseFile().getLanguage() == JavaScriptSupportLoader.ECMA_SCRIPT_L4;
@@ -238,6 +331,10 @@ public final class JavaScriptIndex implements ProjectComponent
 		final Module moduleForFile = fileIndex.getModuleForFile(virtualFile);
 		boolean seenEntryForFile = moduleForFile != null;
 
+		final THashMap<String, JSIndexEntry> javaScriptFiles = myJavaScriptFiles;
+		final int requiredNameId = processor.getRequiredNameId();
+		final Collection<JSIndexEntry> entries = requiredNameId != -1 ? Arrays.asList(getEntriesWithNameId(requiredNameId)) : javaScriptFiles.values();
+
 		if(moduleForFile != null)
 		{
 			boolean facetBased = false;
@@ -251,7 +348,7 @@ public final class JavaScriptIndex implements ProjectComponent
 
 				VirtualFile flexPath = getFlexSdkLocation(moduleForFile);
 
-				for(JSIndexEntry entry : myJavaScriptFiles.values())
+				for(JSIndexEntry entry : entries)
 				{
 					final VirtualFile file = entry.getVirtualFile();
 					final Module moduleForEntryFile = fileIndex.getModuleForFile(file);
@@ -271,12 +368,11 @@ public final class JavaScriptIndex implements ProjectComponent
 			}
 			else
 			{
-				final GlobalSearchScope scope = JSResolveUtil.getSearchScope(moduleForFile, myProject);
+				final VisibleEntries visibleEntries = getVisibleEntries(moduleForFile);
 
-				for(JSIndexEntry entry : myJavaScriptFiles.values())
+				for(JSIndexEntry entry : requiredNameId != -1 ? entries : visibleEntries.asList())
 				{
-					VirtualFile file = entry.getVirtualFile();
-					if(scope.contains(file))
+					if(visibleEntries.contains(entry))
 					{
 						entry.processSymbolsNoLock(processor);
 					}
@@ -285,15 +381,22 @@ public final class JavaScriptIndex implements ProjectComponent
 		}
 		else
 		{
-			for(JSIndexEntry entry : myJavaScriptFiles.values())
+			if(requiredNameId != -1)
 			{
-				final VirtualFile file = entry.getVirtualFile();
-				final Module moduleForEntryFile = fileIndex.getModuleForFile(file);
+				// entry for the file itself is not necessarily among the ones having required name
+				final JSIndexEntry entryForFile = javaScriptFiles.get(virtualFile.getPath());
+				seenEntryForFile = entryForFile != null && entryForFile.getVirtualFile() == virtualFile;
+			}
+
+			// TODO: this is not correct when more than one SDK defined
+			final VisibleEntries visibleEntries = getVisibleEntries(null);
 
-				if(moduleForEntryFile == null)
-				{ // TODO: this is not correct when more than one SDK defined
+			for(JSIndexEntry entry : requiredNameId != -1 ? entries : visibleEntries.asList())
+			{
+				if(visibleEntries.contains(entry))
+				{
 					entry.processSymbolsNoLock(processor);
-					if(file == virtualFile)
+					if(entry.getVirtualFile() == virtualFile)
 					{
 						seenEntryForFile = true;
 					}
@@ -322,6 +425,63 @@ public final class JavaScriptIndex implements ProjectComponent
 		}
 	}
 
+	/**
+	 * Entries from module scope (or entries out of any module for null module), recomputed on roots change or index reset
+	 */
+	private VisibleEntries getVisibleEntries(@Nullable final Module module)
+	{
+		final UserDataHolder holder = module != null ? module : myProject;
+		CachedValue<VisibleEntries> value = holder.getUserData(ourVisibleEntriesKey);
+
+		if(value == null)
+		{
+			value = CachedValuesManager.getManager(myProject).createCachedValue(new CachedValueProvider<VisibleEntries>()
+			{
+				@Override
+				public Result<VisibleEntries> compute()
+				{
+					final ProjectFileIndex fileIndex = ProjectRootManager.getInstance(myProject).getFileIndex();
+					final GlobalSearchScope scope = module != null ? JSResolveUtil.getSearchScope(module, myProject) : null;
+					final List<JSIndexEntry> entries = new ArrayList<JSIndexEntry>();
+
+					for(JSIndexEntry entry : myJavaScriptFiles.values())
+					{
+						final VirtualFile file = entry.getVirtualFile();
+						if(scope != null ? scope.contains(file) : fileIndex.getModuleForFile(file) == null)
+						{
+							entries.add(entry);
+						}
+					}
+					return new Result<VisibleEntries>(new VisibleEntries(entries), ProjectRootManager.getInstance(myProject), myEntriesTracker);
+				}
+			}, false);
+			holder.putUserData(ourVisibleEntriesKey, value);
+		}
+		return value.getValue();
+	}
+
+	private static final class VisibleEntries
+	{
+		private final JSIndexEntry[] myEntries;
+		private final Set<JSIndexEntry> myEntrySet;
+
+		VisibleEntries(final List<JSIndexEntry> entries)
+		{
+			myEntries = entries.toArray(new JSIndexEntry[entries.size()]);
+			myEntrySet = new THashSet<JSIndexEntry>(entries);
+		}
+
+		boolean contains(final JSIndexEntry entry)
+		{
+			return myEntrySet.contains(entry);
+		}
+
+		List<JSIndexEntry> asList()
+		{
+			return Arrays.asList(myEntries);
+		}
+	}
+
 	private static JSIndexEntry getEntryForNonJavaScriptFile(PsiFile psiFile)
 	{
 		JSIndexEntry ourEntry = psiFile.getUserData(ourEntryKey);
@@ -346,39 +506,86 @@ public final class JavaScriptIndex implements ProjectComponent
 		return myRootPackage;
 	}
 
-	private synchronized void updateDirtyFiles()
+	/**
+	 * Root package without bringing dirty files up to date, used while building entry content
+	 */
+	JSPackage getRootPackage()
 	{
-		if(myFilesToUpdate != null)
+		return myRootPackage;
+	}
+
+	/**
+	 * Syncs entries of changed files under their own locks. The dirty set is only swapped out under the index lock, so readers
+	 * never wait for a rebuild of entries they don't use, though entries taken by other threads are synced here too.
+	 */
+	private void updateDirtyFiles()
+	{
+		if(myPendingUpdatesCount == 0 || myInUpdate.get() != null)
 		{
-			THashSet<JSIndexEntry> entries = myFilesToUpdate;
-			myFilesToUpdate = null;
+			return;
+		}
 
-			try
+		final JSIndexEntry[] takenEntries;
+		final JSIndexEntry[] entriesToSync;
+		synchronized(myFilesToUpdateLock)
+		{
+			takenEntries = myFilesToUpdate.toArray(new JSIndexEntry[myFilesToUpdate.size()]);
+			myFilesToUpdate.clear();
+			for(JSIndexEntry entry : takenEntries)
 			{
-				for(JSIndexEntry entry : entries)
+				myFilesInUpdate.adjustOrPutValue(entry, 1, 1);
+			}
+			entriesToSync = myFilesInUpdate.keys(new JSIndexEntry[myFilesInUpdate.size()]);
+			updatePendingUpdatesCount();
+		}
+
+		boolean synced = false;
+		myInUpdate.set(Boolean.TRUE);
+		try
+		{
+			for(JSIndexEntry entry : entriesToSync)
+			{
+				final VirtualFile virtualfile = entry.getVirtualFile();
+				if(!virtualfile.isValid())
 				{
-					final VirtualFile virtualfile = entry.getVirtualFile();
-					if(!virtualfile.isValid())
-					{
-						continue; // may happen when js sources accessed from jar which was invalidated
-					}
-					entry.getTopLevelNsNoLock();
+					continue; // may happen when js sources accessed from jar which was invalidated
 				}
-				entries.clear();
+				entry.syncNameIds();
 			}
-			finally
+			synced = true;
+		}
+		finally
+		{
+			myInUpdate.remove();
+			synchronized(myFilesToUpdateLock)
 			{
-				myFilesToUpdate = entries;
+				for(JSIndexEntry entry : takenEntries)
+				{
+					if(myFilesInUpdate.adjustValue(entry, -1) && myFilesInUpdate.get(entry) == 0)
+					{
+						myFilesInUpdate.remove(entry);
+					}
+					if(!synced)
+					{
+						myFilesToUpdate.add(entry);
+					}
+				}
+				updatePendingUpdatesCount();
 			}
 		}
 	}
 
-	public synchronized boolean inUpdateState()
+	private void updatePendingUpdatesCount()
 	{
-		return myFilesToUpdate == null;
+		myPendingUpdatesCount = myFilesToUpdate.size() + myFilesInUpdate.size();
 	}
 
-	public synchronized PsiElement findSymbolByFileAndNameAndOffset(final String fileName, final String name, final int offset)
+	public boolean inUpdateState()
+	{
+		return myInUpdate.get() != null; // only updating thread could observe index in update state
+	}
+
+	public PsiElement findSymbolByFileAndNameAndOffset(final String fileName, final String name, final int offset)
 	{
 		JSIndexEntry indexEntry = myJavaScriptFiles.get(fileName);
 		if(indexEntry == null)
@@ -388,7 +595,7 @@ public final class JavaScriptIndex implements ProjectComponent
 		return findSymbolWithNameAndOffsetInEntryNoLock(getIndexOf(name), offset, indexEntry);
 	}
 
-	public synchronized PsiElement findSymbolWithNameAndOffsetInEntry(final int nameId, final int offset, final JSIndexEntry indexEntry)
+	public PsiElement findSymbolWithNameAndOffsetInEntry(final int nameId, final int offset, final JSIndexEntry indexEntry)
 	{
 		return findSymbolWithNameAndOffsetInEntryNoLock(nameId, offset, indexEntry);
 	}
@@ -430,7 +637,7 @@ public final class JavaScriptIndex implements ProjectComponent
 		return result[0];
 	}
 
-	public synchronized JSIndexEntry getEntryForFile(final PsiFile file)
+	public JSIndexEntry getEntryForFile(final PsiFile file)
 	{
 		final VirtualFile vfile = file.getViewProvider().getVirtualFile();
 		if(isAcceptableFile(vfile))
@@ -462,7 +669,7 @@ public final class JavaScriptIndex implements ProjectComponent
 		void process(JSIndexEntry entry, T t, T2 t2);
 	}
 
-	private synchronized <T, T2> void processEntries(MyEntryProcessor<T, T2> processor, boolean includeNonProjectItems, T t, T2 t2)
+	private <T, T2> void processEntries(MyEntryProcessor<T, T2> processor, boolean includeNonProjectItems, T t, T2 t2)
 	{
 		final ProjectFileIndex fileIndex = ProjectRootManager.getInstance(myProject).getFileIndex();
 		final boolean unitTestMode = ApplicationManager.getApplication().isCommandLine();
@@ -483,6 +690,89 @@ public final class JavaScriptIndex implements ProjectComponent
 		}
 	}
 
+	private <T> void processEntriesWithName(MyEntryProcessor<T, String> processor, boolean includeNonProjectItems, T t, String name)
+	{
+		final ProjectFileIndex fileIndex = ProjectRootManager.getInstance(myProject).getFileIndex();
+		if(ApplicationManager.getApplication().isCommandLine())
+		{
+			includeNonProjectItems = true;
+		}
+
+		for(JSIndexEntry entry : getEntriesWithNameId(getIndexOf(name)))
+		{
+			if(includeNonProjectItems || fileIndex.getModuleForFile(entry.getVirtualFile()) != null)
+			{
+				processor.process(entry, t, name);
+			}
+		}
+	}
+
+	/**
+	 * @return entries that contain symbols with given name id, entries of changed files are brought up to date first
+	 */
+	@NotNull
+	JSIndexEntry[] getEntriesWithNameId(final int nameId)
+	{
+		updateDirtyFiles();
+
+		myNameId2EntriesLock.readLock().lock();
+		try
+		{
+			final THashSet<JSIndexEntry> entries = myNameId2Entries.get(nameId);
+			return entries != null ? entries.toArray(new JSIndexEntry[entries.size()]) : EMPTY_ENTRY_ARRAY;
+		}
+		finally
+		{
+			myNameId2EntriesLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Moves entry from old name ids to the new ones in name id -> entries table
+	 *
+	 * @return false if entry is not registered in the index (e.g. entry for non JavaScript file)
+	 */
+	boolean updateEntryNameIds(final JSIndexEntry entry, @Nullable final int[] oldNameIds, final int[] newNameIds)
+	{
+		final VirtualFile file = entry.getVirtualFile();
+		if(file == null || myJavaScriptFiles.get(file.getPath()) != entry)
+		{
+			return false;
+		}
+
+		myNameId2EntriesLock.writeLock().lock();
+		try
+		{
+			if(oldNameIds != null)
+			{
+				for(int nameId : oldNameIds)
+				{
+					final THashSet<JSIndexEntry> entries = myNameId2Entries.get(nameId);
+					if(entries != null && entries.remove(entry) && entries.isEmpty())
+					{
+						myNameId2Entries.remove(nameId);
+					}
+				}
+			}
+
+			for(int nameId : newNameIds)
+			{
+				THashSet<JSIndexEntry> entries = myNameId2Entries.get(nameId);
+				if(entries == null)
+				{
+					entries = new THashSet<JSIndexEntry>(2);
+					myNameId2Entries.put(nameId, entries);
+				}
+				entries.add(entry);
+			}
+		}
+		finally
+		{
+			myNameId2EntriesLock.writeLock().unlock();
+		}
+		return true;
+	}
+
 	public String[] getSymbolNames(final boolean includeNonProjectItems)
 	{
 		updateDirtyFiles();
@@ -494,7 +784,7 @@ public final class JavaScriptIndex implements ProjectComponent
 	public NavigationItem[] getSymbolsByName(final String name, boolean includeNonProjectItems)
 	{
 		final Set<NavigationItem> symbolNavItems = new HashSet<NavigationItem>();
-		processEntries(myFindSymbolByNameProcessor, includeNonProjectItems, symbolNavItems, name);
+		processEntriesWithName(myFindSymbolByNameProcessor, includeNonProjectItems, symbolNavItems, name);
 
 		return symbolNavItems.toArray(new NavigationItem[symbolNavItems.size()]);
 	}
@@ -511,12 +801,12 @@ public final class JavaScriptIndex implements ProjectComponent
 	public NavigationItem[] getClassByName(final String name, final boolean includeNonProjectItems)
 	{
 		final Set<NavigationItem> classes = new HashSet<NavigationItem>();
-		processEntries(myFindClassByNameProcessor, includeNonProjectItems, classes, name);
+		processEntriesWithName(myFindClassByNameProcessor, includeNonProjectItems, classes, name);
 
 		return classes.toArray(new NavigationItem[classes.size()]);
 	}
 
-	private static final Object cachesLock = new Object(); // guards myNames2Index, myIndexToNames, myPackageResolveResult, myToplevelResolveResult
+	private final Object cachesLock = new Object(); // guards myPackageResolveResult, myToplevelResolveResult
 
 	public int getIndexOf(@NonNls String s)
 	{
@@ -524,18 +814,7 @@ public final class JavaScriptIndex implements ProjectComponent
 		{
 			return -1;
 		}
-		synchronized(cachesLock)
-		{
-			final int i = myNames2Index.get(s);
-			if(i > 0)
-			{
-				return i;
-			}
-			final int value = myNames2Index.size() + 1;
-			myNames2Index.put(s, value);
-			myIndex2Names.put(value, s);
-			return value;
-		}
+		return myNameTable.getId(s);
 	}
 
 	public String getStringByIndex(int i)
@@ -544,15 +823,7 @@ public final class JavaScriptIndex implements ProjectComponent
 		{
 			return null;
 		}
-		synchronized(cachesLock)
-		{
-			final String s = myIndex2Names.get(i);
-			if(s != null)
-			{
-				return s;
-			}
-			throw new NoSuchElementException("" + i);
-		}
+		return myNameTable.getName(i);
 	}
 
 	private final Map<GlobalSearchScope, Map<String, PsiElement>> myPackageResolveResult = new THashMap<GlobalSearchScope, Map<String, PsiElement>>();
@@ -30,6 +30,7 @@ import com.intellij.lang.javascript.JSBundle;
 import com.intellij.lang.javascript.JSTokenTypes;
 import com.intellij.lang.javascript.index.JSNamedElementProxy;
 import com.intellij.lang.javascript.psi.*;
+import com.intellij.lang.javascript.psi.util.JSLocalBindings;
 import com.intellij.lang.javascript.psi.util.JSUtils;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.project.Project;
@@ -89,22 +90,28 @@ public class JSUndeclaredVariableInspection extends JSInspection
 
 					if(!(element instanceof JSWithStatement))
 					{
-						boolean varReferenceWithoutVar = true;
-						final ResolveResult[] resolveResults = node.multiResolve(false);
+						// locally declared names need no resolve
+						final JSLocalBindings bindings = JSLocalBindings.getBindings(node);
+						boolean varReferenceWithoutVar = bindings == null || bindings.getDeclarations(node) == null;
 
-						JSNamedElementProxy proxy;
-
-						for(ResolveResult r : resolveResults)
+						if(varReferenceWithoutVar)
 						{
-							final PsiElement resolveResult = r.getElement();
-							if(resolveResult instanceof JSVariable ||
-									resolveResult instanceof JSFunction ||
-									(resolveResult instanceof JSNamedElementProxy && ((proxy = ((JSNamedElementProxy) resolveResult)).getType() == JSNamedElementProxy
-											.NamedItemType.MemberVariable || proxy.getType() == JSNamedElementProxy.NamedItemType.MemberFunction && (proxy.hasProperty
-											(JSNamedElementProxy.Property.GetFunction) || proxy.hasProperty(JSNamedElementProxy.Property.SetFunction)))))
+							final ResolveResult[] resolveResults = node.multiResolve(false);
+
+							JSNamedElementProxy proxy;
+
+							for(ResolveResult r : resolveResults)
 							{
-								varReferenceWithoutVar = false;
-								break;
+								final PsiElement resolveResult = r.getElement();
+								if(resolveResult instanceof JSVariable ||
+										resolveResult instanceof JSFunction ||
+										(resolveResult instanceof JSNamedElementProxy && ((proxy = ((JSNamedElementProxy) resolveResult)).getType() == JSNamedElementProxy
+												.NamedItemType.MemberVariable || proxy.getType() == JSNamedElementProxy.NamedItemType.MemberFunction && (proxy.hasProperty
+												(JSNamedElementProxy.Property.GetFunction) || proxy.hasProperty(JSNamedElementProxy.Property.SetFunction)))))
+								{
+									varReferenceWithoutVar = false;
+									break;
+								}
 							}
 						}
 
@@ -20,7 +20,6 @@ import gnu.trove.THashSet;
 import gnu.trove.TObjectIntHashMap;
 
 import java.util.BitSet;
-import java.util.Collections;
 import java.util.Set;
 
 import org.jetbrains.annotations.NonNls;
@@ -32,19 +31,16 @@ import com.intellij.codeInspection.ProblemDescriptor;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.lang.ASTNode;
 import com.intellij.lang.javascript.JSBundle;
-import com.intellij.lang.javascript.JSElementTypes;
 import com.intellij.lang.javascript.JavaScriptSupportLoader;
 import com.intellij.lang.javascript.highlighting.JavaScriptLineMarkerProvider;
 import com.intellij.lang.javascript.psi.*;
 import com.intellij.lang.javascript.psi.impl.JSClassImpl;
 import com.intellij.lang.javascript.psi.resolve.JSImportHandlingUtil;
 import com.intellij.lang.javascript.psi.resolve.ResolveProcessor;
+import com.intellij.lang.javascript.psi.util.JSLocalBindings;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Key;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.ResolveResult;
 import com.intellij.psi.ResolveState;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.IncorrectOperationException;
@@ -80,152 +76,11 @@ public class JSUnusedLocalSymbolsInspection extends JSInspection
 		return SHORT_NAME;
 	}
 
-	private static final Key<Set<PsiElement>> ourUnusedLocalDeclarationsSetKey = Key.create("js unused local dcls key");
-	private static final Key<Set<PsiElement>> ourUsedLocalDeclarationsSetKey = Key.create("js used local functions key");
-
 	@Override
 	protected JSElementVisitor createVisitor(final ProblemsHolder holder)
 	{
 		return new JSElementVisitor()
 		{
-			@Override
-			public void visitJSVariable(final JSVariable node)
-			{
-				handleLocalDeclaration(node);
-			}
-
-			@Override
-			public void visitJSParameterList(final JSParameterList node)
-			{
-				PsiElement parent = node.getParent();
-				final Set<PsiElement> set = parent.getUserData(ourUnusedLocalDeclarationsSetKey);
-
-				if(set == null)
-				{
-					parent.putUserData(ourUnusedLocalDeclarationsSetKey, Collections.synchronizedSet(new THashSet<PsiElement>(3)));
-				}
-				else if(node.getParameters().length == 0)
-				{
-					set.clear();
-				}
-			}
-
-			@Override
-			public void visitFile(final PsiFile file)
-			{
-				final Set<PsiElement> set = file.getUserData(ourUnusedLocalDeclarationsSetKey);
-				if(set != null)
-				{
-					set.clear();
-				}
-			}
-
-			@Override
-			public void visitJSParameter(final JSParameter node)
-			{
-				final PsiElement scopeNode = PsiTreeUtil.getParentOfType(node, JSFunction.class, JSCatchBlock.class);
-
-				if(scopeNode == null || scopeNode instanceof JSCatchBlock)
-				{
-					return;
-				}
-				// TODO: calculate more accurately right here (we depend in this place for slow marker pass to finish before)
-				if(scopeNode.getUserData(JavaScriptLineMarkerProvider.ourParticipatesInHierarchyKey) != null)
-				{
-					return;
-				}
-				if(scopeNode instanceof JSFunction)
-				{
-					JSAttributeList attributeList = ((JSFunction) scopeNode).getAttributeList();
-					if(attributeList != null && attributeList.hasModifier(JSAttributeList.ModifierType.OVERRIDE))
-					{
-						return;
-					}
-				}
-
-				final Set<PsiElement> unusedParametersSet;
-				final PsiElement parameterList = node.getParent();
-
-				if(parameterList.getNode().findChildByType(JSElementTypes.FORMAL_PARAMETER) == node.getNode())
-				{
-					unusedParametersSet = Collections.synchronizedSet(new THashSet<PsiElement>(3));
-					scopeNode.putUserData(ourUnusedLocalDeclarationsSetKey, unusedParametersSet);
-				}
-				else
-				{
-					unusedParametersSet = scopeNode.getUserData(ourUnusedLocalDeclarationsSetKey);
-					if(unusedParametersSet == null)
-					{
-						return;
-					}
-				}
-				unusedParametersSet.add(node);
-			}
-
-			@Override
-			public void visitJSReferenceExpression(final JSReferenceExpression node)
-			{
-				if(node.getParent() instanceof JSFunction)
-				{
-					return;
-				}
-				if(node.getQualifier() == null)
-				{
-					if("arguments".equals(node.getText()))
-					{
-						JSFunction function = PsiTreeUtil.getParentOfType(node, JSFunction.class);
-						if(function == null)
-						{
-							return;
-						}
-						Set<PsiElement> unusedParametersSet = function.getUserData(ourUnusedLocalDeclarationsSetKey);
-						if(unusedParametersSet == null)
-						{
-							return;
-						}
-						for(JSParameter p : function.getParameterList().getParameters())
-						{
-							unusedParametersSet.remove(p);
-						}
-						return;
-					}
-
-					ResolveResult[] results = node.multiResolve(false);
-
-					for(ResolveResult r : results)
-					{
-						final PsiElement element = r.getElement();
-
-						if(element instanceof JSVariable || (element instanceof JSFunction && isSupportedFunction((JSFunction) element)))
-						{
-							assert !(element instanceof JSFunctionExpression);
-							PsiElement scopeHandler = PsiTreeUtil.getParentOfType(element, JSFunction.class);
-
-							if(scopeHandler != null)
-							{
-								Set<PsiElement> unusedParametersSet = scopeHandler.getUserData(ourUnusedLocalDeclarationsSetKey);
-
-								if(unusedParametersSet != null)
-								{
-									final boolean removed = unusedParametersSet.remove(element);
-
-									if(!removed)
-									{
-										Set<PsiElement> set = scopeHandler.getUserData(ourUsedLocalDeclarationsSetKey);
-										if(set == null)
-										{
-											set = new THashSet<PsiElement>(3);
-											scopeHandler.putUserData(ourUsedLocalDeclarationsSetKey, set);
-										}
-										set.add(element);
-									}
-								}
-							}
-						}
-					}
-				}
-			}
-
 			@Override
 			public void visitJSFunctionExpression(final JSFunctionExpression node)
 			{
@@ -236,195 +91,187 @@ public class JSUnusedLocalSymbolsInspection extends JSInspection
 			public void visitJSFunctionDeclaration(final JSFunction node)
 			{
 				processDeclarationHost(node, holder);
-				handleLocalDeclaration(node);
 			}
 		};
 	}
 
-	private static boolean isSupportedFunction(final JSFunction element)
+	private static void processDeclarationHost(final JSFunction node, final ProblemsHolder holder)
 	{
-		return !(element instanceof JSFunctionExpression || element.getParent() instanceof JSProperty);
-	}
-
-	private static void processDeclarationHost(final PsiElement node, final ProblemsHolder holder)
-	{
-		Set<PsiElement> unusedDeclarationsSet = node.getUserData(ourUnusedLocalDeclarationsSetKey);
-		if(unusedDeclarationsSet == null || node instanceof JSFunction && ((JSFunction) node).getBody().length == 0)
+		if(node.getBody().length == 0)
+		{
+			return;
+		}
+		final JSLocalBindings bindings = JSLocalBindings.getBindings(node);
+		if(bindings == null)
 		{
 			return;
 		}
 
-		try
+		final Set<PsiElement> unusedDeclarationsSet = new THashSet<PsiElement>();
+		final boolean checkParameters = isCheckingParameters(node) && !bindings.usesArguments(node);
+		for(JSNamedElement declaration : bindings.getLocalDeclarations(node))
 		{
-			unusedDeclarationsSet = new THashSet<PsiElement>(unusedDeclarationsSet);
+			if(declaration instanceof JSParameter ? !checkParameters : PsiTreeUtil.getParentOfType(declaration, JSFunction.class,
+					JSCatchBlock.class) != node)
+			{
+				continue;
+			}
+			if(bindings.getReferences(declaration).isEmpty() && !bindings.isReferencedDynamically(declaration.getName()))
+			{
+				unusedDeclarationsSet.add(declaration);
+			}
+		}
+
+		final int nonCounted = -2;
+		int lastUsedParameterIndex = nonCounted;
+		TObjectIntHashMap<JSParameter> parameterIndexMap = null;
 
-			final int nonCounted = -2;
-			int lastUsedParameterIndex = nonCounted;
-			TObjectIntHashMap<JSParameter> parameterIndexMap = null;
+		for(final PsiElement p : unusedDeclarationsSet)
+		{
+			if(!p.isValid())
+			{
+				continue;
+			}
+			final @NonNls @PropertyKey(resourceBundle = JSBundle.BUNDLE) String messageId;
+			final @NotNull PsiElement highlightedElement;
 
-			for(final PsiElement p : unusedDeclarationsSet)
+			if(p instanceof JSParameter)
 			{
-				if(!p.isValid())
+				// There are cases of predefined sinatures for which we are not interested in reported unused parameters
+				final boolean ecma = node.getContainingFile().getLanguage() == JavaScriptSupportLoader.ECMA_SCRIPT_L4;
+				if(ecma && node instanceof JSFunctionExpression)
 				{
-					continue;
+					continue; // do not report unused parameters
 				}
-				final @NonNls @PropertyKey(resourceBundle = JSBundle.BUNDLE) String messageId;
-				final @NotNull PsiElement highlightedElement;
-
-				if(p instanceof JSParameter)
+				else if(ecma && node instanceof JSFunction)
 				{
-					// There are cases of predefined sinatures for which we are not interested in reported unused parameters
-					final boolean ecma = node.getContainingFile().getLanguage() == JavaScriptSupportLoader.ECMA_SCRIPT_L4;
-					if(ecma && node instanceof JSFunctionExpression)
-					{
-						continue; // do not report unused parameters
-					}
-					else if(ecma && node instanceof JSFunction)
+					final JSParameter[] params = ((JSFunction) node).getParameterList().getParameters();
+
+					if(params.length == 1)
 					{
-						final JSParameter[] params = ((JSFunction) node).getParameterList().getParameters();
+						@NonNls String type = ((JSParameter) p).getTypeString();
+						if(type != null)
+						{
+							type = JSImportHandlingUtil.resolveTypeName(type, p);
+						}
 
-						if(params.length == 1)
+						if(type != null)
 						{
-							@NonNls String type = ((JSParameter) p).getTypeString();
-							if(type != null)
+							String eventType = "flash.events.Event";
+							if(eventType.equals(type))
 							{
-								type = JSImportHandlingUtil.resolveTypeName(type, p);
+								continue;
 							}
+							final PsiElement clazz = JSClassImpl.findClassFromNamespace(type, node);
 
-							if(type != null)
+							if(clazz instanceof JSClass)
 							{
-								String eventType = "flash.events.Event";
-								if(eventType.equals(type))
+								final ResolveProcessor processor = new ResolveProcessor(eventType)
 								{
-									continue;
-								}
-								final PsiElement clazz = JSClassImpl.findClassFromNamespace(type, node);
-
-								if(clazz instanceof JSClass)
-								{
-									final ResolveProcessor processor = new ResolveProcessor(eventType)
 									{
-										{
-											setTypeContext(true);
-											setToProcessMembers(false);
-											setToProcessHierarchy(true);
-										}
+										setTypeContext(true);
+										setToProcessMembers(false);
+										setToProcessHierarchy(true);
+									}
 
-										@Override
-										public boolean execute(final PsiElement element, final ResolveState state)
+									@Override
+									public boolean execute(final PsiElement element, final ResolveState state)
+									{
+										if(!(element instanceof JSClass))
 										{
-											if(!(element instanceof JSClass))
-											{
-												return true;
-											}
-											return !myName.equals(((JSClass) element).getQualifiedName());
+											return true;
 										}
-									};
-									processor.setLocalResolve(true);
-									final boolean b = clazz.processDeclarations(processor, ResolveState.initial(), clazz, clazz);
-									if(!b)
-									{
-										continue;
+										return !myName.equals(((JSClass) element).getQualifiedName());
 									}
+								};
+								processor.setLocalResolve(true);
+								final boolean b = clazz.processDeclarations(processor, ResolveState.initial(), clazz, clazz);
+								if(!b)
+								{
+									continue;
 								}
 							}
 						}
 					}
+				}
 
-					final JSParameter[] params = ((JSFunction) node).getParameterList().getParameters();
+				final JSParameter[] params = ((JSFunction) node).getParameterList().getParameters();
 
-					if(lastUsedParameterIndex == nonCounted)
+				if(lastUsedParameterIndex == nonCounted)
+				{
+					BitSet unusedSet = new BitSet(params.length);
+					parameterIndexMap = new TObjectIntHashMap<JSParameter>();
+					for(int i = 0; i < params.length; ++i)
 					{
-						BitSet unusedSet = new BitSet(params.length);
-						parameterIndexMap = new TObjectIntHashMap<JSParameter>();
-						for(int i = 0; i < params.length; ++i)
-						{
-							parameterIndexMap.put(params[i], i);
-						}
-
-						for(PsiElement param : unusedDeclarationsSet)
-						{
-							if(!(param instanceof JSParameter))
-							{
-								continue;
-							}
-							unusedSet.set(parameterIndexMap.get((JSParameter) param));
-						}
-
-						lastUsedParameterIndex = -1;
+						parameterIndexMap.put(params[i], i);
+					}
 
-						for(int i = params.length - 1; i >= 0; --i)
+					for(PsiElement param : unusedDeclarationsSet)
+					{
+						if(!(param instanceof JSParameter))
 						{
-							if(!unusedSet.get(i))
-							{
-								lastUsedParameterIndex = i;
-								break;
-							}
+							continue;
 						}
+						unusedSet.set(parameterIndexMap.get((JSParameter) param));
 					}
 
-					if(parameterIndexMap.get((JSParameter) p) < lastUsedParameterIndex)
-					{
-						continue; // no sense to report unused symbol before used since it will change signature
-					}
+					lastUsedParameterIndex = -1;
 
-					messageId = "js.unused.parameter";
-					highlightedElement = ((JSParameter) p).findNameIdentifier().getPsi();
-				}
-				else if(p instanceof JSFunction)
-				{
-					final ASTNode nameIdentifier = ((JSFunction) p).findNameIdentifier();
-					if(nameIdentifier == null)
+					for(int i = params.length - 1; i >= 0; --i)
 					{
-						continue;
+						if(!unusedSet.get(i))
+						{
+							lastUsedParameterIndex = i;
+							break;
+						}
 					}
-					highlightedElement = nameIdentifier.getPsi();
-					messageId = "js.unused.function.declaration";
-				}
-				else
-				{
-					highlightedElement = ((JSVariable) p).findNameIdentifier().getPsi();
-					messageId = "js.unused.local.variable";
 				}
 
-				if(p.getParent() instanceof JSCatchBlock)
+				if(parameterIndexMap.get((JSParameter) p) < lastUsedParameterIndex)
 				{
-					holder.registerProblem(highlightedElement, JSBundle.message(messageId));
+					continue; // no sense to report unused symbol before used since it will change signature
 				}
-				else
+
+				messageId = "js.unused.parameter";
+				highlightedElement = ((JSParameter) p).findNameIdentifier().getPsi();
+			}
+			else if(p instanceof JSFunction)
+			{
+				final ASTNode nameIdentifier = ((JSFunction) p).findNameIdentifier();
+				if(nameIdentifier == null)
 				{
-					holder.registerProblem(highlightedElement, JSBundle.message(messageId), new RemoveElementLocalQuickFix());
+					continue;
 				}
+				highlightedElement = nameIdentifier.getPsi();
+				messageId = "js.unused.function.declaration";
+			}
+			else
+			{
+				highlightedElement = ((JSVariable) p).findNameIdentifier().getPsi();
+				messageId = "js.unused.local.variable";
+			}
+
+			if(p.getParent() instanceof JSCatchBlock)
+			{
+				holder.registerProblem(highlightedElement, JSBundle.message(messageId));
+			}
+			else
+			{
+				holder.registerProblem(highlightedElement, JSBundle.message(messageId), new RemoveElementLocalQuickFix());
 			}
-		}
-		finally
-		{
-			node.putUserData(ourUnusedLocalDeclarationsSetKey, null);
 		}
 	}
 
-	private static void handleLocalDeclaration(final JSNamedElement node)
+	// parameters of overriding or overridden functions are fixed by signature
+	private static boolean isCheckingParameters(final JSFunction function)
 	{
-		if(node instanceof JSFunction && !isSupportedFunction((JSFunction) node))
+		// TODO: calculate more accurately right here (we depend in this place for slow marker pass to finish before)
+		if(function.getUserData(JavaScriptLineMarkerProvider.ourParticipatesInHierarchyKey) != null)
 		{
-			return;
-		}
-		final PsiElement scopeNode = PsiTreeUtil.getParentOfType(node, JSFunction.class, JSCatchBlock.class);
-		if(scopeNode == null)
-		{
-			return;
-		}
-		final Set<PsiElement> unusedParametersSet = scopeNode.getUserData(ourUnusedLocalDeclarationsSetKey);
-		final Set<PsiElement> usedSet = scopeNode.getUserData(ourUsedLocalDeclarationsSetKey);
-		if(usedSet != null && usedSet.contains(node))
-		{
-			return;
-		}
-		if(unusedParametersSet == null)
-		{
-			return;
+			return false;
 		}
-		unusedParametersSet.add(node);
+		final JSAttributeList attributeList = function.getAttributeList();
+		return attributeList == null || !attributeList.hasModifier(JSAttributeList.ModifierType.OVERRIDE);
 	}
 
 	@Override
@@ -21,13 +21,21 @@ package com.intellij.lang.javascript.psi;
 
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.LighterLazyParseableNode;
+import com.intellij.lang.javascript.JSElementTypes;
 import com.intellij.lang.javascript.JavascriptLanguage;
 import com.intellij.lang.javascript.psi.stubs.JSStubElement;
-import com.intellij.psi.stubs.IStubElementType;
+import com.intellij.lang.javascript.types.JSFunctionElementType;
+import com.intellij.psi.impl.source.tree.LazyParseableElement;
+import com.intellij.psi.stubs.ILightStubElementType;
 import com.intellij.psi.stubs.IndexSink;
+import com.intellij.psi.stubs.StubElement;
 import com.intellij.psi.tree.IElementTypeAsPsiFactory;
 
-public abstract class JSStubElementType<StubT extends JSStubElement<PsiT>, PsiT extends JSElement> extends IStubElementType<StubT,
+public abstract class JSStubElementType<StubT extends JSStubElement<PsiT>, PsiT extends JSElement> extends ILightStubElementType<StubT,
 		PsiT> implements IElementTypeAsPsiFactory
 {
 	public JSStubElementType(@NonNls String debugName)
@@ -41,6 +49,66 @@ public abstract class JSStubElementType<StubT extends JSStubElement<PsiT>, PsiT
 		return "JS:" + super.toString();
 	}
 
+	/**
+	 * Nothing inside of function bodies gets a stub, except for statement types overriding this. Lazy function bodies are never
+	 * visited by the stub builder, the parser keeps bodies with such statements eager.
+	 */
+	@Override
+	public boolean shouldCreateStub(ASTNode node)
+	{
+		return !isInsideFunctionBody(node);
+	}
+
+	@Override
+	public boolean shouldCreateStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		return !isInsideFunctionBody(tree, node);
+	}
+
+	public static boolean isFunctionBody(@NotNull ASTNode parent, @NotNull ASTNode node)
+	{
+		return node.getElementType() == JSElementTypes.BLOCK_STATEMENT && parent.getElementType() instanceof JSFunctionElementType;
+	}
+
+	public static boolean isLazyFunctionBody(@NotNull ASTNode parent, @NotNull ASTNode node)
+	{
+		return isFunctionBody(parent, node) && node instanceof LazyParseableElement && !((LazyParseableElement) node).isParsed();
+	}
+
+	public static boolean isInsideFunctionBody(@NotNull ASTNode node)
+	{
+		for(ASTNode parent = node.getTreeParent(); parent != null; node = parent, parent = parent.getTreeParent())
+		{
+			if(isFunctionBody(parent, node))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public static boolean isFunctionBody(@NotNull LighterASTNode parent, @NotNull LighterASTNode node)
+	{
+		return node.getTokenType() == JSElementTypes.BLOCK_STATEMENT && parent.getTokenType() instanceof JSFunctionElementType;
+	}
+
+	public static boolean isLazyFunctionBody(@NotNull LighterASTNode parent, @NotNull LighterASTNode node)
+	{
+		return isFunctionBody(parent, node) && node instanceof LighterLazyParseableNode;
+	}
+
+	public static boolean isInsideFunctionBody(@NotNull LighterAST tree, @NotNull LighterASTNode node)
+	{
+		for(LighterASTNode parent = tree.getParent(node); parent != null; node = parent, parent = tree.getParent(parent))
+		{
+			if(isFunctionBody(parent, node))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public void indexStub(@NotNull final StubT stub, @NotNull final IndexSink sink)
 	{
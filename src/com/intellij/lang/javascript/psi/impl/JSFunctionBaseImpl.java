@@ -287,12 +287,7 @@ abstract class JSFunctionBaseImpl<T extends JSFunctionStub, T2 extends JSFunctio
 	@Override
 	public boolean isReferencesArguments()
 	{
-		final T stub = getStub();
-		if(stub != null)
-		{
-			return stub.isReferencesArguments();
-		}
-
+		// not kept in stubs, that would make stub building parse every function body
 		if(!referencesArgumentsCalculated)
 		{
 			acceptChildren(new JSElementVisitor()
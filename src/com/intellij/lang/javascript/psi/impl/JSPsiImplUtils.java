@@ -28,12 +28,16 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import com.intellij.javascript.documentation.JSDocumentationUtils;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.javascript.JSElementTypes;
 import com.intellij.lang.javascript.JSTokenTypes;
 import com.intellij.lang.javascript.flex.XmlBackedJSClassImpl;
 import com.intellij.lang.javascript.index.JSPackageIndex;
 import com.intellij.lang.javascript.psi.*;
 import com.intellij.lang.javascript.psi.resolve.JSResolveUtil;
 import com.intellij.lang.javascript.psi.stubs.JSQualifiedElementIndex;
+import com.intellij.lang.javascript.types.JSLightTreeUtil;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.OrderEntry;
 import com.intellij.openapi.roots.OrderRootType;
@@ -147,6 +151,78 @@ public class JSPsiImplUtils
 		return JSDocumentationUtils.findTypeFromComments(element);
 	}
 
+	/**
+	 * {@link #getTypeFromDeclaration(JSNamedElement)} on the light tree, used when stubs are built without psi
+	 */
+	@Nullable
+	public static String getTypeFromDeclaration(@NotNull LighterAST tree, @NotNull LighterASTNode element)
+	{
+		final LighterASTNode colon = JSLightTreeUtil.findChildByType(tree, element, JSTokenTypes.COLON);
+		final LighterASTNode typeExpr = colon != null ? JSLightTreeUtil.findChildByType(tree, element, JSDocumentationUtils.ourTypeFilter,
+				colon) : null;
+
+		String s = null;
+		if(typeExpr != null)
+		{
+			s = JSLightTreeUtil.getText(tree, typeExpr);
+		}
+		else if(element.getTokenType() == JSElementTypes.FORMAL_PARAMETER && JSLightTreeUtil.findChildByType(tree, element,
+				JSTokenTypes.DOT_DOT_DOT) != null)
+		{
+			s = ARRAY_TYPE_NAME;
+		}
+
+		if(ARRAY_TYPE_NAME.equals(s))
+		{
+			LighterASTNode comment = null;
+			if(typeExpr != null)
+			{
+				final List<LighterASTNode> children = tree.getChildren(element);
+				for(int i = JSLightTreeUtil.indexOf(children, typeExpr) - 1; i >= 0 && comment == null; i--)
+				{
+					if(JSTokenTypes.COMMENTS.contains(children.get(i).getTokenType()))
+					{
+						comment = children.get(i);
+					}
+				}
+			}
+
+			if(comment != null)
+			{
+				final String elementType = JSDocumentationUtils.unwrapCommentDelimiters(JSLightTreeUtil.getText(tree, comment)).trim();
+
+				if(elementType.length() > 0)
+				{
+					return s + "[" + elementType;
+				}
+			}
+
+			final LighterASTNode attributeList = JSLightTreeUtil.getAttributeList(tree, element);
+			if(attributeList != null)
+			{
+				String type = JSLightTreeUtil.getAnnotationValue(tree, attributeList, ARRAY_ELEMENT_TYPE_ANNOTATION_NAME);
+				if(type != null && type.length() > 0)
+				{
+					return s + "[" + type;
+				}
+			}
+		}
+
+		return s;
+	}
+
+	@Nullable
+	public static String getType(@NotNull LighterAST tree, @NotNull LighterASTNode element)
+	{
+		final String typeFromDeclaration = getTypeFromDeclaration(tree, element);
+		if(typeFromDeclaration != null)
+		{
+			return typeFromDeclaration;
+		}
+
+		return JSDocumentationUtils.findTypeFromComments(tree, element);
+	}
+
 	public static void updateFileName(JSQualifiedNamedElement jsClassBase, final String newName,
 			final String oldName) throws IncorrectOperationException
 	{
@@ -431,6 +431,7 @@ public class JSReferenceExpressionImpl extends JSExpressionImpl implements JSRef
 		//}
 
 		final VariantsProcessor processor = new VariantsProcessor(null, containingFile, false, this);
+		processor.setPrefixMatcher(VariantsProcessor.createCompletionPrefixMatcher(getReferencedName()));
 
 		if(localProcessor != null)
 		{
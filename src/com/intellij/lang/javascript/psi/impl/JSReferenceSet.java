@@ -285,6 +285,7 @@ public class JSReferenceSet
 
 			final TIntArrayList contextIds = fillContextIds(index);
 			final VariantsProcessor processor = new VariantsProcessor(contextIds != null ? contextIds.toNativeArray() : null, containingFile, false, element);
+			processor.setPrefixMatcher(VariantsProcessor.createCompletionPrefixMatcher(myText));
 
 			processor.setAddOnlyCompleteMatches(contextIds != null || !(element instanceof JSLiteralExpression));
 			if(localProcessor != null)
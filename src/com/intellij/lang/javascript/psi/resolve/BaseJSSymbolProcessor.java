@@ -19,12 +19,15 @@ package com.intellij.lang.javascript.psi.resolve;
 import gnu.trove.THashSet;
 import gnu.trove.TIntArrayList;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import com.intellij.javascript.documentation.JSDocumentationUtils;
 import com.intellij.lang.ASTNode;
 import com.intellij.lang.injection.InjectedLanguageManager;
@@ -41,6 +44,7 @@ import com.intellij.lang.javascript.psi.impl.JSPackageWrapper;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.UserDataCache;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -50,10 +54,15 @@ import com.intellij.psi.ResolveResult;
 import com.intellij.psi.ResolveState;
 import com.intellij.psi.scope.PsiScopeProcessor;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.psi.xml.XmlToken;
+import com.intellij.util.ArrayUtil;
 
 /**
  * @author Maxim.Mossienko
@@ -181,6 +190,30 @@ abstract public class BaseJSSymbolProcessor implements JavaScriptSymbolProcessor
 
 	private static ThreadLocal<EvaluateContext> contextHolder = new ThreadLocal<EvaluateContext>();
 
+	private static final Key<CachedValue<JSExpressionTypeCache>> MY_EXPRESSION_TYPE_CACHE_KEY = Key.create("JS.ExpressionTypeCache");
+	private static final UserDataCache<CachedValue<JSExpressionTypeCache>, PsiFile, Object> ourExpressionTypeCache = new
+			UserDataCache<CachedValue<JSExpressionTypeCache>, PsiFile, Object>()
+	{
+		@Override
+		protected CachedValue<JSExpressionTypeCache> compute(PsiFile file, Object o)
+		{
+			return CachedValuesManager.getManager(file.getProject()).createCachedValue(new CachedValueProvider<JSExpressionTypeCache>()
+			{
+				@Override
+				public Result<JSExpressionTypeCache> compute()
+				{
+					return new Result<JSExpressionTypeCache>(new JSExpressionTypeCache(), PsiModificationTracker.MODIFICATION_COUNT);
+				}
+			}, false);
+		}
+	};
+
+	@NotNull
+	public static JSExpressionTypeCache getExpressionTypeCache(@NotNull PsiFile targetFile)
+	{
+		return ourExpressionTypeCache.get(MY_EXPRESSION_TYPE_CACHE_KEY, targetFile, null).getValue();
+	}
+
 	public static void doEvalForExpr(JSExpression rawqualifier, final PsiFile myTargetFile, TypeProcessor typeProcessor)
 	{
 		EvaluateContext context = contextHolder.get();
@@ -194,6 +227,7 @@ abstract public class BaseJSSymbolProcessor implements JavaScriptSymbolProcessor
 		}
 		else if(context.isAlreadyProcessingItem(rawqualifier))
 		{
+			context.recursionCutoffs++;
 			return;
 		}
 		else
@@ -201,9 +235,29 @@ abstract public class BaseJSSymbolProcessor implements JavaScriptSymbolProcessor
 			context.addProcessingItem(rawqualifier);
 		}
 
+		// only fresh simple processors are memoized: others have side effects besides the type and may already hold results
+		final JSExpressionTypeCache cache = rawqualifier != null && typeProcessor.getClass() == SimpleTypeProcessor.class && ((SimpleTypeProcessor)
+				typeProcessor).isEmpty() ? getExpressionTypeCache(myTargetFile) : null;
+		final int recursionCutoffs = context.recursionCutoffs;
+
 		try
 		{
+			if(cache != null)
+			{
+				final JSExpressionTypeCache.EvaluatedType evaluatedType = cache.get(rawqualifier, typeProcessor.ecma());
+				if(evaluatedType != null)
+				{
+					((SimpleTypeProcessor) typeProcessor).setEvaluatedType(evaluatedType);
+					return;
+				}
+			}
+
 			doEvalForExpr(rawqualifier, typeProcessor, contextHolderInitialized ? context : new EvaluateContext(myTargetFile));
+
+			if(cache != null && context.recursionCutoffs == recursionCutoffs)
+			{
+				cache.put(rawqualifier, typeProcessor.ecma(), ((SimpleTypeProcessor) typeProcessor).getEvaluatedType());
+			}
 		}
 		finally
 		{
@@ -696,8 +750,8 @@ abstract public class BaseJSSymbolProcessor implements JavaScriptSymbolProcessor
 
 					final SimpleTypeProcessor lprocessor = new SimpleTypeProcessor(typeProcessor.ecma());
 					final SimpleTypeProcessor rprocessor = new SimpleTypeProcessor(typeProcessor.ecma());
-					doEvalForExpr(lOperand, lprocessor, context);
-					doEvalForExpr(rOperand, rprocessor, context);
+					evalIntermediateType(lOperand, lprocessor, context);
+					evalIntermediateType(rOperand, rprocessor, context);
 
 					String evaluatedType = lprocessor.type != null && lprocessor.type.equals(rprocessor.type) ? lprocessor.type : null;
 					if(evaluatedType != null)
@@ -712,7 +766,7 @@ abstract public class BaseJSSymbolProcessor implements JavaScriptSymbolProcessor
 				else if(sign == JSTokenTypes.EQ)
 				{
 					final SimpleTypeProcessor rprocessor = new SimpleTypeProcessor(typeProcessor.ecma());
-					doEvalForExpr(rOperand, rprocessor, context);
+					evalIntermediateType(rOperand, rprocessor, context);
 
 					String evaluatedType = rprocessor.type;
 					if(evaluatedType != null)
@@ -743,7 +797,7 @@ abstract public class BaseJSSymbolProcessor implements JavaScriptSymbolProcessor
 			final JSIndexedPropertyAccessExpression propertyAccessExpression = (JSIndexedPropertyAccessExpression) rawqualifier;
 			final SimpleTypeProcessor lprocessor = new SimpleTypeProcessor(typeProcessor.ecma());
 
-			doEvalForExpr(propertyAccessExpression.getQualifier(), lprocessor, context);
+			evalIntermediateType(propertyAccessExpression.getQualifier(), lprocessor, context);
 
 			if(lprocessor.result instanceof JSArrayLiteralExpression && typeProcessor instanceof ResolveProcessor)
 			{
@@ -796,6 +850,63 @@ abstract public class BaseJSSymbolProcessor implements JavaScriptSymbolProcessor
 		}
 	}
 
+	/**
+	 * Evaluates operand type in the current context. The result depends on the context state as well, so it is memoized under that state
+	 * and a memoized result makes the same changes to the context as the evaluation did.
+	 */
+	private static void evalIntermediateType(@Nullable JSExpression expression, SimpleTypeProcessor processor, EvaluateContext context)
+	{
+		if(expression == null)
+		{
+			doEvalForExpr(null, processor, context);
+			return;
+		}
+
+		final EvaluateContext holderContext = contextHolder.get();
+		final EvaluateContext guardContext = holderContext != null && holderContext != context ? holderContext : null;
+		final JSExpressionTypeCache cache = getExpressionTypeCache(context.targetFile);
+		final JSExpressionTypeCache.EvaluationState state = new JSExpressionTypeCache.EvaluationState(expression, processor.ecma(),
+				context.visitedTypes, context.source, context.processingItems, guardContext != null ? guardContext.processingItems : null);
+
+		final JSExpressionTypeCache.IntermediateType intermediateType = cache.getIntermediate(state);
+		if(intermediateType != null)
+		{
+			processor.setEvaluatedType(intermediateType.type);
+			Collections.addAll(context.visitedTypes, intermediateType.addedVisitedTypes);
+			context.source = intermediateType.source;
+			if(holderContext != null)
+			{
+				holderContext.recursionCutoffs += intermediateType.recursionCutoffs;
+			}
+			return;
+		}
+
+		final Set<String> visitedTypes = new THashSet<String>(context.visitedTypes);
+		final int recursionCutoffs = holderContext != null ? holderContext.recursionCutoffs : 0;
+
+		doEvalForExpr(expression, processor, context);
+
+		final List<String> addedVisitedTypes = new ArrayList<String>();
+		for(String type : context.visitedTypes)
+		{
+			if(!visitedTypes.contains(type))
+			{
+				addedVisitedTypes.add(type);
+			}
+		}
+		cache.putIntermediate(state, new JSExpressionTypeCache.IntermediateType(processor.getEvaluatedType(), ArrayUtil.toStringArray
+				(addedVisitedTypes), context.source, holderContext != null ? holderContext.recursionCutoffs - recursionCutoffs : 0));
+	}
+
+	private static void noteRecursionCutoff()
+	{
+		final EvaluateContext context = contextHolder.get();
+		if(context != null)
+		{
+			context.recursionCutoffs++;
+		}
+	}
+
 	private static boolean isSomeFunctionCall(JSExpression rawqualifier, String parameterType)
 	{
 		return FUNCTION_TYPE_NAME.equals(parameterType) && rawqualifier.getParent() instanceof JSCallExpression;
@@ -826,11 +937,12 @@ abstract public class BaseJSSymbolProcessor implements JavaScriptSymbolProcessor
 		{
 			if(context.isAlreadyProcessingItem(rawqualifier))
 			{
+				noteRecursionCutoff();
 				return null;
 			}
 			context.addProcessingItem(rawqualifier);
 			final SimpleTypeProcessor lprocessor = new SimpleTypeProcessor(typeProcessor.ecma());
-			doEvalForExpr(collectionExpression, lprocessor, context);
+			evalIntermediateType(collectionExpression, lprocessor, context);
 			return addComponentTypeFromProcessor(rawqualifier, typeProcessor, context, lprocessor);
 		}
 
@@ -1212,6 +1324,8 @@ abstract public class BaseJSSymbolProcessor implements JavaScriptSymbolProcessor
 		public final JSTypeEvaluateManager typeEvaluateManager;
 		public final JavaScriptIndex index;
 		private PsiElement source;
+		// evaluations cut short by recursion guards, results computed meanwhile are incomplete and not cached
+		int recursionCutoffs;
 
 		public EvaluateContext(final PsiFile targetFile)
 		{
@@ -1316,6 +1430,24 @@ abstract public class BaseJSSymbolProcessor implements JavaScriptSymbolProcessor
 			return type;
 		}
 
+		boolean isEmpty()
+		{
+			return type == null && source == null && result == null;
+		}
+
+		@NotNull
+		JSExpressionTypeCache.EvaluatedType getEvaluatedType()
+		{
+			return new JSExpressionTypeCache.EvaluatedType(type, source, result);
+		}
+
+		void setEvaluatedType(@NotNull JSExpressionTypeCache.EvaluatedType evaluatedType)
+		{
+			type = evaluatedType.type;
+			source = evaluatedType.source;
+			result = evaluatedType.result;
+		}
+
 		public PsiElement getSource()
 		{
 			return source;
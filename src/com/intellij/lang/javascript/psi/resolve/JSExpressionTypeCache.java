@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.lang.javascript.psi.resolve;
+
+import gnu.trove.THashSet;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import com.intellij.lang.javascript.psi.JSExpression;
+import com.intellij.psi.PsiElement;
+
+/**
+ * Types inferred by {@link BaseJSSymbolProcessor#doEvalForExpr} for expressions evaluated against one target file, dropped on any psi change.
+ * Only complete evaluations are stored: results cut short by the recursion guard are recomputed on next request. Operands evaluated inside
+ * another evaluation are stored under the whole evaluation state, so they are reused only where the evaluation would give the same result.
+ */
+public class JSExpressionTypeCache
+{
+	public static final class EvaluatedType
+	{
+		@Nullable
+		public final String type;
+		@Nullable
+		public final PsiElement source;
+		@Nullable
+		public final PsiElement result;
+
+		EvaluatedType(@Nullable String type, @Nullable PsiElement source, @Nullable PsiElement result)
+		{
+			this.type = type;
+			this.source = source;
+			this.result = result;
+		}
+	}
+
+	/**
+	 * Everything an operand evaluation inside another evaluation depends on besides psi: the expression, types already visited, current
+	 * source and expressions being evaluated up the stack, which recursion guards check
+	 */
+	static final class EvaluationState
+	{
+		private final JSExpression myExpression;
+		private final boolean myEcma;
+		private final Set<String> myVisitedTypes;
+		@Nullable
+		private final PsiElement mySource;
+		private final Set<JSExpression> myProcessingItems;
+		private final Set<JSExpression> myOuterProcessingItems;
+
+		EvaluationState(@NotNull JSExpression expression, boolean ecma, @NotNull Set<String> visitedTypes, @Nullable PsiElement source,
+				@Nullable Set<JSExpression> processingItems, @Nullable Set<JSExpression> outerProcessingItems)
+		{
+			myExpression = expression;
+			myEcma = ecma;
+			myVisitedTypes = copyOf(visitedTypes);
+			mySource = source;
+			myProcessingItems = copyOf(processingItems);
+			myOuterProcessingItems = copyOf(outerProcessingItems);
+		}
+
+		private static <T> Set<T> copyOf(@Nullable Set<T> set)
+		{
+			return set == null || set.isEmpty() ? Collections.<T>emptySet() : new THashSet<T>(set);
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if(this == o)
+			{
+				return true;
+			}
+			if(!(o instanceof EvaluationState))
+			{
+				return false;
+			}
+			final EvaluationState state = (EvaluationState) o;
+			return myExpression == state.myExpression && myEcma == state.myEcma && mySource == state.mySource && myVisitedTypes.equals(state
+					.myVisitedTypes) && myProcessingItems.equals(state.myProcessingItems) && myOuterProcessingItems.equals(state.myOuterProcessingItems);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int result = myExpression.hashCode();
+			result = 31 * result + (myEcma ? 1 : 0);
+			result = 31 * result + (mySource != null ? mySource.hashCode() : 0);
+			result = 31 * result + myVisitedTypes.hashCode();
+			result = 31 * result + myProcessingItems.hashCode();
+			return 31 * result + myOuterProcessingItems.hashCode();
+		}
+	}
+
+	/**
+	 * Operand type together with the changes its evaluation made to the evaluation context
+	 */
+	static final class IntermediateType
+	{
+		@NotNull
+		final EvaluatedType type;
+		@NotNull
+		final String[] addedVisitedTypes;
+		@Nullable
+		final PsiElement source;
+		final int recursionCutoffs;
+
+		IntermediateType(@NotNull EvaluatedType type, @NotNull String[] addedVisitedTypes, @Nullable PsiElement source, int recursionCutoffs)
+		{
+			this.type = type;
+			this.addedVisitedTypes = addedVisitedTypes;
+			this.source = source;
+			this.recursionCutoffs = recursionCutoffs;
+		}
+	}
+
+	private final ConcurrentMap<JSExpression, EvaluatedType> myEcmaTypes = new ConcurrentHashMap<JSExpression, EvaluatedType>();
+	private final ConcurrentMap<JSExpression, EvaluatedType> myTypes = new ConcurrentHashMap<JSExpression, EvaluatedType>();
+	private final ConcurrentMap<EvaluationState, IntermediateType> myIntermediateTypes = new ConcurrentHashMap<EvaluationState,
+			IntermediateType>();
+	private final AtomicLong myHitCount = new AtomicLong();
+	private final AtomicLong myMissCount = new AtomicLong();
+
+	@Nullable
+	public EvaluatedType get(@NotNull JSExpression expression, boolean ecma)
+	{
+		final EvaluatedType type = (ecma ? myEcmaTypes : myTypes).get(expression);
+		(type != null ? myHitCount : myMissCount).incrementAndGet();
+		return type;
+	}
+
+	void put(@NotNull JSExpression expression, boolean ecma, @NotNull EvaluatedType type)
+	{
+		(ecma ? myEcmaTypes : myTypes).putIfAbsent(expression, type);
+	}
+
+	@Nullable
+	IntermediateType getIntermediate(@NotNull EvaluationState state)
+	{
+		final IntermediateType type = myIntermediateTypes.get(state);
+		(type != null ? myHitCount : myMissCount).incrementAndGet();
+		return type;
+	}
+
+	void putIntermediate(@NotNull EvaluationState state, @NotNull IntermediateType type)
+	{
+		myIntermediateTypes.putIfAbsent(state, type);
+	}
+
+	public int getSize()
+	{
+		return myEcmaTypes.size() + myTypes.size() + myIntermediateTypes.size();
+	}
+
+	public long getHitCount()
+	{
+		return myHitCount.get();
+	}
+
+	public long getMissCount()
+	{
+		return myMissCount.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "JSExpressionTypeCache{size=" + getSize() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "}";
+	}
+}
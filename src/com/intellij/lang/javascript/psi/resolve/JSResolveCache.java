@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013-2014 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.lang.javascript.psi.resolve;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import com.intellij.psi.PsiPolyVariantReference;
+import com.intellij.psi.ResolveResult;
+
+/**
+ * Per file resolve results, dropped on any psi change. Reads take no locks. If bounded, the cache is cleared once it holds
+ * {@link #getMaxSize()} results, so files with many references keep caching what is resolved last.
+ */
+public class JSResolveCache
+{
+	// 0 means no limit
+	private static final int DEFAULT_MAX_SIZE = Integer.getInteger("js.resolve.cache.max.size", 0);
+
+	private final ConcurrentMap<PsiPolyVariantReference, ResolveResult[]> myResults = new ConcurrentHashMap<PsiPolyVariantReference, ResolveResult[]>();
+	private final int myMaxSize;
+	private final AtomicInteger mySize = new AtomicInteger();
+	private final AtomicLong myHitCount = new AtomicLong();
+	private final AtomicLong myMissCount = new AtomicLong();
+	private final AtomicLong myEvictionCount = new AtomicLong();
+
+	public JSResolveCache()
+	{
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	public JSResolveCache(int maxSize)
+	{
+		myMaxSize = maxSize;
+	}
+
+	@Nullable
+	public ResolveResult[] get(@NotNull PsiPolyVariantReference reference)
+	{
+		final ResolveResult[] results = myResults.get(reference);
+		(results != null ? myHitCount : myMissCount).incrementAndGet();
+		return results;
+	}
+
+	public void put(@NotNull PsiPolyVariantReference reference, @NotNull ResolveResult[] results)
+	{
+		if(myMaxSize > 0)
+		{
+			final int size = mySize.get();
+			// only one thread clears a full cache, results put meanwhile may be dropped with it and are counted until the next clear
+			if(size >= myMaxSize && mySize.compareAndSet(size, 0))
+			{
+				myResults.clear();
+				myEvictionCount.incrementAndGet();
+			}
+		}
+		if(myResults.putIfAbsent(reference, results) == null)
+		{
+			mySize.incrementAndGet();
+		}
+	}
+
+	public int getMaxSize()
+	{
+		return myMaxSize;
+	}
+
+	public int getSize()
+	{
+		return mySize.get();
+	}
+
+	public long getHitCount()
+	{
+		return myHitCount.get();
+	}
+
+	public long getMissCount()
+	{
+		return myMissCount.get();
+	}
+
+	public long getEvictionCount()
+	{
+		return myEvictionCount.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "JSResolveCache{size=" + getSize() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+	}
+}
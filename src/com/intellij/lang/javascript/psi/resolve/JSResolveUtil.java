@@ -27,7 +27,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import javax.swing.Icon;
@@ -1620,22 +1619,20 @@ public class JSResolveUtil
 		return false;
 	}
 
-	private static final Key<CachedValue<Map<PsiPolyVariantReference, ResolveResult[]>>> MY_RESOLVED_CACHED_KEY = Key.create("JS.AllResolvedKey");
-	private static UserDataCache<CachedValue<Map<PsiPolyVariantReference, ResolveResult[]>>, PsiFile,
-			Object> ourCachedResolveCache = new UserDataCache<CachedValue<Map<PsiPolyVariantReference, ResolveResult[]>>, PsiFile, Object>()
+	private static final Key<CachedValue<JSResolveCache>> MY_RESOLVED_CACHED_KEY = Key.create("JS.AllResolvedKey");
+	private static UserDataCache<CachedValue<JSResolveCache>, PsiFile, Object> ourCachedResolveCache = new UserDataCache<CachedValue<JSResolveCache>,
+			PsiFile, Object>()
 	{
 
 		@Override
-		protected CachedValue<Map<PsiPolyVariantReference, ResolveResult[]>> compute(PsiFile file, Object o)
+		protected CachedValue<JSResolveCache> compute(PsiFile file, Object o)
 		{
-			return CachedValuesManager.getManager(file.getProject()).createCachedValue(new CachedValueProvider<Map<PsiPolyVariantReference,
-					ResolveResult[]>>()
+			return CachedValuesManager.getManager(file.getProject()).createCachedValue(new CachedValueProvider<JSResolveCache>()
 			{
 				@Override
-				public Result<Map<PsiPolyVariantReference, ResolveResult[]>> compute()
+				public Result<JSResolveCache> compute()
 				{
-					return new Result<Map<PsiPolyVariantReference, ResolveResult[]>>(Collections.synchronizedMap(new HashMap<PsiPolyVariantReference,
-							ResolveResult[]>()), PsiModificationTracker.MODIFICATION_COUNT);
+					return new Result<JSResolveCache>(new JSResolveCache(), PsiModificationTracker.MODIFICATION_COUNT);
 				}
 			}, false);
 		}
@@ -1789,51 +1786,48 @@ public class JSResolveUtil
 
 	private static PsiElement findClassByQName(final String link, final JavaScriptIndex index, final GlobalSearchScope searchScope)
 	{
-		synchronized(index)
+		PsiElement element = index.recallClass(link, searchScope);
+		if(element != null)
 		{
-			PsiElement element = index.recallClass(link, searchScope);
-			if(element != null)
-			{
-				return element;
-			}
+			return element;
+		}
 
-			final PsiElement[] result = new PsiElement[1];
+		final PsiElement[] result = new PsiElement[1];
 
-			final Collection<JSQualifiedNamedElement> candidates = StubIndex.getInstance().get(JSQualifiedElementIndex.KEY, link,
-					index.getProject(), searchScope);
-			for(JSQualifiedNamedElement clazz : candidates)
+		final Collection<JSQualifiedNamedElement> candidates = StubIndex.getInstance().get(JSQualifiedElementIndex.KEY, link,
+				index.getProject(), searchScope);
+		for(JSQualifiedNamedElement clazz : candidates)
+		{
+			if(link.equals(clazz.getQualifiedName()))
 			{
-				if(link.equals(clazz.getQualifiedName()))
+				if("Object".equals(link) && !JavaScriptIndex.ECMASCRIPT_JS2.equals(clazz.getContainingFile().getVirtualFile().getName()) // object from swf do
+				// not contain necessary members!
+						)
 				{
-					if("Object".equals(link) && !JavaScriptIndex.ECMASCRIPT_JS2.equals(clazz.getContainingFile().getVirtualFile().getName()) // object from swf do
-					// not contain necessary members!
-							)
-					{
-						continue;
-					}
-					result[0] = clazz;
-					break;
+					continue;
 				}
+				result[0] = clazz;
+				break;
 			}
+		}
 
-			if(result[0] == null)
-			{
-				String className = link.substring(link.lastIndexOf('.') + 1);
-				if(className.length() > 0 &&
-						(Character.isUpperCase(className.charAt(0)) || Character.isLowerCase(className.charAt(0))) &&
-						!isBuiltInClassName(className))
-				{
-					// TODO optimization, remove when packages will be properly handled
-					result[0] = findClassByQNameViaHelper(link, index, className, searchScope);
-				}
-			}
-			final PsiElement psiElement = result[0];
-			if(psiElement != null)
+		if(result[0] == null)
+		{
+			String className = link.substring(link.lastIndexOf('.') + 1);
+			if(className.length() > 0 &&
+					(Character.isUpperCase(className.charAt(0)) || Character.isLowerCase(className.charAt(0))) &&
+					!isBuiltInClassName(className))
 			{
-				index.rememberTopLevelClassElement(link, searchScope, psiElement);
+				// TODO optimization, remove when packages will be properly handled
+				result[0] = findClassByQNameViaHelper(link, index, className, searchScope);
 			}
-			return psiElement;
 		}
+		final PsiElement psiElement = result[0];
+		if(psiElement != null)
+		{
+			index.rememberTopLevelClassElement(link, searchScope, psiElement);
+		}
+		return psiElement;
 	}
 
 	private static boolean isBuiltInClassName(final String className)
@@ -1875,39 +1869,36 @@ public class JSResolveUtil
 	{
 		JSPackage jsPackage;
 
-		synchronized(index)
+		final PsiElement element = index.recallPackageElement(qName);
+		if(element != null)
 		{
-			final PsiElement element = index.recallPackageElement(qName);
-			if(element != null)
-			{
-				return element;
-			}
+			return element;
+		}
 
-			jsPackage = index.getDefaultPackage();
-			StringTokenizer tokenizer = new StringTokenizer(qName, ".");
+		jsPackage = index.getDefaultPackage();
+		StringTokenizer tokenizer = new StringTokenizer(qName, ".");
 
-			while(tokenizer.hasMoreElements())
+		while(tokenizer.hasMoreElements())
+		{
+			String nextElement = tokenizer.nextElement();
+			if(nextElement != null)
 			{
-				String nextElement = tokenizer.nextElement();
-				if(nextElement != null)
-				{
-					jsPackage = jsPackage.findPackageWithNameId(index.getIndexOf(nextElement));
-				}
-
-				if(jsPackage == null || nextElement == null)
-				{
-					jsPackage = null;
-					break;
-				}
+				jsPackage = jsPackage.findPackageWithNameId(index.getIndexOf(nextElement));
 			}
 
-			final PsiElement myWrapper = jsPackage != null ? new MyPackageWrapper(jsPackage, index.getProject()) : null;
-			if(myWrapper != null)
+			if(jsPackage == null || nextElement == null)
 			{
-				index.rememberPackageElement(qName, myWrapper);
+				jsPackage = null;
+				break;
 			}
-			return myWrapper;
 		}
+
+		final PsiElement myWrapper = jsPackage != null ? new MyPackageWrapper(jsPackage, index.getProject()) : null;
+		if(myWrapper != null)
+		{
+			index.rememberPackageElement(qName, myWrapper);
+		}
+		return myWrapper;
 	}
 
 	public static class MyPackageWrapper extends PsiElementBase implements JSNamedElement
@@ -2547,19 +2538,25 @@ public class JSResolveUtil
 			return ResolveResult.EMPTY_ARRAY;
 		}
 
-		final Map<PsiPolyVariantReference, ResolveResult[]> resultsMap = ourCachedResolveCache.get(MY_RESOLVED_CACHED_KEY, file, null).getValue();
-		ResolveResult[] results = resultsMap.get(instance);
+		final JSResolveCache cache = getResolveCache(file);
+		ResolveResult[] results = cache.get(instance);
 		if(results != null)
 		{
 			return results;
 		}
 
 		results = resolver.doResolve(instance, file);
-		resultsMap.put(instance, results);
+		cache.put(instance, results);
 
 		return results;
 	}
 
+	@NotNull
+	public static JSResolveCache getResolveCache(@NotNull final PsiFile file)
+	{
+		return ourCachedResolveCache.get(MY_RESOLVED_CACHED_KEY, file, null).getValue();
+	}
+
 	public static void clearResolveCaches(final PsiFile file)
 	{
 		file.putUserData(MY_RESOLVED_CACHED_KEY, null);
@@ -21,6 +21,7 @@ import gnu.trove.TIntObjectHashMap;
 import gnu.trove.TIntObjectIterator;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 
@@ -29,6 +30,9 @@ import javax.swing.Icon;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import com.intellij.codeInsight.completion.CompletionUtil;
+import com.intellij.codeInsight.completion.PrefixMatcher;
+import com.intellij.codeInsight.completion.impl.CamelHumpMatcher;
 import com.intellij.extapi.psi.PsiElementBase;
 import com.intellij.icons.AllIcons;
 import com.intellij.ide.IconDescriptorUpdaters;
@@ -74,6 +78,11 @@ public class VariantsProcessor extends BaseJSSymbolProcessor
 
 	private boolean myAddOnlyCompleteMatchesSet;
 
+	private PrefixMatcher myPrefixMatcher;
+	// name ids already checked against the matcher, and those of them it accepted
+	private final BitSet myCheckedNameIds = new BitSet();
+	private final BitSet myMatchingNameIds = new BitSet();
+
 	@NonNls
 	private static final String INT_TYPE = "int";
 	@NonNls
@@ -301,6 +310,48 @@ public class VariantsProcessor extends BaseJSSymbolProcessor
 		}
 	}
 
+	/**
+	 * Candidates whose names are not accepted by matcher are dropped before lookup items are created for them
+	 */
+	public void setPrefixMatcher(@Nullable PrefixMatcher prefixMatcher)
+	{
+		myPrefixMatcher = prefixMatcher;
+		myCheckedNameIds.clear();
+		myMatchingNameIds.clear();
+	}
+
+	/**
+	 * Matcher for the part of reference name typed before completion dummy identifier, same as completion filters lookup strings with.
+	 * Null when reference is not in completion copy of the file or nothing is typed yet.
+	 */
+	@Nullable
+	public static PrefixMatcher createCompletionPrefixMatcher(@Nullable String referencedName)
+	{
+		final int dummyIdentifierIndex = referencedName != null ? referencedName.indexOf(CompletionUtil.DUMMY_IDENTIFIER_TRIMMED) : -1;
+		if(dummyIdentifierIndex <= 0)
+		{
+			return null;
+		}
+		return new CamelHumpMatcher(referencedName.substring(0, dummyIdentifierIndex));
+	}
+
+	private boolean isMatchingName(int nameId)
+	{
+		if(myPrefixMatcher == null)
+		{
+			return true;
+		}
+		if(!myCheckedNameIds.get(nameId))
+		{
+			myCheckedNameIds.set(nameId);
+			if(myPrefixMatcher.prefixMatches(myIndex.getStringByIndex(nameId)))
+			{
+				myMatchingNameIds.set(nameId);
+			}
+		}
+		return myMatchingNameIds.get(nameId);
+	}
+
 	public void addLocalResults(final List<PsiElement> results)
 	{
 		if(results == null)
@@ -783,7 +834,7 @@ public class VariantsProcessor extends BaseJSSymbolProcessor
 
 	private boolean doAdd(Object element, int nameId, boolean doFilterting)
 	{
-		if(nameId == -1 || (doFilterting && myNames2CandidatesMap.get(nameId) != null))
+		if(nameId == -1 || (doFilterting && myNames2CandidatesMap.get(nameId) != null) || !isMatchingName(nameId))
 		{
 			return false;
 		}
@@ -34,6 +34,4 @@ public interface JSFunctionStub extends JSStubElement<JSFunction>, JSQualifiedSt
 	boolean isConstructor();
 
 	boolean isDeprecated();
-
-	boolean isReferencesArguments();
 }
\ No newline at end of file
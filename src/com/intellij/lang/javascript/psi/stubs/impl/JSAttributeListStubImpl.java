@@ -90,6 +90,17 @@ public class JSAttributeListStubImpl extends StubBase<JSAttributeList> implement
 		return flags;
 	}
 
+	public static int getFlags(JSAttributeList.AccessType accessType, JSAttributeList.ModifierType... modifiers)
+	{
+		int flags = (accessType.ordinal() << VISIBILITY_TAG_SHIFT);
+
+		for(JSAttributeList.ModifierType type : modifiers)
+		{
+			flags = setFlag(flags, type, true);
+		}
+		return flags;
+	}
+
 	private static int getFlagShift(final JSAttributeList.ModifierType modifier)
 	{
 		int shift = -1;
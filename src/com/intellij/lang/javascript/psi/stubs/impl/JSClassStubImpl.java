@@ -43,7 +43,12 @@ public class JSClassStubImpl extends JSQualifiedObjectStubBase<JSClass> implemen
 
 	public static int getFlags(JSClass jsClass)
 	{
-		return (jsClass.isInterface() ? INTERFACE_MASK : 0) | (jsClass.isDeprecated() ? DEPRECATED_MASK : 0);
+		return getFlags(jsClass.isInterface(), jsClass.isDeprecated());
+	}
+
+	public static int getFlags(boolean isInterface, boolean deprecated)
+	{
+		return (isInterface ? INTERFACE_MASK : 0) | (deprecated ? DEPRECATED_MASK : 0);
 	}
 
 	@Override
@@ -34,7 +34,6 @@ public class JSFunctionStubImpl extends JSQualifiedObjectStubBase<JSFunction> im
 	public static final int SET_PROPERTY_MASK = 2;
 	public static final int CONSTRUCTOR_MASK = 4;
 	private static final int DEPRECATED_MASK = 8;
-	private static final int REFERENCES_ARGUMENTS_MASK = 16;
 
 	public JSFunctionStubImpl(final String name,
 			int flags,
@@ -49,9 +48,13 @@ public class JSFunctionStubImpl extends JSQualifiedObjectStubBase<JSFunction> im
 
 	public static int buildFlags(final JSFunction clazz)
 	{
-		final int val = clazz.isConstructor() ? CONSTRUCTOR_MASK : clazz.isGetProperty() ? GET_PROPERTY_MASK : clazz.isSetProperty() ? SET_PROPERTY_MASK
-				: 0;
-		return val | (clazz.isDeprecated() ? DEPRECATED_MASK : 0) | (clazz.isReferencesArguments() ? REFERENCES_ARGUMENTS_MASK : 0);
+		return buildFlags(clazz.isConstructor(), clazz.isGetProperty(), clazz.isSetProperty(), clazz.isDeprecated());
+	}
+
+	public static int buildFlags(boolean constructor, boolean getProperty, boolean setProperty, boolean deprecated)
+	{
+		final int val = constructor ? CONSTRUCTOR_MASK : getProperty ? GET_PROPERTY_MASK : setProperty ? SET_PROPERTY_MASK : 0;
+		return val | (deprecated ? DEPRECATED_MASK : 0);
 	}
 
 	@Override
@@ -78,12 +81,6 @@ public class JSFunctionStubImpl extends JSQualifiedObjectStubBase<JSFunction> im
 		return (myFlags & DEPRECATED_MASK) != 0;
 	}
 
-	@Override
-	public boolean isReferencesArguments()
-	{
-		return (myFlags & REFERENCES_ARGUMENTS_MASK) != 0;
-	}
-
 	@Override
 	public String getReturnTypeString()
 	{
@@ -50,6 +50,11 @@ public class JSParameterStubImpl extends JSVariableStubBaseImpl<JSParameter> imp
 		return i | (clazz.isRest() ? REST_MASK : 0) | (clazz.isOptional() ? OPTIONAL_MASK : 0);
 	}
 
+	public static int buildFlags(boolean deprecated, boolean rest, boolean optional)
+	{
+		return JSVariableStubBaseImpl.buildFlags(deprecated, false, false) | (rest ? REST_MASK : 0) | (optional ? OPTIONAL_MASK : 0);
+	}
+
 	@Override
 	public boolean isRest()
 	{
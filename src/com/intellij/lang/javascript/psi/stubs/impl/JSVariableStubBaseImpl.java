@@ -46,7 +46,12 @@ public abstract class JSVariableStubBaseImpl<T extends JSVariable> extends JSQua
 
 	public static int buildFlags(final JSVariable clazz)
 	{
-		return (clazz.isDeprecated() ? DEPRECATED_MASK : 0) | (clazz.isConst() ? CONST_MASK : clazz.isLocal() ? LOCAL_MASK : 0);
+		return buildFlags(clazz.isDeprecated(), clazz.isConst(), clazz.isLocal());
+	}
+
+	public static int buildFlags(boolean deprecated, boolean isConst, boolean local)
+	{
+		return (deprecated ? DEPRECATED_MASK : 0) | (isConst ? CONST_MASK : local ? LOCAL_MASK : 0);
 	}
 
 	@Override
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.lang.javascript.psi.util;
+
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import com.intellij.lang.javascript.psi.*;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataCache;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
+
+/**
+ * Statement level control flow of a function or of file top level: statements that may complete normally, statements left by
+ * break / continue, reachability, exit points and loops. Built in one pass over the owner, nested functions have their own flow.
+ * Cached until the containing file changes.
+ */
+public class JSControlFlow
+{
+	private static final Key<CachedValue<JSControlFlow>> CONTROL_FLOW_KEY = Key.create("JS.ControlFlow");
+	private static final UserDataCache<CachedValue<JSControlFlow>, PsiElement, Object> ourControlFlowCache = new
+			UserDataCache<CachedValue<JSControlFlow>, PsiElement, Object>()
+	{
+		@Override
+		protected CachedValue<JSControlFlow> compute(final PsiElement owner, Object o)
+		{
+			return CachedValuesManager.getManager(owner.getProject()).createCachedValue(new CachedValueProvider<JSControlFlow>()
+			{
+				@Override
+				public Result<JSControlFlow> compute()
+				{
+					return new Result<JSControlFlow>(new JSControlFlow(owner), owner);
+				}
+			}, false);
+		}
+	};
+
+	@NonNls
+	private static final String TRUE = "true";
+
+	private static final class Frame
+	{
+		final int depth;
+		// depth of outermost statement left by break / continue from inside, statements on the path down to that depth are exited
+		int breakOutDepth = Integer.MAX_VALUE;
+		int continueOutDepth = Integer.MAX_VALUE;
+
+		Frame(int depth)
+		{
+			this.depth = depth;
+		}
+	}
+
+	private final Set<JSStatement> myStatements = new THashSet<JSStatement>();
+	private final Set<JSStatement> myAbruptStatements = new THashSet<JSStatement>();
+	private final Set<JSStatement> myUnreachableStatements = new THashSet<JSStatement>();
+	private final Set<JSStatement> myBreakTargets = new THashSet<JSStatement>();
+	private final Set<JSStatement> myContinueTargets = new THashSet<JSStatement>();
+	private final Set<JSStatement> myDirectBreakTargets = new THashSet<JSStatement>();
+	private final Set<JSStatement> myDirectContinueTargets = new THashSet<JSStatement>();
+	private final List<JSStatement> myExitPoints = new ArrayList<JSStatement>();
+	private final List<JSLoopStatement> myLoops = new ArrayList<JSLoopStatement>();
+
+	private List<Frame> myFrames = new ArrayList<Frame>();
+	private Map<JSStatement, Frame> myOpenFrames = new THashMap<JSStatement, Frame>();
+
+	private JSControlFlow(@NotNull PsiElement owner)
+	{
+		if(owner instanceof JSStatement)
+		{
+			visitStatement((JSStatement) owner, true);
+		}
+		else
+		{
+			visitChildren(owner, true);
+		}
+		myFrames = null;
+		myOpenFrames = null;
+	}
+
+	/**
+	 * Flow of the function or file the statement belongs to
+	 */
+	@NotNull
+	public static JSControlFlow getControlFlow(@NotNull JSStatement statement)
+	{
+		final PsiElement owner = PsiTreeUtil.getParentOfType(statement, JSFunction.class, PsiFile.class);
+		if(owner != null)
+		{
+			final JSControlFlow flow = getCachedControlFlow(owner);
+			if(flow.myStatements.contains(statement))
+			{
+				return flow;
+			}
+		}
+		return new JSControlFlow(statement);
+	}
+
+	@NotNull
+	public static JSControlFlow getControlFlow(@NotNull JSFunction function)
+	{
+		return getCachedControlFlow(function);
+	}
+
+	@NotNull
+	private static JSControlFlow getCachedControlFlow(@NotNull PsiElement owner)
+	{
+		if(!owner.isPhysical())
+		{
+			return new JSControlFlow(owner);
+		}
+		return ourControlFlowCache.get(CONTROL_FLOW_KEY, owner, null).getValue();
+	}
+
+	public boolean mayCompleteNormally(@Nullable JSStatement statement)
+	{
+		return statement == null || !myAbruptStatements.contains(statement);
+	}
+
+	/**
+	 * Statement is left by some break inside it, either its own or one exiting an enclosing statement
+	 */
+	public boolean isBreakTarget(@NotNull JSStatement statement)
+	{
+		return myBreakTargets.contains(statement);
+	}
+
+	public boolean isContinueTarget(@NotNull JSStatement statement)
+	{
+		return myContinueTargets.contains(statement);
+	}
+
+	/**
+	 * Some break inside the statement targets exactly this statement
+	 */
+	public boolean hasBreakTo(@NotNull JSStatement statement)
+	{
+		return myDirectBreakTargets.contains(statement);
+	}
+
+	public boolean hasContinueTo(@NotNull JSStatement statement)
+	{
+		return myDirectContinueTargets.contains(statement);
+	}
+
+	/**
+	 * False for statements following in their block a statement that can not complete normally, and for everything inside them
+	 */
+	public boolean isReachable(@NotNull JSStatement statement)
+	{
+		return !myUnreachableStatements.contains(statement);
+	}
+
+	/**
+	 * Return and throw statements, in source order
+	 */
+	@NotNull
+	public List<JSStatement> getExitPoints()
+	{
+		return Collections.unmodifiableList(myExitPoints);
+	}
+
+	@NotNull
+	public List<JSLoopStatement> getLoops()
+	{
+		return Collections.unmodifiableList(myLoops);
+	}
+
+	private void visitChildren(@NotNull PsiElement element, boolean reachable)
+	{
+		final boolean sequential = !(element instanceof JSStatement) || element instanceof JSBlockStatement;
+		boolean childReachable = reachable;
+
+		for(PsiElement child = element.getFirstChild(); child != null; child = child.getNextSibling())
+		{
+			if(child instanceof JSFunction)
+			{
+				continue;
+			}
+			if(child instanceof JSStatement)
+			{
+				final JSStatement statement = (JSStatement) child;
+				visitStatement(statement, childReachable);
+				if(sequential && myAbruptStatements.contains(statement))
+				{
+					childReachable = false;
+				}
+			}
+			else
+			{
+				visitChildren(child, childReachable);
+			}
+		}
+	}
+
+	private void visitStatement(@NotNull JSStatement statement, boolean reachable)
+	{
+		final Frame frame = new Frame(myFrames.size());
+		myFrames.add(frame);
+		myOpenFrames.put(statement, frame);
+		myStatements.add(statement);
+		if(!reachable)
+		{
+			myUnreachableStatements.add(statement);
+		}
+
+		if(statement instanceof JSBreakStatement)
+		{
+			final JSStatement target = ((JSBreakStatement) statement).getStatementToBreak();
+			if(target != null)
+			{
+				frame.breakOutDepth = getDepth(target);
+				myDirectBreakTargets.add(target);
+			}
+		}
+		else if(statement instanceof JSContinueStatement)
+		{
+			final JSStatement target = ((JSContinueStatement) statement).getStatementToContinue();
+			if(target != null)
+			{
+				frame.continueOutDepth = getDepth(target);
+				myDirectContinueTargets.add(target);
+			}
+		}
+		else if(statement instanceof JSReturnStatement || statement instanceof JSThrowStatement)
+		{
+			myExitPoints.add(statement);
+		}
+		else if(statement instanceof JSLoopStatement)
+		{
+			myLoops.add((JSLoopStatement) statement);
+		}
+
+		visitChildren(statement, reachable);
+
+		myFrames.remove(myFrames.size() - 1);
+		myOpenFrames.remove(statement);
+		if(frame.breakOutDepth <= frame.depth)
+		{
+			myBreakTargets.add(statement);
+		}
+		if(frame.continueOutDepth <= frame.depth)
+		{
+			myContinueTargets.add(statement);
+		}
+		if(!myFrames.isEmpty())
+		{
+			final Frame parent = myFrames.get(myFrames.size() - 1);
+			parent.breakOutDepth = Math.min(parent.breakOutDepth, frame.breakOutDepth);
+			parent.continueOutDepth = Math.min(parent.continueOutDepth, frame.continueOutDepth);
+		}
+
+		if(!computeMayCompleteNormally(statement))
+		{
+			myAbruptStatements.add(statement);
+		}
+	}
+
+	private int getDepth(@NotNull JSStatement target)
+	{
+		final Frame frame = myOpenFrames.get(target);
+		// target outside of the flow owner encloses every statement here
+		return frame != null ? frame.depth : -1;
+	}
+
+	// sub statements are already computed
+	private boolean computeMayCompleteNormally(@NotNull JSStatement statement)
+	{
+		if(statement instanceof JSBreakStatement ||
+				statement instanceof JSContinueStatement ||
+				statement instanceof JSReturnStatement ||
+				statement instanceof JSThrowStatement)
+		{
+			return false;
+		}
+		else if(statement instanceof JSForStatement)
+		{
+			final JSExpression condition = ((JSForStatement) statement).getCondition();
+			return isBreakTarget(statement) || condition != null && !isTrue(condition);
+		}
+		else if(statement instanceof JSWhileStatement)
+		{
+			return !isTrue(((JSWhileStatement) statement).getCondition()) || isBreakTarget(statement);
+		}
+		else if(statement instanceof JSDoWhileStatement)
+		{
+			final JSDoWhileStatement doWhileStatement = (JSDoWhileStatement) statement;
+			return mayCompleteNormally(doWhileStatement.getBody()) && !isTrue(doWhileStatement.getCondition()) || isBreakTarget(statement);
+		}
+		else if(statement instanceof JSBlockStatement)
+		{
+			for(JSStatement child : ((JSBlockStatement) statement).getStatements())
+			{
+				if(!mayCompleteNormally(child))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+		else if(statement instanceof JSLabeledStatement)
+		{
+			final JSStatement body = ((JSLabeledStatement) statement).getStatement();
+			return mayCompleteNormally(body) || body != null && isBreakTarget(body);
+		}
+		else if(statement instanceof JSIfStatement)
+		{
+			final JSIfStatement ifStatement = (JSIfStatement) statement;
+			return mayCompleteNormally(ifStatement.getThen()) || ifStatement.getElse() == null || mayCompleteNormally(ifStatement.getElse());
+		}
+		else if(statement instanceof JSTryStatement)
+		{
+			final JSTryStatement tryStatement = (JSTryStatement) statement;
+			if(!mayCompleteNormally(tryStatement.getFinallyStatement()))
+			{
+				return false;
+			}
+			if(mayCompleteNormally(tryStatement.getStatement()))
+			{
+				return true;
+			}
+			final JSCatchBlock catchBlock = tryStatement.getCatchBlock();
+			return catchBlock != null && mayCompleteNormally(catchBlock.getStatement());
+		}
+		else if(statement instanceof JSSwitchStatement)
+		{
+			return switchMayCompleteNormally((JSSwitchStatement) statement);
+		}
+		else if(statement instanceof JSWithStatement)
+		{
+			return mayCompleteNormally(((JSWithStatement) statement).getStatement());
+		}
+		// expression, var, empty, for-in and unknown statements
+		return true;
+	}
+
+	private boolean switchMayCompleteNormally(@NotNull JSSwitchStatement switchStatement)
+	{
+		if(isBreakTarget(switchStatement))
+		{
+			return true;
+		}
+		final JSCaseClause[] caseClauses = switchStatement.getCaseClauses();
+		if(caseClauses.length == 0)
+		{
+			return true;
+		}
+
+		boolean hasDefaultCase = false;
+		for(JSCaseClause clause : caseClauses)
+		{
+			if(clause.isDefault())
+			{
+				hasDefaultCase = true;
+			}
+		}
+		if(!hasDefaultCase)
+		{
+			return true;
+		}
+
+		final JSStatement[] statements = caseClauses[caseClauses.length - 1].getStatements();
+		return statements.length == 0 || mayCompleteNormally(statements[statements.length - 1]);
+	}
+
+	private static boolean isTrue(@Nullable JSExpression condition)
+	{
+		return condition != null && TRUE.equals(condition.getText());
+	}
+}
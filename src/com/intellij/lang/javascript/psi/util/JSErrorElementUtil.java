@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.lang.javascript.psi.util;
+
+import org.jetbrains.annotations.NotNull;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataCache;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiErrorElement;
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+
+/**
+ * Exact "subtree has a syntax error" check. Only the queried subtree is walked, up to the first error element, and the answer
+ * is cached on the element until the next psi change, so the cost depends on the subtree size and not on the file size.
+ */
+public class JSErrorElementUtil
+{
+	private static final Key<CachedValue<Boolean>> CONTAINS_ERROR_KEY = Key.create("JS.ContainsError");
+	private static final UserDataCache<CachedValue<Boolean>, PsiElement, Object> ourContainsErrorCache = new UserDataCache<CachedValue<Boolean>,
+			PsiElement, Object>()
+	{
+		@Override
+		protected CachedValue<Boolean> compute(final PsiElement element, Object o)
+		{
+			return CachedValuesManager.getManager(element.getProject()).createCachedValue(new CachedValueProvider<Boolean>()
+			{
+				@Override
+				public Result<Boolean> compute()
+				{
+					return new Result<Boolean>(hasErrorElement(element), PsiModificationTracker.MODIFICATION_COUNT);
+				}
+			}, false);
+		}
+	};
+
+	private JSErrorElementUtil()
+	{
+	}
+
+	public static boolean containsErrorElement(@NotNull PsiElement element)
+	{
+		if(element instanceof PsiErrorElement)
+		{
+			return true;
+		}
+		if(!element.isPhysical())
+		{
+			return hasErrorElement(element);
+		}
+		return ourContainsErrorCache.get(CONTAINS_ERROR_KEY, element, null).getValue();
+	}
+
+	private static boolean hasErrorElement(@NotNull PsiElement root)
+	{
+		final boolean[] result = new boolean[1];
+		root.accept(new PsiRecursiveElementWalkingVisitor()
+		{
+			@Override
+			public void visitErrorElement(PsiErrorElement element)
+			{
+				result[0] = true;
+				stopWalking();
+			}
+		});
+		return result[0];
+	}
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.lang.javascript.psi.util;
+
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.javascript.psi.*;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataCache;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.SmartList;
+
+/**
+ * Scopes of local names (parameters, variables, nested function declarations, catch parameters) of a top level function
+ * and the declarations its unqualified references bind to. Built in one pass without resolve or index, cached on the top
+ * level function until the containing file changes. Names not declared in any enclosing function are not local and are left to
+ * the resolver, names used inside a with statement body can not be bound statically.
+ */
+public class JSLocalBindings
+{
+	private static final Key<CachedValue<JSLocalBindings>> LOCAL_BINDINGS_KEY = Key.create("JS.LocalBindings");
+	private static final UserDataCache<CachedValue<JSLocalBindings>, JSFunction, Object> ourLocalBindingsCache = new
+			UserDataCache<CachedValue<JSLocalBindings>, JSFunction, Object>()
+	{
+		@Override
+		protected CachedValue<JSLocalBindings> compute(final JSFunction function, Object o)
+		{
+			return CachedValuesManager.getManager(function.getProject()).createCachedValue(new CachedValueProvider<JSLocalBindings>()
+			{
+				@Override
+				public Result<JSLocalBindings> compute()
+				{
+					return new Result<JSLocalBindings>(new JSLocalBindings(function), function);
+				}
+			}, false);
+		}
+	};
+
+	@NonNls
+	private static final String ARGUMENTS = "arguments";
+
+	private enum ScopeKind
+	{
+		FUNCTION,
+		FUNCTION_EXPRESSION_NAME,
+		CATCH,
+		WITH
+	}
+
+	private static final class Scope
+	{
+		final ScopeKind kind;
+		final Scope parent;
+		final PsiElement owner;
+		final Map<String, List<JSNamedElement>> declarations = new THashMap<String, List<JSNamedElement>>();
+
+		Scope(@NotNull ScopeKind kind, @Nullable Scope parent, @NotNull PsiElement owner)
+		{
+			this.kind = kind;
+			this.parent = parent;
+			this.owner = owner;
+		}
+
+		@NotNull
+		Scope getFunctionScope()
+		{
+			Scope scope = this;
+			while(scope.kind != ScopeKind.FUNCTION)
+			{
+				scope = scope.parent;
+			}
+			return scope;
+		}
+	}
+
+	private final Map<JSReferenceExpression, JSNamedElement[]> myBindings = new THashMap<JSReferenceExpression, JSNamedElement[]>();
+	private final Map<JSNamedElement, List<JSReferenceExpression>> myReferences = new THashMap<JSNamedElement, List<JSReferenceExpression>>();
+	private final Map<JSFunction, List<JSNamedElement>> myFunctionDeclarations = new THashMap<JSFunction, List<JSNamedElement>>();
+	private final Set<JSFunction> myArgumentsUsers = new THashSet<JSFunction>();
+	private final Set<String> myDynamicNames = new THashSet<String>();
+
+	private JSLocalBindings(@NotNull JSFunction root)
+	{
+		final List<JSReferenceExpression> references = new ArrayList<JSReferenceExpression>();
+		final List<Scope> referenceScopes = new ArrayList<Scope>();
+		visitFunction(root, null, references, referenceScopes);
+
+		// names are hoisted, so references are bound once all declarations are known
+		for(int i = 0; i < references.size(); i++)
+		{
+			bind(references.get(i), referenceScopes.get(i));
+		}
+	}
+
+	/**
+	 * Bindings of the top level function enclosing the element, null for elements outside of functions
+	 */
+	@Nullable
+	public static JSLocalBindings getBindings(@NotNull PsiElement element)
+	{
+		JSFunction root = null;
+		for(JSFunction function = PsiTreeUtil.getParentOfType(element, JSFunction.class, false); function != null; function = PsiTreeUtil
+				.getParentOfType(function, JSFunction.class))
+		{
+			root = function;
+		}
+		if(root == null)
+		{
+			return null;
+		}
+		if(!root.isPhysical())
+		{
+			return new JSLocalBindings(root);
+		}
+		return ourLocalBindingsCache.get(LOCAL_BINDINGS_KEY, root, null).getValue();
+	}
+
+	/**
+	 * @return local declarations the unqualified reference binds to, null if the name is not local or is used inside a with statement
+	 */
+	@Nullable
+	public JSNamedElement[] getDeclarations(@NotNull JSReferenceExpression reference)
+	{
+		return myBindings.get(reference);
+	}
+
+	@NotNull
+	public List<JSReferenceExpression> getReferences(@NotNull JSNamedElement declaration)
+	{
+		final List<JSReferenceExpression> references = myReferences.get(declaration);
+		return references != null ? Collections.unmodifiableList(references) : Collections.<JSReferenceExpression>emptyList();
+	}
+
+	public boolean isLocalDeclaration(@NotNull JSNamedElement declaration)
+	{
+		return myReferences.containsKey(declaration);
+	}
+
+	/**
+	 * Parameters, variables and nested function declarations scoped to the function, in source order
+	 */
+	@NotNull
+	public List<JSNamedElement> getLocalDeclarations(@NotNull JSFunction function)
+	{
+		final List<JSNamedElement> declarations = myFunctionDeclarations.get(function);
+		return declarations != null ? Collections.unmodifiableList(declarations) : Collections.<JSNamedElement>emptyList();
+	}
+
+	/**
+	 * Name is referenced inside a with statement body, any declaration with it may be used
+	 */
+	public boolean isReferencedDynamically(@Nullable String name)
+	{
+		return name != null && myDynamicNames.contains(name);
+	}
+
+	public boolean usesArguments(@NotNull JSFunction function)
+	{
+		return myArgumentsUsers.contains(function);
+	}
+
+	private void visitFunction(@NotNull JSFunction function, @Nullable Scope parent, @NotNull List<JSReferenceExpression> references,
+			@NotNull List<Scope> referenceScopes)
+	{
+		Scope scope = parent;
+		if(function instanceof JSFunctionExpression)
+		{
+			scope = new Scope(ScopeKind.FUNCTION_EXPRESSION_NAME, scope, function);
+			declare(scope, function);
+		}
+		scope = new Scope(ScopeKind.FUNCTION, scope, function);
+		myFunctionDeclarations.put(function, new ArrayList<JSNamedElement>());
+		visitChildren(function, scope, references, referenceScopes);
+	}
+
+	private void visitChildren(@NotNull PsiElement element, @NotNull Scope scope, @NotNull List<JSReferenceExpression> references,
+			@NotNull List<Scope> referenceScopes)
+	{
+		final JSStatement withBody = element instanceof JSWithStatement ? ((JSWithStatement) element).getStatement() : null;
+
+		for(PsiElement child = element.getFirstChild(); child != null; child = child.getNextSibling())
+		{
+			if(child instanceof JSFunction)
+			{
+				final JSFunction function = (JSFunction) child;
+				if(isFunctionDeclaration(function))
+				{
+					declare(scope.getFunctionScope(), function);
+				}
+				visitFunction(function, scope, references, referenceScopes);
+			}
+			else if(child instanceof JSCatchBlock)
+			{
+				visitChildren(child, new Scope(ScopeKind.CATCH, scope, child), references, referenceScopes);
+			}
+			else if(child == withBody)
+			{
+				visitChildren(child, new Scope(ScopeKind.WITH, scope, element), references, referenceScopes);
+			}
+			else
+			{
+				if(child instanceof JSParameter)
+				{
+					declare(scope, (JSNamedElement) child);
+				}
+				else if(child instanceof JSVariable)
+				{
+					declare(scope.getFunctionScope(), (JSNamedElement) child);
+				}
+				else if(child instanceof JSReferenceExpression && ((JSReferenceExpression) child).getQualifier() == null && !isDeclarationName(child))
+				{
+					references.add((JSReferenceExpression) child);
+					referenceScopes.add(scope);
+				}
+				visitChildren(child, scope, references, referenceScopes);
+			}
+		}
+	}
+
+	private void declare(@NotNull Scope scope, @NotNull JSNamedElement declaration)
+	{
+		final String name = declaration.getName();
+		if(name == null || name.length() == 0)
+		{
+			return;
+		}
+		List<JSNamedElement> declarations = scope.declarations.get(name);
+		if(declarations == null)
+		{
+			declarations = new SmartList<JSNamedElement>();
+			scope.declarations.put(name, declarations);
+		}
+		declarations.add(declaration);
+		myReferences.put(declaration, new SmartList<JSReferenceExpression>());
+		if(scope.kind == ScopeKind.FUNCTION)
+		{
+			myFunctionDeclarations.get(scope.owner).add(declaration);
+		}
+	}
+
+	private void bind(@NotNull JSReferenceExpression reference, @NotNull Scope scope)
+	{
+		final String name = reference.getReferencedName();
+		if(name == null)
+		{
+			return;
+		}
+
+		for(Scope current = scope; current != null; current = current.parent)
+		{
+			if(current.kind == ScopeKind.WITH)
+			{
+				myDynamicNames.add(name);
+				return;
+			}
+			final List<JSNamedElement> declarations = current.declarations.get(name);
+			if(declarations != null)
+			{
+				myBindings.put(reference, declarations.toArray(new JSNamedElement[declarations.size()]));
+				for(JSNamedElement declaration : declarations)
+				{
+					myReferences.get(declaration).add(reference);
+				}
+				return;
+			}
+		}
+
+		if(ARGUMENTS.equals(name))
+		{
+			myArgumentsUsers.add((JSFunction) scope.getFunctionScope().owner);
+		}
+	}
+
+	// function declarations introduce a name into enclosing function scope, function expressions and object literal accessors do not
+	private static boolean isFunctionDeclaration(@NotNull JSFunction function)
+	{
+		return !(function instanceof JSFunctionExpression) && !(function.getParent() instanceof JSProperty);
+	}
+
+	private static boolean isDeclarationName(@NotNull PsiElement reference)
+	{
+		final PsiElement parent = reference.getParent();
+		if(parent instanceof JSFunction)
+		{
+			return true;
+		}
+		if(parent instanceof JSVariable)
+		{
+			final ASTNode nameIdentifier = ((JSVariable) parent).findNameIdentifier();
+			return nameIdentifier != null && nameIdentifier.getPsi() == reference;
+		}
+		return false;
+	}
+}
@@ -22,6 +22,9 @@ import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.javascript.JSTokenTypes;
 import com.intellij.lang.javascript.psi.JSAttribute;
 import com.intellij.lang.javascript.psi.JSStubElementType;
 import com.intellij.lang.javascript.psi.impl.JSAttributeImpl;
@@ -65,6 +68,12 @@ public class JSAttributeElementType extends JSStubElementType<JSAttributeStub, J
 		return new JSAttributeStubImpl(psi.getName(), 0, parentStub);
 	}
 
+	@Override
+	public JSAttributeStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		return new JSAttributeStubImpl(JSLightTreeUtil.getChildText(tree, node, JSTokenTypes.IDENTIFIER), 0, parentStub);
+	}
+
 	@Override
 	public void serialize(@NotNull JSAttributeStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
@@ -22,6 +22,9 @@ import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.javascript.JSElementTypes;
 import com.intellij.lang.javascript.psi.JSAttributeList;
 import com.intellij.lang.javascript.psi.JSStubElementType;
 import com.intellij.lang.javascript.psi.impl.JSAttributeListImpl;
@@ -67,6 +70,14 @@ public class JSAttributeListElementType extends JSStubElementType<JSAttributeLis
 		return new JSAttributeListStubImpl(namespace, flags, parentStub, this);
 	}
 
+	@Override
+	public JSAttributeListStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		String namespace = JSLightTreeUtil.getChildText(tree, node, JSElementTypes.REFERENCE_EXPRESSION);
+		int flags = JSAttributeListStubImpl.getFlags(JSLightTreeUtil.getAccessType(tree, node), JSLightTreeUtil.getModifiers(tree, node));
+		return new JSAttributeListStubImpl(namespace, flags, parentStub, this);
+	}
+
 	@Override
 	public void serialize(@NotNull JSAttributeListStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
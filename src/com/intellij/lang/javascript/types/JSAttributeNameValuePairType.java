@@ -22,6 +22,9 @@ import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.javascript.JSTokenTypes;
 import com.intellij.lang.javascript.psi.JSAttributeNameValuePair;
 import com.intellij.lang.javascript.psi.JSStubElementType;
 import com.intellij.lang.javascript.psi.impl.JSAttributeNameValuePairImpl;
@@ -67,6 +70,14 @@ public class JSAttributeNameValuePairType extends JSStubElementType<JSAttributeN
 		return new JSAttributeNameValuePairStubImpl(name, simpleValue, parentStub);
 	}
 
+	@Override
+	public JSAttributeNameValuePairStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		String name = JSLightTreeUtil.getChildText(tree, node, JSTokenTypes.IDENTIFIER);
+		String simpleValue = JSLightTreeUtil.getSimpleValue(tree, node);
+		return new JSAttributeNameValuePairStubImpl(name, simpleValue, parentStub);
+	}
+
 	@Override
 	public void serialize(@NotNull JSAttributeNameValuePairStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.lang.javascript.types;
+
+import org.jetbrains.annotations.NotNull;
+import org.mustbe.consulo.javascript.lang.parsing.JavaScriptParser;
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.Language;
+import com.intellij.lang.LanguageVersion;
+import com.intellij.lang.LanguageVersionWithParsing;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.LighterLazyParseableNode;
+import com.intellij.lang.PsiBuilder;
+import com.intellij.lang.PsiBuilderFactory;
+import com.intellij.lang.PsiParser;
+import com.intellij.lang.javascript.JSTokenTypes;
+import com.intellij.lang.javascript.JavascriptLanguage;
+import com.intellij.lang.javascript.psi.impl.JSBlockStatementImpl;
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.IElementTypeAsPsiFactory;
+import com.intellij.psi.tree.ILightLazyParseableElementType;
+import com.intellij.psi.tree.IReparseableElementType;
+import com.intellij.util.diff.FlyweightCapableTreeStructure;
+
+/**
+ * Block statement. Function bodies are collapsed by the parser into chameleons of this type and parsed on first access,
+ * other blocks are built eagerly. Any block with balanced braces can be reparsed alone. Collapsed bodies are expanded in the light
+ * tree too, when stubs need something from inside of a function body.
+ */
+public class JSBlockStatementElementType extends IReparseableElementType implements IElementTypeAsPsiFactory, ILightLazyParseableElementType
+{
+	public JSBlockStatementElementType()
+	{
+		super("BLOCK_STATEMENT", JavascriptLanguage.INSTANCE);
+	}
+
+	@Override
+	public ASTNode parseContents(final ASTNode chameleon)
+	{
+		final ASTNode parentNode = chameleon.getTreeParent();
+		final PsiElement parentElement = parentNode.getPsi();
+		final Project project = parentElement.getProject();
+		final LanguageVersion languageVersion = parentElement.getLanguageVersion();
+
+		final PsiParser parser = ((LanguageVersionWithParsing) languageVersion).createParser(project);
+		final Lexer lexer = ((LanguageVersionWithParsing) languageVersion).createLexer(project);
+		final PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(project, chameleon, lexer, getLanguage(), languageVersion,
+				chameleon.getChars());
+
+		final boolean functionBody = parentNode.getElementType() instanceof JSFunctionElementType;
+		return ((JavaScriptParser) parser).parseBlock(this, builder, functionBody).getFirstChildNode();
+	}
+
+	@Override
+	public FlyweightCapableTreeStructure<LighterASTNode> parseContents(LighterLazyParseableNode chameleon)
+	{
+		final PsiFile file = chameleon.getContainingFile();
+		final Project project = file.getProject();
+		final LanguageVersion languageVersion = file.getLanguageVersion();
+
+		final PsiParser parser = ((LanguageVersionWithParsing) languageVersion).createParser(project);
+		final Lexer lexer = ((LanguageVersionWithParsing) languageVersion).createLexer(project);
+		final PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(project, chameleon, lexer, getLanguage(), languageVersion,
+				chameleon.getText());
+
+		// only function bodies are collapsed
+		return ((JavaScriptParser) parser).parseBlockLight(this, builder, true);
+	}
+
+	/**
+	 * Language version of the file is not known here, so the buffer is lexed by every version able to parse and has to be one block
+	 * for all of them. Blocks with statements stubbed inside of function bodies are never reparsed alone, as the parser keeps such
+	 * bodies eager.
+	 */
+	@Override
+	public boolean isParsable(CharSequence buffer, Language fileLanguage, Project project)
+	{
+		for(LanguageVersion<?> languageVersion : getLanguage().getVersions())
+		{
+			if(languageVersion instanceof LanguageVersionWithParsing && !isParsable(((LanguageVersionWithParsing) languageVersion).createLexer(project),
+					buffer))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isParsable(Lexer lexer, CharSequence buffer)
+	{
+		lexer.start(buffer);
+		if(lexer.getTokenType() != JSTokenTypes.LBRACE)
+		{
+			return false;
+		}
+
+		int depth = 0;
+		IElementType tokenType;
+		while((tokenType = lexer.getTokenType()) != null)
+		{
+			if(tokenType == JSTokenTypes.LBRACE)
+			{
+				depth++;
+			}
+			else if(tokenType == JSTokenTypes.RBRACE)
+			{
+				depth--;
+				if(depth == 0)
+				{
+					lexer.advance();
+					return lexer.getTokenType() == null;
+				}
+			}
+			else if(tokenType == JSTokenTypes.IMPORT_KEYWORD || tokenType == JSTokenTypes.USE_KEYWORD)
+			{
+				return false;
+			}
+			lexer.advance();
+		}
+		return false;
+	}
+
+	@NotNull
+	@Override
+	public PsiElement createElement(@NotNull ASTNode astNode)
+	{
+		return new JSBlockStatementImpl(astNode);
+	}
+}
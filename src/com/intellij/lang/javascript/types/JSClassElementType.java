@@ -21,7 +21,11 @@ import java.io.IOException;
 
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
+import com.intellij.javascript.documentation.JSDocumentationUtils;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.javascript.JSTokenTypes;
 import com.intellij.lang.javascript.psi.JSClass;
 import com.intellij.lang.javascript.psi.impl.JSClassImpl;
 import com.intellij.lang.javascript.psi.stubs.JSClassStub;
@@ -67,6 +71,16 @@ public class JSClassElementType extends JSQualifiedStubElementType<JSClassStub,
 		return new JSClassStubImpl(name, flags, qualifiedName, parentStub, this);
 	}
 
+	@Override
+	public JSClassStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		String name = JSLightTreeUtil.getName(tree, node);
+		boolean isInterface = JSLightTreeUtil.findChildByType(tree, node, JSTokenTypes.INTERFACE_KEYWORD) != null;
+		int flags = JSClassStubImpl.getFlags(isInterface, JSDocumentationUtils.calculateDeprecated(tree, node));
+		String qualifiedName = JSLightTreeUtil.getQName(tree, node);
+		return new JSClassStubImpl(name, flags, qualifiedName, parentStub, this);
+	}
+
 	@Override
 	public void serialize(@NotNull JSClassStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
@@ -16,22 +16,150 @@
  */
 package com.intellij.lang.javascript.types;
 
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
 import org.jetbrains.annotations.NotNull;
+import org.mustbe.consulo.javascript.lang.parsing.JavaScriptParser;
+import com.intellij.lang.ASTNode;
 import com.intellij.lang.Language;
-import com.intellij.psi.tree.IStubFileElementType;
+import com.intellij.lang.LanguageVersion;
+import com.intellij.lang.LanguageVersionWithParsing;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.PsiBuilder;
+import com.intellij.lang.PsiBuilderFactory;
+import com.intellij.lang.PsiParser;
+import com.intellij.lang.javascript.psi.JSStubElementType;
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.StubBuilder;
+import com.intellij.psi.impl.DebugUtil;
+import com.intellij.psi.stubs.DefaultStubBuilder;
+import com.intellij.psi.stubs.LightStubBuilder;
+import com.intellij.psi.stubs.SerializationManagerEx;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.tree.ILightStubFileElementType;
+import com.intellij.util.diff.FlyweightCapableTreeStructure;
 
 /**
+ * Stubs can be built from the light tree of the file, so psi is not created while indexing. Until the light stubs are checked against
+ * the psi ones (js.stubs.builder=verify over the bundled sdk sources) psi stays the default, js.stubs.builder=light switches indexing
+ * to the light tree. Lazy function bodies stay collapsed either way.
+ *
  * @author peter
  */
-public class JSFileElementType extends IStubFileElementType
+public class JSFileElementType extends ILightStubFileElementType
 {
-	public static final int VERSION = 25;
+	public static final int VERSION = 29;
+
+	private static final Logger LOG = Logger.getInstance(JSFileElementType.class);
+
+	// psi, light or verify
+	private static final String STUB_BUILDER = System.getProperty("js.stubs.builder", "psi");
 
 	public JSFileElementType(final Language language)
 	{
 		super(language);
 	}
 
+	@Override
+	public StubBuilder getBuilder()
+	{
+		if("light".equals(STUB_BUILDER))
+		{
+			return new JSLightStubBuilder();
+		}
+		if("verify".equals(STUB_BUILDER))
+		{
+			return new JSVerifyingStubBuilder();
+		}
+		return createPsiStubBuilder();
+	}
+
+	private static StubBuilder createPsiStubBuilder()
+	{
+		return new DefaultStubBuilder()
+		{
+			@Override
+			public boolean skipChildProcessingWhenBuildingStubs(@NotNull ASTNode parent, @NotNull ASTNode node)
+			{
+				// keeps lazy function bodies collapsed, they have nothing to stub
+				return JSStubElementType.isLazyFunctionBody(parent, node);
+			}
+		};
+	}
+
+	private static class JSLightStubBuilder extends LightStubBuilder
+	{
+		@Override
+		public boolean skipChildProcessingWhenBuildingStubs(@NotNull ASTNode parent, @NotNull ASTNode node)
+		{
+			return JSStubElementType.isLazyFunctionBody(parent, node);
+		}
+
+		@Override
+		protected boolean skipChildProcessingWhenBuildingStubs(@NotNull LighterAST tree, @NotNull LighterASTNode parent,
+				@NotNull LighterASTNode node)
+		{
+			return JSStubElementType.isLazyFunctionBody(parent, node);
+		}
+	}
+
+	/**
+	 * Builds stubs both ways, reports files where the trees differ and indexes the psi ones
+	 */
+	private static class JSVerifyingStubBuilder extends JSLightStubBuilder
+	{
+		@Override
+		public StubElement buildStubTree(@NotNull PsiFile file)
+		{
+			// light first, so it still gets the light tree parsed for indexing rather than one backed by the full tree psi loads
+			final StubElement lightStub = super.buildStubTree(file);
+			final StubElement psiStub = createPsiStubBuilder().buildStubTree(file);
+
+			if(lightStub == null ? psiStub != null : psiStub == null || !Arrays.equals(serialize(lightStub), serialize(psiStub)))
+			{
+				LOG.error("Light and psi stub trees differ for " + file.getVirtualFile() + "\nlight:\n" + (lightStub != null ? DebugUtil
+						.stubTreeToString(lightStub) : null) + "\npsi:\n" + (psiStub != null ? DebugUtil.stubTreeToString(psiStub) : null));
+			}
+			return psiStub;
+		}
+
+		private static byte[] serialize(@NotNull StubElement stub)
+		{
+			// serialized form covers every stored field, the debug dump above only the element types and toString
+			final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			SerializationManagerEx.getInstanceEx().serialize(stub, stream);
+			return stream.toByteArray();
+		}
+	}
+
+	@Override
+	public FlyweightCapableTreeStructure<LighterASTNode> parseContentsLight(ASTNode chameleon)
+	{
+		final PsiElement psi = chameleon.getPsi();
+		final Project project = psi.getProject();
+		final LanguageVersion languageVersion = psi.getLanguageVersion();
+
+		final PsiParser parser = ((LanguageVersionWithParsing) languageVersion).createParser(project);
+		if(!(parser instanceof JavaScriptParser))
+		{
+			return super.parseContentsLight(chameleon);
+		}
+
+		final Lexer lexer = ((LanguageVersionWithParsing) languageVersion).createLexer(project);
+		final PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(project, chameleon, lexer, getLanguage(), languageVersion,
+				chameleon.getChars());
+
+		// the default implementation builds the whole tree before taking the light one from the builder
+		((JavaScriptParser) parser).parseFile(this, builder, languageVersion);
+		return builder.getLightTree();
+	}
+
 	@NotNull
 	@Override
 	public String getExternalId()
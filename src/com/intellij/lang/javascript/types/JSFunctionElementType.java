@@ -20,14 +20,22 @@ package com.intellij.lang.javascript.types;
 import java.io.IOException;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.mustbe.consulo.RequiredReadAction;
+import com.intellij.javascript.documentation.JSDocumentationUtils;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.javascript.JSElementTypes;
+import com.intellij.lang.javascript.JSTokenTypes;
 import com.intellij.lang.javascript.psi.JSFunction;
+import com.intellij.lang.javascript.psi.impl.JSPsiImplUtils;
 import com.intellij.lang.javascript.psi.stubs.JSFunctionStub;
 import com.intellij.lang.javascript.psi.stubs.impl.JSFunctionStubImpl;
 import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.psi.stubs.StubElement;
 import com.intellij.psi.stubs.StubInputStream;
 import com.intellij.psi.stubs.StubOutputStream;
+import com.intellij.psi.tree.IElementType;
 import com.intellij.util.io.StringRef;
 
 /**
@@ -71,6 +79,58 @@ public abstract class JSFunctionElementType extends JSQualifiedStubElementType<J
 		return new JSFunctionStubImpl(name, flags, qualifiedName, returnTypeString, parentStub, this);
 	}
 
+	@Override
+	public JSFunctionStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		String name = JSLightTreeUtil.getName(tree, node);
+		String qualifiedName = getQualifiedName(tree, node, name);
+		String returnTypeString = JSPsiImplUtils.getType(tree, node);
+		int flags = buildFlags(tree, node, name);
+		return new JSFunctionStubImpl(name, flags, qualifiedName, returnTypeString, parentStub, this);
+	}
+
+	// JSFunctionImpl and JSFunctionExpressionImpl, the parent of a function in a plain JavaScript file is the file itself
+	@Nullable
+	private static String getQualifiedName(@NotNull LighterAST tree, @NotNull LighterASTNode function, @Nullable String name)
+	{
+		if(function.getTokenType() == JSElementTypes.FUNCTION_DECLARATION)
+		{
+			final LighterASTNode parent = tree.getParent(function);
+			if(JSLightTreeUtil.isFile(parent) || parent != null && parent.getTokenType() == JSElementTypes.PACKAGE_STATEMENT)
+			{
+				return JSLightTreeUtil.getQName(tree, function);
+			}
+		}
+		return name;
+	}
+
+	private static int buildFlags(@NotNull LighterAST tree, @NotNull LighterASTNode function, @Nullable String name)
+	{
+		boolean constructor = false;
+		boolean getProperty = false;
+		boolean setProperty = false;
+
+		if(function.getTokenType() == JSElementTypes.FUNCTION_DECLARATION)
+		{
+			final LighterASTNode parent = tree.getParent(function);
+			constructor = parent != null && parent.getTokenType() == JSElementTypes.CLASS && name != null && name.equals(JSLightTreeUtil.getName
+					(tree, parent));
+
+			final LighterASTNode nameIdentifier = JSLightTreeUtil.findNameIdentifier(tree, function);
+			getProperty = isAccessorKeyword(tree, function, JSTokenTypes.GET_KEYWORD, nameIdentifier);
+			setProperty = isAccessorKeyword(tree, function, JSTokenTypes.SET_KEYWORD, nameIdentifier);
+		}
+
+		return JSFunctionStubImpl.buildFlags(constructor, getProperty, setProperty, JSDocumentationUtils.calculateDeprecated(tree, function));
+	}
+
+	private static boolean isAccessorKeyword(@NotNull LighterAST tree, @NotNull LighterASTNode function, @NotNull IElementType keyword,
+			@Nullable LighterASTNode nameIdentifier)
+	{
+		final LighterASTNode node = JSLightTreeUtil.findChildByType(tree, function, keyword);
+		return node != null && !JSLightTreeUtil.isSame(node, nameIdentifier);
+	}
+
 	@Override
 	public void serialize(@NotNull JSFunctionStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
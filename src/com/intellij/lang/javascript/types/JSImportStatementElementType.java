@@ -22,6 +22,9 @@ import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.javascript.JSElementTypes;
 import com.intellij.lang.javascript.psi.JSImportStatement;
 import com.intellij.lang.javascript.psi.JSStubElementType;
 import com.intellij.lang.javascript.psi.impl.JSImportStatementImpl;
@@ -45,6 +48,21 @@ public class JSImportStatementElementType extends JSStubElementType<JSImportStat
 		super("IMPORT_STATEMENT");
 	}
 
+	/**
+	 * Also inside of function bodies, which the parser keeps eager for them
+	 */
+	@Override
+	public boolean shouldCreateStub(ASTNode node)
+	{
+		return true;
+	}
+
+	@Override
+	public boolean shouldCreateStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		return true;
+	}
+
 	@NotNull
 	@Override
 	public PsiElement createElement(@NotNull ASTNode astNode)
@@ -66,6 +84,13 @@ public class JSImportStatementElementType extends JSStubElementType<JSImportStat
 		return new JSImportStatementStubImpl(importText, parentStub, this);
 	}
 
+	@Override
+	public JSImportStatementStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		String importText = JSLightTreeUtil.getChildText(tree, node, JSElementTypes.REFERENCE_EXPRESSION);
+		return new JSImportStatementStubImpl(importText, parentStub, this);
+	}
+
 	@Override
 	public void serialize(@NotNull JSImportStatementStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
@@ -22,6 +22,8 @@ import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
 import com.intellij.lang.javascript.psi.JSIncludeDirective;
 import com.intellij.lang.javascript.psi.JSStubElementType;
 import com.intellij.lang.javascript.psi.impl.JSIncludeDirectiveImpl;
@@ -67,6 +69,13 @@ public class JSIncludeDirectiveElementType extends JSStubElementType<JSIncludeDi
 		return new JSIncludeDirectiveStubImpl(includeText, parentStub, this);
 	}
 
+	@Override
+	public JSIncludeDirectiveStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		String includeText = JSLightTreeUtil.getStringLiteralValue(tree, node);
+		return new JSIncludeDirectiveStubImpl(includeText, parentStub, this);
+	}
+
 	@NotNull
 	@Override
 	public PsiElement createElement(@NotNull ASTNode astNode)
@@ -0,0 +1,611 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.lang.javascript.types;
+
+import gnu.trove.THashMap;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.javascript.JSElementTypes;
+import com.intellij.lang.javascript.JSTokenTypes;
+import com.intellij.lang.javascript.psi.JSAttributeList;
+import com.intellij.lang.javascript.psi.impl.JSVariableBaseImpl;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.impl.source.tree.LightTreeUtil;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.SmartList;
+
+/**
+ * Light tree counterparts of the psi getters stubs are built from. Each method follows the psi implementation named in its
+ * comment node for node, so stubs built from the light tree and from the psi are the same.
+ */
+public class JSLightTreeUtil
+{
+	public static final TokenSet STATEMENTS = TokenSet.orSet(JSElementTypes.STATEMENTS, TokenSet.create(JSElementTypes.INCLUDE_DIRECTIVE,
+			JSElementTypes.NAMESPACE_DECLARATION));
+
+	private static final TokenSet REFERENCE_NAME_TOKENS = TokenSet.orSet(JSTokenTypes.IDENTIFIER_TOKENS_SET,
+			TokenSet.create(JSTokenTypes.ANY_IDENTIFIER));
+	private static final TokenSet BINARY_OPERATIONS = TokenSet.orSet(JSTokenTypes.OPERATIONS, JSTokenTypes.RELATIONAL_OPERATIONS);
+	private static final TokenSet FUNCTIONS = TokenSet.create(JSElementTypes.FUNCTION_DECLARATION, JSElementTypes.FUNCTION_EXPRESSION);
+	private static final TokenSet ACCESS_MODIFIERS = TokenSet.create(JSTokenTypes.PUBLIC_KEYWORD, JSTokenTypes.PRIVATE_KEYWORD,
+			JSTokenTypes.PROTECTED_KEYWORD, JSTokenTypes.INTERNAL_KEYWORD);
+	private static final Map<IElementType, JSAttributeList.ModifierType> ourModifierKeywords = new THashMap<IElementType,
+			JSAttributeList.ModifierType>();
+
+	static
+	{
+		ourModifierKeywords.put(JSTokenTypes.DYNAMIC_KEYWORD, JSAttributeList.ModifierType.DYNAMIC);
+		ourModifierKeywords.put(JSTokenTypes.OVERRIDE_KEYWORD, JSAttributeList.ModifierType.OVERRIDE);
+		ourModifierKeywords.put(JSTokenTypes.NATIVE_KEYWORD, JSAttributeList.ModifierType.NATIVE);
+		ourModifierKeywords.put(JSTokenTypes.STATIC_KEYWORD, JSAttributeList.ModifierType.STATIC);
+		ourModifierKeywords.put(JSTokenTypes.FINAL_KEYWORD, JSAttributeList.ModifierType.FINAL);
+		ourModifierKeywords.put(JSTokenTypes.VIRTUAL_KEYWORD, JSAttributeList.ModifierType.VIRTUAL);
+	}
+
+	private static final TokenSet STRING_LITERALS = TokenSet.create(JSTokenTypes.STRING_LITERAL, JSTokenTypes.SINGLE_QUOTE_STRING_LITERAL);
+
+	private JSLightTreeUtil()
+	{
+	}
+
+	@Nullable
+	public static LighterASTNode findChildByType(@NotNull LighterAST tree, @NotNull LighterASTNode node, @NotNull IElementType type)
+	{
+		return findChildByType(tree, node, TokenSet.create(type), null);
+	}
+
+	@Nullable
+	public static LighterASTNode findChildByType(@NotNull LighterAST tree, @NotNull LighterASTNode node, @NotNull TokenSet types)
+	{
+		return findChildByType(tree, node, types, null);
+	}
+
+	/**
+	 * Same as {@link com.intellij.lang.ASTNode#findChildByType(TokenSet, com.intellij.lang.ASTNode)}, the search starts at the anchor itself
+	 */
+	@Nullable
+	public static LighterASTNode findChildByType(@NotNull LighterAST tree, @NotNull LighterASTNode node, @NotNull TokenSet types,
+			@Nullable LighterASTNode anchor)
+	{
+		boolean started = anchor == null;
+		for(LighterASTNode child : tree.getChildren(node))
+		{
+			started |= anchor != null && isSame(child, anchor);
+			if(started && types.contains(child.getTokenType()))
+			{
+				return child;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Token nodes are created anew by every {@link LighterAST#getChildren} call, so nodes are compared by their type and range
+	 */
+	public static boolean isSame(@Nullable LighterASTNode node, @Nullable LighterASTNode other)
+	{
+		if(node == other)
+		{
+			return true;
+		}
+		return node != null && other != null && node.getTokenType() == other.getTokenType() && node.getStartOffset() == other.getStartOffset() &&
+				node.getEndOffset() == other.getEndOffset();
+	}
+
+	public static int indexOf(@NotNull List<LighterASTNode> nodes, @NotNull LighterASTNode node)
+	{
+		for(int i = 0; i < nodes.size(); i++)
+		{
+			if(isSame(nodes.get(i), node))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Nullable
+	public static LighterASTNode getPrevSibling(@NotNull LighterAST tree, @NotNull LighterASTNode node)
+	{
+		final LighterASTNode parent = tree.getParent(node);
+		if(parent == null)
+		{
+			return null;
+		}
+		final List<LighterASTNode> siblings = tree.getChildren(parent);
+		final int index = indexOf(siblings, node);
+		return index > 0 ? siblings.get(index - 1) : null;
+	}
+
+	@Nullable
+	public static LighterASTNode getNextSibling(@NotNull LighterAST tree, @NotNull LighterASTNode node)
+	{
+		final LighterASTNode parent = tree.getParent(node);
+		if(parent == null)
+		{
+			return null;
+		}
+		final List<LighterASTNode> siblings = tree.getChildren(parent);
+		final int index = indexOf(siblings, node);
+		return index >= 0 && index < siblings.size() - 1 ? siblings.get(index + 1) : null;
+	}
+
+	@Nullable
+	public static LighterASTNode getParentOfType(@NotNull LighterAST tree, @NotNull LighterASTNode node, @NotNull TokenSet types)
+	{
+		for(LighterASTNode parent = tree.getParent(node); parent != null; parent = tree.getParent(parent))
+		{
+			if(types.contains(parent.getTokenType()))
+			{
+				return parent;
+			}
+		}
+		return null;
+	}
+
+	@NotNull
+	public static String getText(@NotNull LighterAST tree, @NotNull LighterASTNode node)
+	{
+		return LightTreeUtil.toFilteredString(tree, node, null);
+	}
+
+	@Nullable
+	public static String getChildText(@NotNull LighterAST tree, @NotNull LighterASTNode node, @NotNull IElementType type)
+	{
+		final LighterASTNode child = findChildByType(tree, node, type);
+		return child != null ? getText(tree, child) : null;
+	}
+
+	/**
+	 * Text of the double quoted string literal child without quotes, like {@link com.intellij.lang.javascript.psi.impl.JSIncludeDirectiveImpl}
+	 */
+	@Nullable
+	public static String getStringLiteralValue(@NotNull LighterAST tree, @NotNull LighterASTNode node)
+	{
+		final String text = getChildText(tree, node, JSTokenTypes.STRING_LITERAL);
+		return text != null ? StringUtil.stripQuotesAroundValue(text) : null;
+	}
+
+	/**
+	 * Text of the first string literal child of either quote kind without quotes, like
+	 * {@link com.intellij.lang.javascript.psi.impl.JSAttributeNameValuePairImpl#getSimpleValue()}
+	 */
+	@Nullable
+	public static String getSimpleValue(@NotNull LighterAST tree, @NotNull LighterASTNode node)
+	{
+		LighterASTNode value = findChildByType(tree, node, JSTokenTypes.STRING_LITERAL);
+		if(value == null)
+		{
+			value = findChildByType(tree, node, JSTokenTypes.SINGLE_QUOTE_STRING_LITERAL);
+		}
+		return value != null ? StringUtil.stripQuotesAroundValue(getText(tree, value)) : null;
+	}
+
+	/**
+	 * {@link com.intellij.lang.javascript.psi.impl.JSNamespaceDeclarationImpl#getInitialValueString()}
+	 */
+	@Nullable
+	public static String getInitialValueString(@NotNull LighterAST tree, @NotNull LighterASTNode namespace)
+	{
+		final LighterASTNode anchor = findChildByType(tree, namespace, JSTokenTypes.EQ);
+		final LighterASTNode node = anchor != null ? advance(tree, anchor) : null;
+		return node != null && STRING_LITERALS.contains(node.getTokenType()) ? getText(tree, node) : null;
+	}
+
+	/**
+	 * {@link com.intellij.lang.javascript.psi.impl.JSReferenceListImpl#getReferenceTexts()}
+	 */
+	@NotNull
+	public static String[] getReferenceTexts(@NotNull LighterAST tree, @NotNull LighterASTNode referenceList)
+	{
+		final List<String> texts = new SmartList<String>();
+		for(LighterASTNode child : tree.getChildren(referenceList))
+		{
+			if(child.getTokenType() == JSElementTypes.REFERENCE_EXPRESSION)
+			{
+				texts.add(getText(tree, child));
+			}
+		}
+		return ArrayUtil.toStringArray(texts);
+	}
+
+	public static boolean isFile(@Nullable LighterASTNode node)
+	{
+		return node != null && node.getTokenType() instanceof JSFileElementType;
+	}
+
+	/**
+	 * {@link com.intellij.lang.javascript.psi.impl.JSReferenceExpressionImpl#getReferencedName()}
+	 */
+	@Nullable
+	public static String getReferencedName(@NotNull LighterAST tree, @NotNull LighterASTNode reference)
+	{
+		final LighterASTNode nameElement = findChildByType(tree, reference, REFERENCE_NAME_TOKENS);
+		return nameElement != null ? getText(tree, nameElement) : null;
+	}
+
+	/**
+	 * getAttributeList() of the attribute list owners, variables take the list of their var statement
+	 */
+	@Nullable
+	public static LighterASTNode getAttributeList(@NotNull LighterAST tree, @NotNull LighterASTNode owner)
+	{
+		final IElementType type = owner.getTokenType();
+		if(type == JSElementTypes.CLASS || type == JSElementTypes.FUNCTION_DECLARATION || type == JSElementTypes.NAMESPACE_DECLARATION)
+		{
+			return findChildByType(tree, owner, JSElementTypes.ATTRIBUTE_LIST);
+		}
+		if(type == JSElementTypes.VARIABLE)
+		{
+			final LighterASTNode varStatement = tree.getParent(owner);
+			return varStatement != null ? findChildByType(tree, varStatement, JSElementTypes.ATTRIBUTE_LIST) : null;
+		}
+		return null;
+	}
+
+	public static boolean isAttributeListOwner(@NotNull LighterASTNode node)
+	{
+		final IElementType type = node.getTokenType();
+		return FUNCTIONS.contains(type) || type == JSElementTypes.CLASS || type == JSElementTypes.NAMESPACE_DECLARATION || type == JSElementTypes
+				.VARIABLE || type == JSElementTypes.FORMAL_PARAMETER;
+	}
+
+	public static boolean isFunction(@Nullable LighterASTNode node)
+	{
+		return node != null && FUNCTIONS.contains(node.getTokenType());
+	}
+
+	/**
+	 * findNameIdentifier() of the named elements that have stubs
+	 */
+	@Nullable
+	public static LighterASTNode findNameIdentifier(@NotNull LighterAST tree, @NotNull LighterASTNode node)
+	{
+		final IElementType type = node.getTokenType();
+		if(type == JSElementTypes.FUNCTION_DECLARATION)
+		{
+			return findFunctionNameIdentifier(tree, node);
+		}
+		if(type == JSElementTypes.FUNCTION_EXPRESSION)
+		{
+			return findFunctionExpressionNameIdentifier(tree, node);
+		}
+		if(type == JSElementTypes.VARIABLE || type == JSElementTypes.FORMAL_PARAMETER)
+		{
+			return findChildByType(tree, node, JSVariableBaseImpl.IDENTIFIER_TOKENS_SET);
+		}
+		return findChildByType(tree, node, JSElementTypes.REFERENCE_EXPRESSION);
+	}
+
+	/**
+	 * getName() of functions, variables, parameters, classes, packages and namespaces
+	 */
+	@Nullable
+	public static String getName(@NotNull LighterAST tree, @NotNull LighterASTNode node)
+	{
+		final IElementType type = node.getTokenType();
+		final LighterASTNode nameIdentifier = findNameIdentifier(tree, node);
+		if(type == JSElementTypes.NAMESPACE_DECLARATION)
+		{
+			return nameIdentifier != null ? getText(tree, nameIdentifier) : null;
+		}
+		if(type == JSElementTypes.CLASS || type == JSElementTypes.PACKAGE_STATEMENT)
+		{
+			return nameIdentifier != null ? getReferencedName(tree, nameIdentifier) : null;
+		}
+		if(nameIdentifier == null)
+		{
+			return type == JSElementTypes.VARIABLE || type == JSElementTypes.FORMAL_PARAMETER ? "" : null;
+		}
+		if(nameIdentifier.getTokenType() == JSElementTypes.REFERENCE_EXPRESSION)
+		{
+			return getReferencedName(tree, nameIdentifier);
+		}
+		return getText(tree, nameIdentifier);
+	}
+
+	/**
+	 * {@link com.intellij.lang.javascript.psi.impl.JSPsiImplUtils#getQName}
+	 */
+	@Nullable
+	public static String getQName(@NotNull LighterAST tree, @NotNull LighterASTNode element)
+	{
+		final LighterASTNode nameIdentifier = findNameIdentifier(tree, element);
+		final String name = nameIdentifier != null ? getText(tree, nameIdentifier) : null;
+		LighterASTNode responsibleParent = tree.getParent(element);
+
+		if(responsibleParent != null && responsibleParent.getTokenType() == JSElementTypes.VAR_STATEMENT)
+		{
+			responsibleParent = tree.getParent(responsibleParent);
+		}
+
+		if(responsibleParent != null && responsibleParent.getTokenType() == JSElementTypes.PACKAGE_STATEMENT && name != null)
+		{
+			final String packageName = getPackageQualifiedName(tree, responsibleParent);
+			if(!StringUtil.isEmpty(packageName))
+			{
+				return packageName.concat(".").concat(name);
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * {@link com.intellij.lang.javascript.psi.impl.JSPackageStatementImpl#getQualifiedName()}
+	 */
+	@Nullable
+	public static String getPackageQualifiedName(@NotNull LighterAST tree, @NotNull LighterASTNode packageStatement)
+	{
+		return getChildText(tree, packageStatement, JSElementTypes.REFERENCE_EXPRESSION);
+	}
+
+	/**
+	 * Simple value of the parameter without name of the first annotation with the given name, like
+	 * {@link com.intellij.lang.javascript.psi.impl.JSPsiImplUtils#getArrayElementTypeFromAnnotation}
+	 */
+	@Nullable
+	public static String getAnnotationValue(@NotNull LighterAST tree, @NotNull LighterASTNode attributeList, @NotNull String annotationName)
+	{
+		for(LighterASTNode attribute : tree.getChildren(attributeList))
+		{
+			if(attribute.getTokenType() != JSElementTypes.ATTRIBUTE || !annotationName.equals(getChildText(tree, attribute, JSTokenTypes.IDENTIFIER)))
+			{
+				continue;
+			}
+			for(LighterASTNode pair : tree.getChildren(attribute))
+			{
+				if(pair.getTokenType() == JSElementTypes.ATTRIBUTE_NAME_VALUE_PAIR && findChildByType(tree, pair, JSTokenTypes.IDENTIFIER) == null)
+				{
+					return getSimpleValue(tree, pair);
+				}
+			}
+			return null;
+		}
+		return null;
+	}
+
+	/**
+	 * {@link com.intellij.lang.javascript.psi.impl.JSAttributeListImpl#getAccessType()}
+	 */
+	@NotNull
+	public static JSAttributeList.AccessType getAccessType(@NotNull LighterAST tree, @NotNull LighterASTNode attributeList)
+	{
+		final LighterASTNode node = findChildByType(tree, attributeList, ACCESS_MODIFIERS);
+		final IElementType nodeType = node != null ? node.getTokenType() : null;
+		if(nodeType == JSTokenTypes.PUBLIC_KEYWORD)
+		{
+			return JSAttributeList.AccessType.PUBLIC;
+		}
+		if(nodeType == JSTokenTypes.PROTECTED_KEYWORD)
+		{
+			return JSAttributeList.AccessType.PROTECTED;
+		}
+		if(nodeType == JSTokenTypes.PRIVATE_KEYWORD)
+		{
+			return JSAttributeList.AccessType.PRIVATE;
+		}
+		return JSAttributeList.AccessType.PACKAGE_LOCAL;
+	}
+
+	/**
+	 * Modifiers of {@link com.intellij.lang.javascript.psi.impl.JSAttributeListImpl#hasModifier} present in the attribute list
+	 */
+	@NotNull
+	public static JSAttributeList.ModifierType[] getModifiers(@NotNull LighterAST tree, @NotNull LighterASTNode attributeList)
+	{
+		final List<JSAttributeList.ModifierType> modifiers = new SmartList<JSAttributeList.ModifierType>();
+		for(LighterASTNode child : tree.getChildren(attributeList))
+		{
+			final JSAttributeList.ModifierType modifier = ourModifierKeywords.get(child.getTokenType());
+			if(modifier != null && !modifiers.contains(modifier))
+			{
+				modifiers.add(modifier);
+			}
+		}
+		return modifiers.toArray(new JSAttributeList.ModifierType[modifiers.size()]);
+	}
+
+	/**
+	 * {@link com.intellij.lang.javascript.psi.impl.JSVariableBaseImpl#isConst()}
+	 */
+	public static boolean isConst(@NotNull LighterAST tree, @NotNull LighterASTNode variable)
+	{
+		final LighterASTNode parent = tree.getParent(variable);
+		if(parent == null || parent.getTokenType() != JSElementTypes.VAR_STATEMENT)
+		{
+			return false;
+		}
+		final List<LighterASTNode> children = tree.getChildren(parent);
+		LighterASTNode node = children.isEmpty() ? null : children.get(0);
+		final IElementType type = node != null ? node.getTokenType() : null;
+
+		if(type == JSElementTypes.ATTRIBUTE_LIST || type == JSElementTypes.REFERENCE_EXPRESSION)
+		{
+			node = advance(tree, node);
+		}
+		return node != null && node.getTokenType() == JSTokenTypes.CONST_KEYWORD;
+	}
+
+	/**
+	 * {@link com.intellij.lang.javascript.psi.impl.JSVariableBaseImpl#isLocal()}
+	 */
+	public static boolean isLocal(@NotNull LighterAST tree, @NotNull LighterASTNode variable)
+	{
+		final LighterASTNode parent = tree.getParent(variable);
+		if(parent == null || parent.getTokenType() != JSElementTypes.VAR_STATEMENT)
+		{
+			return false;
+		}
+		final List<LighterASTNode> children = tree.getChildren(parent);
+		return !children.isEmpty() && children.get(0).getTokenType() == JSTokenTypes.LET_KEYWORD;
+	}
+
+	@Nullable
+	public static LighterASTNode getParameterList(@NotNull LighterAST tree, @NotNull LighterASTNode function)
+	{
+		return findChildByType(tree, function, JSElementTypes.PARAMETER_LIST);
+	}
+
+	public static int getParameterCount(@NotNull LighterAST tree, @NotNull LighterASTNode function)
+	{
+		final LighterASTNode parameterList = getParameterList(tree, function);
+		if(parameterList == null)
+		{
+			return 0;
+		}
+		int count = 0;
+		for(LighterASTNode child : tree.getChildren(parameterList))
+		{
+			if(child.getTokenType() == JSElementTypes.FORMAL_PARAMETER)
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * {@link com.intellij.lang.javascript.psi.impl.JSVariableBaseImpl#getInitializer()}
+	 */
+	@Nullable
+	public static LighterASTNode getInitializer(@NotNull LighterAST tree, @NotNull LighterASTNode variable)
+	{
+		final LighterASTNode eq = findChildByType(tree, variable, JSTokenTypes.EQ);
+		return eq != null ? findChildByType(tree, variable, JSElementTypes.EXPRESSIONS, eq) : null;
+	}
+
+	@Nullable
+	public static String getInitializerText(@NotNull LighterAST tree, @NotNull LighterASTNode variable)
+	{
+		final LighterASTNode initializer = getInitializer(tree, variable);
+		return initializer != null ? getText(tree, initializer) : null;
+	}
+
+	/**
+	 * {@link com.intellij.lang.javascript.psi.impl.JSBinaryExpressionImpl#getLOperand()}
+	 */
+	@Nullable
+	public static LighterASTNode getLOperand(@NotNull LighterAST tree, @NotNull LighterASTNode binary)
+	{
+		final LighterASTNode firstExpression = findChildByType(tree, binary, JSElementTypes.EXPRESSIONS);
+		if(firstExpression != null && findChildByType(tree, binary, BINARY_OPERATIONS, firstExpression) == null)
+		{
+			return null;
+		}
+		return firstExpression;
+	}
+
+	/**
+	 * {@link com.intellij.lang.javascript.psi.impl.JSBinaryExpressionImpl#getROperand()}
+	 */
+	@Nullable
+	public static LighterASTNode getROperand(@NotNull LighterAST tree, @NotNull LighterASTNode binary)
+	{
+		return findChildByType(tree, binary, JSElementTypes.EXPRESSIONS, findChildByType(tree, binary, BINARY_OPERATIONS));
+	}
+
+	// JSFunctionBaseImpl.findNameIdentifier()
+	@Nullable
+	private static LighterASTNode findFunctionNameIdentifier(@NotNull LighterAST tree, @NotNull LighterASTNode function)
+	{
+		LighterASTNode node = findChildByType(tree, function, JSTokenTypes.FUNCTION_KEYWORD);
+
+		if(node != null)
+		{
+			node = advance(tree, node);
+		}
+		else
+		{
+			node = findChildByType(tree, function, JSElementTypes.REFERENCE_EXPRESSION);
+		}
+
+		IElementType type = node != null ? node.getTokenType() : null;
+		LighterASTNode prevNode = null;
+
+		if(type == JSTokenTypes.GET_KEYWORD || type == JSTokenTypes.SET_KEYWORD)
+		{
+			prevNode = node;
+			node = advance(tree, node);
+			type = node != null ? node.getTokenType() : null;
+		}
+
+		if(JSVariableBaseImpl.IDENTIFIER_TOKENS_SET.contains(type))
+		{
+			return node;
+		}
+		return prevNode;
+	}
+
+	// JSFunctionExpressionImpl.findNameIdentifier()
+	@Nullable
+	private static LighterASTNode findFunctionExpressionNameIdentifier(@NotNull LighterAST tree, @NotNull LighterASTNode function)
+	{
+		LighterASTNode parent = tree.getParent(function);
+		if(parent != null && parent.getTokenType() == JSElementTypes.CALL_EXPRESSION)
+		{
+			parent = tree.getParent(parent);
+		}
+		final IElementType parentType = parent != null ? parent.getTokenType() : null;
+
+		if(parentType == JSElementTypes.ASSIGNMENT_EXPRESSION)
+		{
+			final LighterASTNode definition = getLOperand(tree, parent);
+			final LighterASTNode lOperand = definition != null && definition.getTokenType() == JSElementTypes.DEFINITION_EXPRESSION ?
+					findChildByType(tree, definition, JSElementTypes.EXPRESSIONS) : null;
+			if(lOperand != null && lOperand.getTokenType() == JSElementTypes.REFERENCE_EXPRESSION)
+			{
+				return findChildByType(tree, lOperand, JSTokenTypes.IDENTIFIER_TOKENS_SET);
+			}
+		}
+		else if(parentType == JSElementTypes.PROPERTY)
+		{
+			return findChildByType(tree, parent, JSTokenTypes.IDENTIFIER_TOKENS_SET);
+		}
+		else
+		{
+			final LighterASTNode node = findFunctionNameIdentifier(tree, function);
+			if(node != null)
+			{
+				return node;
+			}
+			if(parentType == JSElementTypes.VARIABLE)
+			{
+				return findChildByType(tree, parent, JSTokenTypes.IDENTIFIER_TOKENS_SET);
+			}
+		}
+		return null;
+	}
+
+	@Nullable
+	private static LighterASTNode advance(@NotNull LighterAST tree, @NotNull LighterASTNode node)
+	{
+		LighterASTNode next = getNextSibling(tree, node);
+		if(next != null && next.getTokenType() == JSTokenTypes.WHITE_SPACE)
+		{
+			next = getNextSibling(tree, next);
+		}
+		return next;
+	}
+}
@@ -22,6 +22,8 @@ import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
 import com.intellij.lang.javascript.psi.JSNamespaceDeclaration;
 import com.intellij.lang.javascript.psi.impl.JSNamespaceDeclarationImpl;
 import com.intellij.lang.javascript.psi.stubs.JSNamespaceDeclarationStub;
@@ -67,6 +69,15 @@ public class JSNamespaceDeclarationElementType extends JSQualifiedStubElementTyp
 		return new JSNamespaceDeclarationStubImpl(name, qualifiedName, initialValueString, parentStub, this);
 	}
 
+	@Override
+	public JSNamespaceDeclarationStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		String name = JSLightTreeUtil.getName(tree, node);
+		String qualifiedName = JSLightTreeUtil.getQName(tree, node);
+		String initialValueString = JSLightTreeUtil.getInitialValueString(tree, node);
+		return new JSNamespaceDeclarationStubImpl(name, qualifiedName, initialValueString, parentStub, this);
+	}
+
 	@Override
 	public void serialize(@NotNull JSNamespaceDeclarationStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
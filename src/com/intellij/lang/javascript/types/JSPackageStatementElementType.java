@@ -22,6 +22,8 @@ import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
 import com.intellij.lang.javascript.psi.JSPackageStatement;
 import com.intellij.lang.javascript.psi.JSStubElementType;
 import com.intellij.lang.javascript.psi.impl.JSPackageStatementImpl;
@@ -67,6 +69,14 @@ public class JSPackageStatementElementType extends JSStubElementType<JSPackageSt
 		return new JSPackageStatementStubImpl(name, qualifiedName, parentStub, this);
 	}
 
+	@Override
+	public JSPackageStatementStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		String name = JSLightTreeUtil.getName(tree, node);
+		String qualifiedName = JSLightTreeUtil.getPackageQualifiedName(tree, node);
+		return new JSPackageStatementStubImpl(name, qualifiedName, parentStub, this);
+	}
+
 	@Override
 	public void serialize(@NotNull JSPackageStatementStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
@@ -20,11 +20,17 @@ package com.intellij.lang.javascript.types;
 import java.io.IOException;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.mustbe.consulo.RequiredReadAction;
+import com.intellij.javascript.documentation.JSDocumentationUtils;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.javascript.JSTokenTypes;
 import com.intellij.lang.javascript.psi.JSParameter;
 import com.intellij.lang.javascript.psi.JSStubElementType;
 import com.intellij.lang.javascript.psi.impl.JSParameterImpl;
+import com.intellij.lang.javascript.psi.impl.JSPsiImplUtils;
 import com.intellij.lang.javascript.psi.stubs.JSParameterStub;
 import com.intellij.lang.javascript.psi.stubs.impl.JSParameterStubImpl;
 import com.intellij.psi.PsiElement;
@@ -70,6 +76,41 @@ public class JSParameterElementType extends JSStubElementType<JSParameterStub, J
 		return new JSParameterStubImpl(name, flags, typeString, initializerText, qualifiedName, parentStub, this);
 	}
 
+	@Override
+	public JSParameterStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		String name = JSLightTreeUtil.getName(tree, node);
+		String initializerText = JSLightTreeUtil.getInitializerText(tree, node);
+		boolean rest = JSLightTreeUtil.findChildByType(tree, node, JSTokenTypes.DOT_DOT_DOT) != null;
+		boolean optional = initializerText != null || JSDocumentationUtils.findOptionalStatusFromComments(tree, node);
+		int flags = JSParameterStubImpl.buildFlags(JSDocumentationUtils.calculateDeprecated(tree, node), rest, optional);
+		String typeString = getTypeString(tree, node);
+		String qualifiedName = JSLightTreeUtil.getQName(tree, node);
+		return new JSParameterStubImpl(name, flags, typeString, initializerText, qualifiedName, parentStub, this);
+	}
+
+	// JSParameterImpl#doGetType()
+	@Nullable
+	private static String getTypeString(@NotNull LighterAST tree, @NotNull LighterASTNode parameter)
+	{
+		String s = JSPsiImplUtils.getType(tree, parameter);
+
+		if(s == null)
+		{
+			final LighterASTNode anchor = JSLightTreeUtil.findChildByType(tree, parameter, JSTokenTypes.INSTANCEOF_KEYWORD);
+
+			if(anchor != null)
+			{
+				final LighterASTNode type = JSLightTreeUtil.findChildByType(tree, parameter, JSTokenTypes.IDENTIFIER_TOKENS_SET, anchor);
+				if(type != null)
+				{
+					s = JSLightTreeUtil.getText(tree, type);
+				}
+			}
+		}
+		return s;
+	}
+
 	@Override
 	public void serialize(@NotNull JSParameterStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
@@ -22,6 +22,8 @@ import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
 import com.intellij.lang.javascript.psi.JSParameterList;
 import com.intellij.lang.javascript.psi.JSStubElementType;
 import com.intellij.lang.javascript.psi.impl.JSParameterListImpl;
@@ -64,6 +66,12 @@ public class JSParameterListElementType extends JSStubElementType<JSParameterLis
 		return new JSParameterListStubImpl(parentStub, this);
 	}
 
+	@Override
+	public JSParameterListStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		return new JSParameterListStubImpl(parentStub, this);
+	}
+
 	@Override
 	public void serialize(@NotNull JSParameterListStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
@@ -23,6 +23,8 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
 import com.intellij.lang.javascript.JSElementTypes;
 import com.intellij.lang.javascript.psi.JSClass;
 import com.intellij.lang.javascript.psi.JSReferenceList;
@@ -99,6 +101,13 @@ public class JSReferenceListElementType extends JSStubElementType<JSReferenceLis
 		return new JSReferenceListStubImpl(referenceTexts, parentStub, this);
 	}
 
+	@Override
+	public JSReferenceListStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		String[] referenceTexts = JSLightTreeUtil.getReferenceTexts(tree, node);
+		return new JSReferenceListStubImpl(referenceTexts, parentStub, this);
+	}
+
 	@Override
 	public void serialize(@NotNull JSReferenceListStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
@@ -22,6 +22,9 @@ import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.javascript.JSElementTypes;
 import com.intellij.lang.javascript.psi.JSStubElementType;
 import com.intellij.lang.javascript.psi.JSUseNamespaceDirective;
 import com.intellij.lang.javascript.psi.impl.JSUseNamespaceDirectiveImpl;
@@ -45,6 +48,21 @@ public class JSUseNamespaceDirectiveType extends JSStubElementType<JSUseNamespac
 		super("USE_NAMESPACE_DIRECTIVE");
 	}
 
+	/**
+	 * Also inside of function bodies, which the parser keeps eager for them
+	 */
+	@Override
+	public boolean shouldCreateStub(ASTNode node)
+	{
+		return true;
+	}
+
+	@Override
+	public boolean shouldCreateStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		return true;
+	}
+
 	@NotNull
 	@Override
 	public PsiElement createElement(@NotNull ASTNode astNode)
@@ -65,6 +83,12 @@ public class JSUseNamespaceDirectiveType extends JSStubElementType<JSUseNamespac
 		return new JSUseNamespaceDirectiveStubImpl(psi.getNamespaceToBeUsed(), parentStub, this);
 	}
 
+	@Override
+	public JSUseNamespaceDirectiveStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		return new JSUseNamespaceDirectiveStubImpl(JSLightTreeUtil.getChildText(tree, node, JSElementTypes.REFERENCE_EXPRESSION), parentStub, this);
+	}
+
 	@Override
 	public void serialize(@NotNull JSUseNamespaceDirectiveStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
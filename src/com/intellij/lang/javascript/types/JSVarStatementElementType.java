@@ -22,6 +22,9 @@ import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
+import com.intellij.lang.javascript.JSElementTypes;
 import com.intellij.lang.javascript.psi.JSClass;
 import com.intellij.lang.javascript.psi.JSFile;
 import com.intellij.lang.javascript.psi.JSPackageStatement;
@@ -54,6 +57,14 @@ public class JSVarStatementElementType extends JSStubElementType<JSVarStatementS
 		return element instanceof JSClass || element instanceof JSPackageStatement || element instanceof JSFile;
 	}
 
+	@Override
+	public boolean shouldCreateStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		final LighterASTNode parent = tree.getParent(node);
+		return parent != null && (parent.getTokenType() == JSElementTypes.CLASS || parent.getTokenType() == JSElementTypes.PACKAGE_STATEMENT ||
+				JSLightTreeUtil.isFile(parent));
+	}
+
 	@NotNull
 	@Override
 	public PsiElement createElement(@NotNull ASTNode astNode)
@@ -74,6 +85,12 @@ public class JSVarStatementElementType extends JSStubElementType<JSVarStatementS
 		return new JSVarStatementStubImpl(parentStub, this);
 	}
 
+	@Override
+	public JSVarStatementStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		return new JSVarStatementStubImpl(parentStub, this);
+	}
+
 	@Override
 	public void serialize(@NotNull JSVarStatementStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
@@ -21,9 +21,13 @@ import java.io.IOException;
 
 import org.jetbrains.annotations.NotNull;
 import org.mustbe.consulo.RequiredReadAction;
+import com.intellij.javascript.documentation.JSDocumentationUtils;
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.LighterAST;
+import com.intellij.lang.LighterASTNode;
 import com.intellij.lang.javascript.JSElementTypes;
 import com.intellij.lang.javascript.psi.JSVariable;
+import com.intellij.lang.javascript.psi.impl.JSPsiImplUtils;
 import com.intellij.lang.javascript.psi.impl.JSVariableImpl;
 import com.intellij.lang.javascript.psi.stubs.JSVariableStub;
 import com.intellij.lang.javascript.psi.stubs.impl.JSVariableStubImpl;
@@ -74,6 +78,17 @@ public class JSVariableElementType extends JSQualifiedStubElementType<JSVariable
 				discriminatingParentType instanceof JSFileElementType;
 	}
 
+	@Override
+	public boolean shouldCreateStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		final LighterASTNode parent = tree.getParent(node);
+		final LighterASTNode discriminatingParent = parent != null ? tree.getParent(parent) : null;
+		final IElementType discriminatingParentType = discriminatingParent != null ? discriminatingParent.getTokenType() : null;
+		return discriminatingParentType == JSElementTypes.PACKAGE_STATEMENT ||
+				discriminatingParentType == JSElementTypes.CLASS ||
+				discriminatingParentType instanceof JSFileElementType;
+	}
+
 	@NotNull
 	@Override
 	public PsiElement createElement(@NotNull ASTNode astNode)
@@ -99,6 +114,18 @@ public class JSVariableElementType extends JSQualifiedStubElementType<JSVariable
 		return new JSVariableStubImpl(name, flags, typeString, initializerText, qualifiedName, parentStub, this);
 	}
 
+	@Override
+	public JSVariableStub createStub(LighterAST tree, LighterASTNode node, StubElement parentStub)
+	{
+		String name = JSLightTreeUtil.getName(tree, node);
+		int flags = JSVariableStubImpl.buildFlags(JSDocumentationUtils.calculateDeprecated(tree, node), JSLightTreeUtil.isConst(tree, node),
+				JSLightTreeUtil.isLocal(tree, node));
+		String typeString = JSPsiImplUtils.getType(tree, node);
+		String initializerText = JSLightTreeUtil.getInitializerText(tree, node);
+		String qualifiedName = JSLightTreeUtil.getQName(tree, node);
+		return new JSVariableStubImpl(name, flags, typeString, initializerText, qualifiedName, parentStub, this);
+	}
+
 	@Override
 	public void serialize(@NotNull JSVariableStub stub, @NotNull StubOutputStream dataStream) throws IOException
 	{
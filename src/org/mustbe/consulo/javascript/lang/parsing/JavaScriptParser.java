@@ -3,9 +3,11 @@ package org.mustbe.consulo.javascript.lang.parsing;
 import org.jetbrains.annotations.NotNull;
 import com.intellij.lang.ASTNode;
 import com.intellij.lang.LanguageVersion;
+import com.intellij.lang.LighterASTNode;
 import com.intellij.lang.PsiBuilder;
 import com.intellij.lang.PsiParser;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.util.diff.FlyweightCapableTreeStructure;
 
 /**
  * @author VISTALL
@@ -16,6 +18,15 @@ public class JavaScriptParser implements PsiParser
 	@NotNull
 	@Override
 	public ASTNode parse(@NotNull IElementType root, @NotNull PsiBuilder builder, @NotNull LanguageVersion languageVersion)
+	{
+		parseFile(root, builder, languageVersion);
+		return builder.getTreeBuilt();
+	}
+
+	/**
+	 * Marks the whole file without building the tree, stubs are built from {@link PsiBuilder#getLightTree()} after it
+	 */
+	public void parseFile(@NotNull IElementType root, @NotNull PsiBuilder builder, @NotNull LanguageVersion languageVersion)
 	{
 		JavaScriptParsingContext parsingContext = createParsingContext();
 
@@ -25,9 +36,42 @@ public class JavaScriptParser implements PsiParser
 			parsingContext.getStatementParsing().parseSourceElement(builder);
 		}
 		rootMarker.done(root);
+	}
+
+	/**
+	 * Parses a single block, used by {@link com.intellij.lang.javascript.types.JSBlockStatementElementType} to expand lazy function bodies
+	 */
+	@NotNull
+	public ASTNode parseBlock(@NotNull IElementType root, @NotNull PsiBuilder builder, boolean functionBody)
+	{
+		markBlock(root, builder, functionBody);
 		return builder.getTreeBuilt();
 	}
 
+	/**
+	 * Same as {@link #parseBlock} for lazy function bodies expanded in the light tree while stubs are built
+	 */
+	@NotNull
+	public FlyweightCapableTreeStructure<LighterASTNode> parseBlockLight(@NotNull IElementType root, @NotNull PsiBuilder builder,
+			boolean functionBody)
+	{
+		markBlock(root, builder, functionBody);
+		return builder.getLightTree();
+	}
+
+	private void markBlock(@NotNull IElementType root, @NotNull PsiBuilder builder, boolean functionBody)
+	{
+		JavaScriptParsingContext parsingContext = createParsingContext();
+
+		final PsiBuilder.Marker rootMarker = builder.mark();
+		parsingContext.getStatementParsing().parseBlockContents(builder, functionBody);
+		while(!builder.eof())
+		{
+			parsingContext.getStatementParsing().parseSourceElement(builder);
+		}
+		rootMarker.done(root);
+	}
+
 	@NotNull
 	public JavaScriptParsingContext createParsingContext()
 	{
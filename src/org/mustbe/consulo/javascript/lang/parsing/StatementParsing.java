@@ -717,19 +717,73 @@ public class StatementParsing extends Parsing
 		parseBlockOrFunctionBody(builder, BlockType.BLOCK);
 	}
 
+	/**
+	 * Function bodies with balanced braces are not parsed here, they become lazy {@link JSElementTypes#BLOCK_STATEMENT} chameleons
+	 * expanded by {@link #parseBlockContents(PsiBuilder, boolean)} on first access. Bodies with a token from
+	 * {@link #isStubbedInFunctionBody(IElementType)} are parsed eagerly, so the stub builder can see inside them.
+	 */
 	public void parseFunctionBody(final PsiBuilder builder)
 	{
+		if(builder.getTokenType() == JSTokenTypes.LBRACE)
+		{
+			final PsiBuilder.Marker block = builder.mark();
+			if(skipLazyFunctionBody(builder))
+			{
+				block.collapse(JSElementTypes.BLOCK_STATEMENT);
+				return;
+			}
+			block.rollbackTo();
+		}
 		parseBlockOrFunctionBody(builder, BlockType.FUNCTION_BODY);
 	}
 
+	/**
+	 * Parses braces and statements of a block without the block marker itself
+	 */
+	public void parseBlockContents(final PsiBuilder builder, boolean functionBody)
+	{
+		parseBlockOrFunctionBody(builder, functionBody ? BlockType.FUNCTION_BODY_CONTENTS : BlockType.BLOCK_CONTENTS);
+	}
+
+	/**
+	 * Tokens starting statements that get stubs even inside of function bodies
+	 */
+	protected boolean isStubbedInFunctionBody(final IElementType tokenType)
+	{
+		return false;
+	}
+
+	private boolean skipLazyFunctionBody(final PsiBuilder builder)
+	{
+		int depth = 0;
+		while(!builder.eof())
+		{
+			final IElementType tokenType = builder.getTokenType();
+			if(isStubbedInFunctionBody(tokenType))
+			{
+				return false;
+			}
+			builder.advanceLexer();
+			if(tokenType == JSTokenTypes.LBRACE)
+			{
+				depth++;
+			}
+			else if(tokenType == JSTokenTypes.RBRACE && --depth == 0)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
 	enum BlockType
 	{
-		FUNCTION_BODY, BLOCK, PACKAGE_OR_CLASS_BODY
+		FUNCTION_BODY, BLOCK, PACKAGE_OR_CLASS_BODY, FUNCTION_BODY_CONTENTS, BLOCK_CONTENTS
 	}
 
 	protected void parseBlockOrFunctionBody(final PsiBuilder builder, BlockType type)
 	{
-		final PsiBuilder.Marker block = type != BlockType.PACKAGE_OR_CLASS_BODY ? builder.mark() : null;
+		final PsiBuilder.Marker block = type == BlockType.FUNCTION_BODY || type == BlockType.BLOCK ? builder.mark() : null;
 		if(builder.getTokenType() != JSTokenTypes.LBRACE)
 		{
 			if(block != null)
@@ -753,11 +807,11 @@ public class StatementParsing extends Parsing
 				return;
 			}
 
-			if(type == BlockType.FUNCTION_BODY)
+			if(type == BlockType.FUNCTION_BODY || type == BlockType.FUNCTION_BODY_CONTENTS)
 			{
 				parseSourceElement(builder);
 			}
-			else if(type == BlockType.BLOCK)
+			else if(type == BlockType.BLOCK || type == BlockType.BLOCK_CONTENTS)
 			{
 				parseStatement(builder);
 			}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mustbe.consulo.javascript.run.debug;
+
+import org.chromium.sdk.JsArray;
+import org.chromium.sdk.JsVariable;
+import org.jetbrains.annotations.NotNull;
+import com.intellij.icons.AllIcons;
+import com.intellij.xdebugger.frame.XCompositeNode;
+import com.intellij.xdebugger.frame.XNamedValue;
+import com.intellij.xdebugger.frame.XValueChildrenList;
+import com.intellij.xdebugger.frame.XValueNode;
+import com.intellij.xdebugger.frame.XValuePlace;
+import com.intellij.xdebugger.frame.presentation.XValuePresentation;
+
+/**
+ * Index range [start..end] of big array. Ranges are nested so that no node has more than page size children
+ */
+public class V8ArrayRangeValue extends XNamedValue
+{
+	private final JsArray myArray;
+	private final int myStart;
+	private final int myEnd;
+
+	public V8ArrayRangeValue(@NotNull JsArray array, int start, int end)
+	{
+		super("[" + start + ".." + end + "]");
+		myArray = array;
+		myStart = start;
+		myEnd = end;
+	}
+
+	static void addRanges(@NotNull XValueChildrenList list, @NotNull JsArray array, int start, int end)
+	{
+		final long size = (long) end - start + 1;
+
+		long rangeSize = V8ValuePaging.PAGE_SIZE;
+		while(size > rangeSize * V8ValuePaging.PAGE_SIZE)
+		{
+			rangeSize *= V8ValuePaging.PAGE_SIZE;
+		}
+
+		for(long i = start; i <= end; i += rangeSize)
+		{
+			list.add(new V8ArrayRangeValue(array, (int) i, (int) Math.min(i + rangeSize - 1, end)));
+		}
+	}
+
+	@Override
+	public void computeChildren(@NotNull XCompositeNode node)
+	{
+		XValueChildrenList valueChildrenList = new XValueChildrenList();
+		if(myEnd - myStart + 1 > V8ValuePaging.PAGE_SIZE)
+		{
+			addRanges(valueChildrenList, myArray, myStart, myEnd);
+		}
+		else
+		{
+			for(int i = myStart; i <= myEnd; i++)
+			{
+				JsVariable element = myArray.get(i);
+				// holes of sparse arrays
+				if(element != null)
+				{
+					valueChildrenList.add(new V8VariableValue(element));
+				}
+			}
+		}
+		node.addChildren(valueChildrenList, true);
+	}
+
+	@Override
+	public void computePresentation(@NotNull XValueNode xValueNode, @NotNull XValuePlace xValuePlace)
+	{
+		xValueNode.setPresentation(AllIcons.Nodes.Variable, new XValuePresentation()
+		{
+			@NotNull
+			@Override
+			public String getSeparator()
+			{
+				return "";
+			}
+
+			@Override
+			public void renderValue(@NotNull XValueTextRenderer xValueTextRenderer)
+			{
+			}
+		}, true);
+	}
+}
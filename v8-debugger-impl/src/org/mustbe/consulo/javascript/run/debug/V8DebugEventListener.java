@@ -47,7 +47,7 @@ public class V8DebugEventListener implements DebugEventListener
 		}
 
 		myV8DebugProcess.setCurrentDebugContext(debugContext);
-		myV8DebugProcess.getSession().positionReached(new V8SuspendContext(debugContext));
+		myV8DebugProcess.getSession().positionReached(new V8SuspendContext(debugContext, myV8DebugProcess.getSourceMaps()));
 	}
 
 	@Override
@@ -17,7 +17,15 @@
 package org.mustbe.consulo.javascript.run.debug;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.chromium.sdk.Breakpoint;
 import org.chromium.sdk.BrowserFactory;
@@ -64,11 +72,18 @@ import com.intellij.xdebugger.ui.XDebugTabLayouter;
 public class V8DebugProcess extends XDebugProcess
 {
 	private static final Key<Breakpoint> V8_BREAKPOINT = Key.create("v8.breakpoint");
+	// generated position breakpoint was set at
+	private static final Key<V8SourceMap.Position> V8_BREAKPOINT_TARGET = Key.create("v8.breakpoint.target");
 
 	private final ExecutionResult myResult;
 	private final StandaloneVm myVm;
 	private DebugContext myCurrentDebugContext;
 	private JavaScriptListPanel<Script> myScriptListPanel;
+	// scripts reported by vm thread, moved to the panel by one EDT runnable per batch
+	private final Queue<Script> myPendingScripts = new ConcurrentLinkedQueue<Script>();
+	private final AtomicBoolean myPendingScriptsScheduled = new AtomicBoolean();
+	private final V8SourceMaps mySourceMaps = new V8SourceMaps();
+	private final Set<XLineBreakpoint> myRegisteredBreakpoints = Collections.newSetFromMap(new ConcurrentHashMap<XLineBreakpoint, Boolean>());
 
 	private final XBreakpointManager myXBreakpointManager;
 
@@ -83,6 +98,13 @@ public class V8DebugProcess extends XDebugProcess
 			{
 				return V8ScriptUtil.toVirtualFile(value, toOpen);
 			}
+
+			@Nullable
+			@Override
+			public String getPath(@NotNull Script value)
+			{
+				return value.getName();
+			}
 		};
 		myResult = result;
 		myXBreakpointManager = XDebuggerManager.getInstance(getSession().getProject()).getBreakpointManager();
@@ -153,38 +175,98 @@ public class V8DebugProcess extends XDebugProcess
 				new XBreakpointHandler<XLineBreakpoint<XBreakpointProperties>>(JavaScriptLineBreakpointType.class)
 				{
 					@Override
-					public void registerBreakpoint(@NotNull final XLineBreakpoint xBreakpoint)
+					public void registerBreakpoint(@NotNull XLineBreakpoint xBreakpoint)
 					{
-						String presentableFilePath = xBreakpoint.getPresentableFilePath();
-						int line = xBreakpoint.getLine();
-						myVm.setBreakpoint(new Breakpoint.Target.ScriptName(presentableFilePath), line, 0, true, null,
-								new JavascriptVm.BreakpointCallback()
-						{
-							@Override
-							public void success(Breakpoint breakpoint)
-							{
-								xBreakpoint.putUserData(V8_BREAKPOINT, breakpoint);
-								myXBreakpointManager.updateBreakpointPresentation(xBreakpoint, AllIcons.Debugger.Db_verified_breakpoint, null);
-							}
-
-							@Override
-							public void failure(String s)
-							{
-								myXBreakpointManager.updateBreakpointPresentation(xBreakpoint, AllIcons.Debugger.Db_invalid_breakpoint, s);
-							}
-						}, null);
+						myRegisteredBreakpoints.add(xBreakpoint);
+						setV8Breakpoint(xBreakpoint);
 					}
 
 					@Override
 					public void unregisterBreakpoint(@NotNull XLineBreakpoint xBreakpoint, boolean b)
 					{
-						String presentableFilePath = xBreakpoint.getPresentableFilePath();
-						myVm.setBreakpoint(new Breakpoint.Target.ScriptName(presentableFilePath), xBreakpoint.getLine(), 0, false, null, null, null);
+						myRegisteredBreakpoints.remove(xBreakpoint);
+						clearV8Breakpoint(xBreakpoint);
 					}
 				}
 		};
 	}
 
+	private void setV8Breakpoint(@NotNull final XLineBreakpoint xBreakpoint)
+	{
+		V8SourceMap.Position position = getGeneratedPosition(xBreakpoint);
+		xBreakpoint.putUserData(V8_BREAKPOINT_TARGET, position);
+		myVm.setBreakpoint(new Breakpoint.Target.ScriptName(position.myPath), position.myLine, position.myColumn, true, null,
+				new JavascriptVm.BreakpointCallback()
+		{
+			@Override
+			public void success(Breakpoint breakpoint)
+			{
+				xBreakpoint.putUserData(V8_BREAKPOINT, breakpoint);
+				myXBreakpointManager.updateBreakpointPresentation(xBreakpoint, AllIcons.Debugger.Db_verified_breakpoint, null);
+			}
+
+			@Override
+			public void failure(String s)
+			{
+				myXBreakpointManager.updateBreakpointPresentation(xBreakpoint, AllIcons.Debugger.Db_invalid_breakpoint, s);
+			}
+		}, null);
+	}
+
+	/**
+	 * Removes breakpoint from position it was set at, source map loaded after that may map it elsewhere now
+	 */
+	private void clearV8Breakpoint(@NotNull XLineBreakpoint xBreakpoint)
+	{
+		V8SourceMap.Position position = xBreakpoint.getUserData(V8_BREAKPOINT_TARGET);
+		if(position == null)
+		{
+			return;
+		}
+		xBreakpoint.putUserData(V8_BREAKPOINT_TARGET, null);
+
+		Breakpoint breakpoint = xBreakpoint.getUserData(V8_BREAKPOINT);
+		if(breakpoint != null)
+		{
+			xBreakpoint.putUserData(V8_BREAKPOINT, null);
+			breakpoint.clear(null, null);
+		}
+		else
+		{
+			myVm.setBreakpoint(new Breakpoint.Target.ScriptName(position.myPath), position.myLine, position.myColumn, false, null, null, null);
+		}
+	}
+
+	/**
+	 * Moves breakpoints registered before source map of the script was loaded to their generated positions
+	 */
+	private void updateBreakpoints()
+	{
+		for(XLineBreakpoint xBreakpoint : myRegisteredBreakpoints)
+		{
+			V8SourceMap.Position oldPosition = xBreakpoint.getUserData(V8_BREAKPOINT_TARGET);
+			V8SourceMap.Position newPosition = getGeneratedPosition(xBreakpoint);
+			if(oldPosition != null && oldPosition.myPath.equals(newPosition.myPath) && oldPosition.myLine == newPosition.myLine && oldPosition
+					.myColumn == newPosition.myColumn)
+			{
+				continue;
+			}
+			clearV8Breakpoint(xBreakpoint);
+			setV8Breakpoint(xBreakpoint);
+		}
+	}
+
+	/**
+	 * Position in generated script for breakpoint set in original source, or breakpoint position itself if no source map covers it
+	 */
+	@NotNull
+	private V8SourceMap.Position getGeneratedPosition(@NotNull XLineBreakpoint xBreakpoint)
+	{
+		String presentableFilePath = xBreakpoint.getPresentableFilePath();
+		V8SourceMap.Position position = mySourceMaps.getGeneratedPosition(presentableFilePath, xBreakpoint.getLine());
+		return position != null ? position : new V8SourceMap.Position(presentableFilePath, xBreakpoint.getLine(), 0);
+	}
+
 	@Override
 	public void startPausing()
 	{
@@ -226,6 +308,7 @@ public class V8DebugProcess extends XDebugProcess
 	public void stop()
 	{
 		myVm.detach();
+		myRegisteredBreakpoints.clear();
 		ApplicationManager.getApplication().runReadAction(new Runnable()
 		{
 			@Override
@@ -236,6 +319,7 @@ public class V8DebugProcess extends XDebugProcess
 				for(XLineBreakpoint<XBreakpointProperties> breakpoint : breakpoints)
 				{
 					breakpoint.putUserData(V8_BREAKPOINT, null);
+					breakpoint.putUserData(V8_BREAKPOINT_TARGET, null);
 
 					myXBreakpointManager.updateBreakpointPresentation(breakpoint, null, null);
 				}
@@ -304,16 +388,42 @@ public class V8DebugProcess extends XDebugProcess
 
 	public void addScript(final Script script)
 	{
+		mySourceMaps.scriptLoaded(script);
+		if(mySourceMaps.getSourceMap(script) != null)
+		{
+			updateBreakpoints();
+		}
+
+		myPendingScripts.add(script);
+		if(!myPendingScriptsScheduled.compareAndSet(false, true))
+		{
+			return;
+		}
+
 		UIUtil.invokeLaterIfNeeded(new Runnable()
 		{
 			@Override
 			public void run()
 			{
-				myScriptListPanel.add(script);
+				myPendingScriptsScheduled.set(false);
+
+				List<Script> scripts = new ArrayList<Script>();
+				Script script;
+				while((script = myPendingScripts.poll()) != null)
+				{
+					scripts.add(script);
+				}
+				myScriptListPanel.addAll(scripts);
 			}
 		});
 	}
 
+	@NotNull
+	public V8SourceMaps getSourceMaps()
+	{
+		return mySourceMaps;
+	}
+
 	public void setCurrentDebugContext(DebugContext debugContext)
 	{
 		myCurrentDebugContext = debugContext;
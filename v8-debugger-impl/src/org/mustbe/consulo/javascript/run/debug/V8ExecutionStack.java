@@ -32,11 +32,13 @@ import com.intellij.xdebugger.frame.XStackFrame;
 public class V8ExecutionStack extends XExecutionStack
 {
 	private final DebugContext myDebugContext;
+	private final V8SourceMaps mySourceMaps;
 
-	public V8ExecutionStack(DebugContext debugContext)
+	public V8ExecutionStack(DebugContext debugContext, V8SourceMaps sourceMaps)
 	{
 		super("");
 		myDebugContext = debugContext;
+		mySourceMaps = sourceMaps;
 	}
 
 	@Nullable
@@ -44,7 +46,7 @@ public class V8ExecutionStack extends XExecutionStack
 	public XStackFrame getTopFrame()
 	{
 		List<? extends CallFrame> callFrames = myDebugContext.getCallFrames();
-		return callFrames.isEmpty() ? null : new V8StackFrame(callFrames.get(0));
+		return callFrames.isEmpty() ? null : new V8StackFrame(callFrames.get(0), mySourceMaps);
 	}
 
 	@Override
@@ -57,7 +59,7 @@ public class V8ExecutionStack extends XExecutionStack
 		{
 			CallFrame callFrame = callFrames.get(a);
 
-			stackFrames.add(new V8StackFrame(callFrame));
+			stackFrames.add(new V8StackFrame(callFrame, mySourceMaps));
 		}
 
 		frameContainer.addStackFrames(stackFrames, true);
@@ -16,15 +16,11 @@
 
 package org.mustbe.consulo.javascript.run.debug;
 
-import java.util.List;
-
 import org.chromium.sdk.JsScope;
-import org.chromium.sdk.JsVariable;
 import org.jetbrains.annotations.NotNull;
 import com.intellij.icons.AllIcons;
 import com.intellij.xdebugger.frame.XCompositeNode;
 import com.intellij.xdebugger.frame.XNamedValue;
-import com.intellij.xdebugger.frame.XValueChildrenList;
 import com.intellij.xdebugger.frame.XValueNode;
 import com.intellij.xdebugger.frame.XValuePlace;
 import com.intellij.xdebugger.frame.presentation.XValuePresentation;
@@ -36,6 +32,7 @@ import com.intellij.xdebugger.frame.presentation.XValuePresentation;
 public class V8ScopeValue extends XNamedValue
 {
 	private final JsScope myVariableScope;
+	private int myVariablesOffset;
 
 	public V8ScopeValue(JsScope variableScope)
 	{
@@ -46,14 +43,7 @@ public class V8ScopeValue extends XNamedValue
 	@Override
 	public void computeChildren(@NotNull XCompositeNode node)
 	{
-		List<? extends JsVariable> variables = myVariableScope.getVariables();
-
-		XValueChildrenList valueChildrenList = new XValueChildrenList();
-		for(JsVariable variable : variables)
-		{
-			valueChildrenList.add(new V8VariableValue(variable));
-		}
-		node.addChildren(valueChildrenList, true);
+		myVariablesOffset = V8ValuePaging.addPage(node, myVariableScope.getVariables(), myVariablesOffset);
 	}
 
 	@Override
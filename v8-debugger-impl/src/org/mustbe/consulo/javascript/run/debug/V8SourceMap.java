@@ -0,0 +1,406 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mustbe.consulo.javascript.run.debug;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import com.intellij.openapi.diagnostic.Logger;
+
+/**
+ * Source map (revision 3) of one generated script. Mappings are kept as VLQ text until first lookup and then decoded once
+ * into primitive arrays: sorted by generated position as they come, plus index sorted by original position. Both lookups
+ * are binary searches. Lines and columns are 0-based.
+ */
+public class V8SourceMap
+{
+	private static final Logger LOG = Logger.getInstance(V8SourceMap.class);
+
+	public static class Position
+	{
+		// source path for original positions, generated script name for generated ones
+		@NotNull
+		public final String myPath;
+		public final int myLine;
+		public final int myColumn;
+
+		public Position(@NotNull String path, int line, int column)
+		{
+			myPath = path;
+			myLine = line;
+			myColumn = column;
+		}
+	}
+
+	private static final int[] BASE64_VALUES = new int[128];
+
+	static
+	{
+		Arrays.fill(BASE64_VALUES, -1);
+		String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for(int i = 0; i < chars.length(); i++)
+		{
+			BASE64_VALUES[chars.charAt(i)] = i;
+		}
+	}
+
+	private final String myGeneratedPath;
+	private final String[] mySources;
+
+	// dropped after decoding
+	private String myMappings;
+
+	private int mySize;
+	private int[] myGeneratedLines;
+	private int[] myGeneratedColumns;
+	// -1 for segments without source
+	private int[] mySourceIndices;
+	private int[] myOriginalLines;
+	private int[] myOriginalColumns;
+	// mapping indices sorted by source, original line and column, generated order is kept for equal positions
+	private int[] myByOriginal;
+
+	public V8SourceMap(@NotNull String generatedPath, @NotNull String[] sources, @NotNull String mappings)
+	{
+		myGeneratedPath = generatedPath;
+		mySources = sources;
+		myMappings = mappings;
+	}
+
+	@NotNull
+	public String getGeneratedPath()
+	{
+		return myGeneratedPath;
+	}
+
+	@NotNull
+	public String[] getSources()
+	{
+		return mySources;
+	}
+
+	@Nullable
+	public Position getOriginalPosition(int line, int column)
+	{
+		ensureDecoded();
+
+		// last mapping at or before (line, column)
+		int low = 0;
+		int high = mySize - 1;
+		int found = -1;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if(compareGenerated(mid, line, column) <= 0)
+			{
+				found = mid;
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+
+		// statement start may be before first mapping of line
+		if((found == -1 || myGeneratedLines[found] != line) && found + 1 < mySize && myGeneratedLines[found + 1] == line)
+		{
+			found++;
+		}
+		if(found == -1 || myGeneratedLines[found] != line || mySourceIndices[found] == -1)
+		{
+			return null;
+		}
+		return new Position(mySources[mySourceIndices[found]], myOriginalLines[found], myOriginalColumns[found]);
+	}
+
+	/**
+	 * @return generated position of first mapping of original line, or of nearest mapped line below it in the same source
+	 */
+	@Nullable
+	public Position getGeneratedPosition(int sourceIndex, int line)
+	{
+		ensureDecoded();
+
+		int low = 0;
+		int high = mySize - 1;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			int index = myByOriginal[mid];
+			int result = mySourceIndices[index] != sourceIndex ? (mySourceIndices[index] < sourceIndex ? -1 : 1) : (myOriginalLines[index] < line ? -1 : 1);
+			if(result < 0)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+
+		if(low == mySize || mySourceIndices[myByOriginal[low]] != sourceIndex)
+		{
+			return null;
+		}
+		int index = myByOriginal[low];
+		return new Position(myGeneratedPath, myGeneratedLines[index], myGeneratedColumns[index]);
+	}
+
+	private int compareGenerated(int index, int line, int column)
+	{
+		if(myGeneratedLines[index] != line)
+		{
+			return myGeneratedLines[index] < line ? -1 : 1;
+		}
+		return myGeneratedColumns[index] < column ? -1 : myGeneratedColumns[index] == column ? 0 : 1;
+	}
+
+	private synchronized void ensureDecoded()
+	{
+		if(myMappings == null)
+		{
+			return;
+		}
+		try
+		{
+			decode(myMappings);
+		}
+		catch(RuntimeException e)
+		{
+			// broken map is not decoded again, it maps nothing
+			LOG.info("Invalid mappings in source map of " + myGeneratedPath, e);
+			mySize = 0;
+		}
+		myMappings = null;
+	}
+
+	private void decode(@NotNull String mappings)
+	{
+		// upper bound: every segment ends with ',' or ';' except the last one
+		int capacity = 1;
+		for(int i = 0; i < mappings.length(); i++)
+		{
+			char c = mappings.charAt(i);
+			if(c == ',' || c == ';')
+			{
+				capacity++;
+			}
+		}
+
+		int[] generatedLines = new int[capacity];
+		int[] generatedColumns = new int[capacity];
+		int[] sourceIndices = new int[capacity];
+		int[] originalLines = new int[capacity];
+		int[] originalColumns = new int[capacity];
+
+		int size = 0;
+		int line = 0;
+		int column = 0;
+		int source = 0;
+		int originalLine = 0;
+		int originalColumn = 0;
+		boolean sorted = true;
+
+		final int[] fields = new int[5];
+		final int length = mappings.length();
+		int offset = 0;
+		while(offset < length)
+		{
+			char c = mappings.charAt(offset);
+			if(c == ';')
+			{
+				line++;
+				column = 0;
+				offset++;
+				continue;
+			}
+			if(c == ',')
+			{
+				offset++;
+				continue;
+			}
+
+			int fieldCount = 0;
+			while(offset < length && (c = mappings.charAt(offset)) != ',' && c != ';')
+			{
+				int value = 0;
+				int shift = 0;
+				int digit;
+				do
+				{
+					c = mappings.charAt(offset++);
+					digit = c < 128 ? BASE64_VALUES[c] : -1;
+					if(digit == -1)
+					{
+						throw new IllegalArgumentException("Invalid VLQ character '" + c + "' at " + (offset - 1));
+					}
+					value += (digit & 31) << shift;
+					shift += 5;
+				}
+				while((digit & 32) != 0 && offset < length);
+
+				if(fieldCount < fields.length)
+				{
+					fields[fieldCount] = (value & 1) != 0 ? -(value >>> 1) : value >>> 1;
+				}
+				fieldCount++;
+			}
+
+			column += fields[0];
+			generatedLines[size] = line;
+			generatedColumns[size] = column;
+			if(fieldCount >= 4)
+			{
+				source += fields[1];
+				originalLine += fields[2];
+				originalColumn += fields[3];
+				sourceIndices[size] = source >= 0 && source < mySources.length ? source : -1;
+				originalLines[size] = originalLine;
+				originalColumns[size] = originalColumn;
+			}
+			else
+			{
+				sourceIndices[size] = -1;
+			}
+			if(size > 0 && compareGenerated(generatedLines, generatedColumns, size - 1, size) > 0)
+			{
+				sorted = false;
+			}
+			size++;
+		}
+
+		if(!sorted)
+		{
+			final int[] lines = generatedLines;
+			final int[] columns = generatedColumns;
+			int[] order = identity(size);
+			sort(order, new IndexComparator()
+			{
+				@Override
+				public int compare(int i1, int i2)
+				{
+					return compareGenerated(lines, columns, i1, i2);
+				}
+			});
+			generatedLines = permute(generatedLines, order);
+			generatedColumns = permute(generatedColumns, order);
+			sourceIndices = permute(sourceIndices, order);
+			originalLines = permute(originalLines, order);
+			originalColumns = permute(originalColumns, order);
+		}
+
+		final int[] sources = sourceIndices;
+		final int[] lines = originalLines;
+		final int[] columns = originalColumns;
+		int[] byOriginal = identity(size);
+		sort(byOriginal, new IndexComparator()
+		{
+			@Override
+			public int compare(int i1, int i2)
+			{
+				return compareOriginal(sources, lines, columns, i1, i2);
+			}
+		});
+
+		myGeneratedLines = generatedLines;
+		myGeneratedColumns = generatedColumns;
+		mySourceIndices = sourceIndices;
+		myOriginalLines = originalLines;
+		myOriginalColumns = originalColumns;
+		myByOriginal = byOriginal;
+		mySize = size;
+	}
+
+	private static int compareGenerated(int[] lines, int[] columns, int i1, int i2)
+	{
+		if(lines[i1] != lines[i2])
+		{
+			return lines[i1] < lines[i2] ? -1 : 1;
+		}
+		return columns[i1] < columns[i2] ? -1 : columns[i1] == columns[i2] ? 0 : 1;
+	}
+
+	private static int[] identity(int size)
+	{
+		int[] result = new int[size];
+		for(int i = 0; i < size; i++)
+		{
+			result[i] = i;
+		}
+		return result;
+	}
+
+	private static int[] permute(int[] values, int[] order)
+	{
+		int[] result = new int[order.length];
+		for(int i = 0; i < order.length; i++)
+		{
+			result[i] = values[order[i]];
+		}
+		return result;
+	}
+
+	private interface IndexComparator
+	{
+		int compare(int i1, int i2);
+	}
+
+	/**
+	 * Stable merge sort of index array, there is no primitive sort with comparator in jdk
+	 */
+	private static void sort(int[] order, IndexComparator comparator)
+	{
+		int[] buffer = new int[order.length];
+		for(int width = 1; width < order.length; width <<= 1)
+		{
+			for(int from = 0; from < order.length - width; from += width << 1)
+			{
+				int middle = from + width;
+				int to = Math.min(from + (width << 1), order.length);
+				int i = from, j = middle, k = from;
+				while(i < middle && j < to)
+				{
+					buffer[k++] = comparator.compare(order[j], order[i]) < 0 ? order[j++] : order[i++];
+				}
+				while(i < middle)
+				{
+					buffer[k++] = order[i++];
+				}
+				while(j < to)
+				{
+					buffer[k++] = order[j++];
+				}
+				System.arraycopy(buffer, from, order, from, to - from);
+			}
+		}
+	}
+
+	private static int compareOriginal(int[] sources, int[] lines, int[] columns, int i1, int i2)
+	{
+		if(sources[i1] != sources[i2])
+		{
+			return sources[i1] < sources[i2] ? -1 : 1;
+		}
+		if(lines[i1] != lines[i2])
+		{
+			return lines[i1] < lines[i2] ? -1 : 1;
+		}
+		return columns[i1] < columns[i2] ? -1 : columns[i1] == columns[i2] ? 0 : 1;
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mustbe.consulo.javascript.run.debug;
+
+import gnu.trove.THashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.chromium.sdk.Script;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.StandardFileSystems;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.util.ArrayUtil;
+
+/**
+ * Source maps of scripts of one debug session. Map of script is loaded once, when vm reports the script, only sources and
+ * raw mappings are read then, mappings are decoded on first lookup. Lookups of original sources go through index built from
+ * sources of loaded maps.
+ */
+public class V8SourceMaps
+{
+	private static final Logger LOG = Logger.getInstance(V8SourceMaps.class);
+
+	private static final V8SourceMap NO_MAP = new V8SourceMap("", ArrayUtil.EMPTY_STRING_ARRAY, "");
+
+	private static final String SOURCE_MAPPING_URL = "sourceMappingURL=";
+
+	private final ConcurrentMap<String, V8SourceMap> myMapsByScript = new ConcurrentHashMap<String, V8SourceMap>();
+	// system independent original source path -> map and index of source in it
+	private final Map<String, SourceRef> myMapsBySource = new THashMap<String, SourceRef>(FileUtil.PATH_HASHING_STRATEGY);
+
+	private static class SourceRef
+	{
+		private final V8SourceMap myMap;
+		private final int myIndex;
+
+		private SourceRef(V8SourceMap map, int index)
+		{
+			myMap = map;
+			myIndex = index;
+		}
+	}
+
+	public void scriptLoaded(@NotNull Script script)
+	{
+		getSourceMap(script);
+	}
+
+	@Nullable
+	public V8SourceMap getSourceMap(@NotNull Script script)
+	{
+		String scriptName = script.getName();
+		if(scriptName == null)
+		{
+			return null;
+		}
+
+		V8SourceMap map = myMapsByScript.get(scriptName);
+		if(map == null)
+		{
+			map = loadSourceMap(scriptName, script.getSource());
+			V8SourceMap oldMap = myMapsByScript.putIfAbsent(scriptName, map == null ? NO_MAP : map);
+			if(oldMap != null)
+			{
+				map = oldMap;
+			}
+			else if(map != null)
+			{
+				indexSources(map);
+			}
+		}
+		return map == NO_MAP ? null : map;
+	}
+
+	@Nullable
+	public V8SourceMap.Position getOriginalPosition(@NotNull Script script, int line, int column)
+	{
+		V8SourceMap map = getSourceMap(script);
+		return map == null ? null : map.getOriginalPosition(line, column);
+	}
+
+	@Nullable
+	public V8SourceMap.Position getGeneratedPosition(@NotNull String sourcePath, int line)
+	{
+		SourceRef sourceRef;
+		synchronized(myMapsBySource)
+		{
+			sourceRef = myMapsBySource.get(FileUtil.toSystemIndependentName(sourcePath));
+		}
+		return sourceRef == null ? null : sourceRef.myMap.getGeneratedPosition(sourceRef.myIndex, line);
+	}
+
+	private void indexSources(@NotNull V8SourceMap map)
+	{
+		String[] sources = map.getSources();
+		synchronized(myMapsBySource)
+		{
+			for(int i = 0; i < sources.length; i++)
+			{
+				myMapsBySource.put(sources[i], new SourceRef(map, i));
+			}
+		}
+	}
+
+	@Nullable
+	private static V8SourceMap loadSourceMap(@NotNull String scriptName, @Nullable String scriptSource)
+	{
+		String url = findSourceMappingUrl(scriptSource);
+		if(url == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			File scriptDirectory = new File(scriptName).getParentFile();
+			String text;
+			File mapDirectory;
+			if(url.startsWith("data:"))
+			{
+				int comma = url.indexOf(',');
+				if(comma == -1)
+				{
+					return null;
+				}
+				String data = url.substring(comma + 1);
+				text = url.substring(0, comma).endsWith(";base64") ? new String(DatatypeConverter.parseBase64Binary(data), "UTF-8") : URLDecoder
+						.decode(data, "UTF-8");
+				mapDirectory = scriptDirectory;
+			}
+			else
+			{
+				File mapFile;
+				if(url.startsWith(StandardFileSystems.FILE_PROTOCOL_PREFIX))
+				{
+					mapFile = new File(VfsUtilCore.urlToPath(url));
+				}
+				else if(url.contains("://"))
+				{
+					// remote maps are not supported
+					return null;
+				}
+				else
+				{
+					mapFile = FileUtil.isAbsolute(url) || scriptDirectory == null ? new File(url) : new File(scriptDirectory, url);
+				}
+				if(!mapFile.isFile())
+				{
+					return null;
+				}
+				text = FileUtil.loadFile(mapFile, "UTF-8");
+				mapDirectory = mapFile.getParentFile();
+			}
+			return parseSourceMap(scriptName, text, mapDirectory);
+		}
+		catch(IOException e)
+		{
+			LOG.info("Can't load source map of " + scriptName, e);
+		}
+		catch(RuntimeException e)
+		{
+			LOG.info("Invalid source map of " + scriptName, e);
+		}
+		return null;
+	}
+
+	@Nullable
+	private static String findSourceMappingUrl(@Nullable String source)
+	{
+		if(source == null)
+		{
+			return null;
+		}
+		int index = source.lastIndexOf(SOURCE_MAPPING_URL);
+		// only "//# sourceMappingURL=" and legacy "//@ sourceMappingURL=" comments
+		if(index < 4 || !source.startsWith("//", index - 4) || (source.charAt(index - 2) != '#' && source.charAt(index - 2) != '@'))
+		{
+			return null;
+		}
+		int start = index + SOURCE_MAPPING_URL.length();
+		int end = start;
+		while(end < source.length() && !Character.isWhitespace(source.charAt(end)))
+		{
+			end++;
+		}
+		return end > start ? source.substring(start, end) : null;
+	}
+
+	@Nullable
+	private static V8SourceMap parseSourceMap(@NotNull String scriptName, @NotNull String text, @Nullable File mapDirectory) throws IOException
+	{
+		// protection prefix
+		if(text.startsWith(")]}"))
+		{
+			text = text.substring(text.indexOf('\n') + 1);
+		}
+
+		String sourceRoot = "";
+		List<String> sources = new ArrayList<String>();
+		String mappings = null;
+
+		JsonReader reader = new JsonReader(new StringReader(text));
+		try
+		{
+			reader.beginObject();
+			while(reader.hasNext())
+			{
+				String name = reader.nextName();
+				if(name.equals("sourceRoot") && reader.peek() == JsonToken.STRING)
+				{
+					sourceRoot = reader.nextString();
+				}
+				else if(name.equals("sources"))
+				{
+					reader.beginArray();
+					while(reader.hasNext())
+					{
+						if(reader.peek() == JsonToken.NULL)
+						{
+							reader.nextNull();
+							sources.add("");
+						}
+						else
+						{
+							sources.add(reader.nextString());
+						}
+					}
+					reader.endArray();
+				}
+				else if(name.equals("mappings"))
+				{
+					mappings = reader.nextString();
+				}
+				else
+				{
+					// sourcesContent is never materialized
+					reader.skipValue();
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		if(mappings == null)
+		{
+			return null;
+		}
+
+		String[] resolvedSources = new String[sources.size()];
+		for(int i = 0; i < resolvedSources.length; i++)
+		{
+			resolvedSources[i] = resolveSource(sourceRoot, sources.get(i), mapDirectory);
+		}
+		return new V8SourceMap(scriptName, resolvedSources, mappings);
+	}
+
+	@NotNull
+	private static String resolveSource(@NotNull String sourceRoot, @NotNull String source, @Nullable File mapDirectory)
+	{
+		String path = StringUtil.isEmpty(sourceRoot) || FileUtil.isAbsolute(source) ? source : StringUtil.trimEnd(sourceRoot, "/") + "/" + source;
+		if(path.startsWith(StandardFileSystems.FILE_PROTOCOL_PREFIX))
+		{
+			path = VfsUtilCore.urlToPath(path);
+		}
+		else if(!FileUtil.isAbsolute(path) && mapDirectory != null)
+		{
+			path = new File(mapDirectory, path).getPath();
+		}
+		return FileUtil.toCanonicalPath(FileUtil.toSystemIndependentName(path));
+	}
+}
@@ -25,6 +25,8 @@ import org.chromium.sdk.TextStreamPosition;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.ColoredTextContainer;
 import com.intellij.ui.SimpleTextAttributes;
 import com.intellij.xdebugger.XDebuggerUtil;
@@ -40,10 +42,12 @@ import com.intellij.xdebugger.frame.XValueChildrenList;
 public class V8StackFrame extends XStackFrame
 {
 	private final CallFrame myCallFrame;
+	private final V8SourceMaps mySourceMaps;
 
-	public V8StackFrame(CallFrame callFrame)
+	public V8StackFrame(CallFrame callFrame, V8SourceMaps sourceMaps)
 	{
 		myCallFrame = callFrame;
+		mySourceMaps = sourceMaps;
 	}
 
 	@Override
@@ -88,13 +92,14 @@ public class V8StackFrame extends XStackFrame
 		if(position != null)
 		{
 			component.append(position.getFile().getName(), SimpleTextAttributes.REGULAR_ATTRIBUTES);
+			component.append(":" + (position.getLine() + 1), SimpleTextAttributes.REGULAR_ATTRIBUTES);
 		}
 		else
 		{
 			component.append(myCallFrame.getScript().getName(), SimpleTextAttributes.REGULAR_ATTRIBUTES);
+			component.append(":" + (statementStartPosition.getLine() + 1), SimpleTextAttributes.REGULAR_ATTRIBUTES);
 		}
 
-		component.append(":" + (statementStartPosition.getLine() + 1), SimpleTextAttributes.REGULAR_ATTRIBUTES);
 		component.setIcon(AllIcons.Debugger.StackFrame);
 	}
 
@@ -107,6 +112,17 @@ public class V8StackFrame extends XStackFrame
 		{
 			return null;
 		}
+
+		V8SourceMap.Position originalPosition = mySourceMaps.getOriginalPosition(myCallFrame.getScript(), statementStartPosition.getLine(),
+				statementStartPosition.getColumn());
+		if(originalPosition != null)
+		{
+			VirtualFile originalFile = LocalFileSystem.getInstance().findFileByPath(originalPosition.myPath);
+			if(originalFile != null)
+			{
+				return XDebuggerUtil.getInstance().createPosition(originalFile, originalPosition.myLine);
+			}
+		}
 		return XDebuggerUtil.getInstance().createPosition(V8ScriptUtil.toVirtualFile(myCallFrame.getScript(), true),
 				statementStartPosition.getLine());
 	}
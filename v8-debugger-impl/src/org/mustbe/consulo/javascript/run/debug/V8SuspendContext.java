@@ -30,10 +30,10 @@ public class V8SuspendContext extends XSuspendContext
 	private final DebugContext myDebugContext;
 	private V8ExecutionStack myStack;
 
-	public V8SuspendContext(DebugContext debugContext)
+	public V8SuspendContext(DebugContext debugContext, V8SourceMaps sourceMaps)
 	{
 		myDebugContext = debugContext;
-		myStack = new V8ExecutionStack(debugContext);
+		myStack = new V8ExecutionStack(debugContext, sourceMaps);
 	}
 
 	@Nullable
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013-2015 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mustbe.consulo.javascript.run.debug;
+
+import java.util.List;
+
+import org.chromium.sdk.JsVariable;
+import org.jetbrains.annotations.NotNull;
+import com.intellij.xdebugger.frame.XCompositeNode;
+import com.intellij.xdebugger.frame.XValueChildrenList;
+
+/**
+ * Children of debugger values are shown by pages, rest is behind "more" node
+ */
+final class V8ValuePaging
+{
+	static final int PAGE_SIZE = Math.max(Integer.getInteger("js.debugger.children.page.size", 100), 2);
+
+	private V8ValuePaging()
+	{
+	}
+
+	/**
+	 * @return offset of next page
+	 */
+	static int addPage(@NotNull XCompositeNode node, @NotNull List<? extends JsVariable> variables, int offset)
+	{
+		final int end = Math.min(offset + PAGE_SIZE, variables.size());
+
+		XValueChildrenList valueChildrenList = new XValueChildrenList(end - offset);
+		for(int i = offset; i < end; i++)
+		{
+			valueChildrenList.add(new V8VariableValue(variables.get(i)));
+		}
+
+		final int remaining = variables.size() - end;
+		node.addChildren(valueChildrenList, remaining == 0);
+		if(remaining > 0)
+		{
+			node.tooManyChildren(remaining);
+		}
+		return end;
+	}
+}
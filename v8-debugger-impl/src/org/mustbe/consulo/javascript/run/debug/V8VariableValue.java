@@ -16,8 +16,10 @@
 
 package org.mustbe.consulo.javascript.run.debug;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.chromium.sdk.JsArray;
 import org.chromium.sdk.JsFunction;
 import org.chromium.sdk.JsObject;
 import org.chromium.sdk.JsValue;
@@ -42,6 +44,10 @@ public class V8VariableValue extends XNamedValue
 	@NotNull
 	private final JsVariable myJsVariable;
 
+	// properties snapshot and offset of next page, computeChildren is called again for "more" node
+	private List<? extends JsVariable> myProperties;
+	private int myPropertiesOffset;
+
 	public V8VariableValue(@NotNull JsVariable jsVariable)
 	{
 		super(jsVariable.getName());
@@ -52,20 +58,32 @@ public class V8VariableValue extends XNamedValue
 	public void computeChildren(@NotNull XCompositeNode node)
 	{
 		JsValue value = myJsVariable.getValue();
-		if(value instanceof JsObject)
+		if(!(value instanceof JsObject))
 		{
-			Collection<? extends JsVariable> properties = ((JsObject) value).getProperties();
+			node.addChildren(XValueChildrenList.EMPTY, true);
+			return;
+		}
+
+		JsArray array = ((JsObject) value).asArray();
+		if(array != null && array.length() > V8ValuePaging.PAGE_SIZE)
+		{
+			// elements are grouped by index ranges, other properties are not listed to avoid loading all of them
 			XValueChildrenList valueChildrenList = new XValueChildrenList();
-			for(JsVariable property : properties)
+			V8ArrayRangeValue.addRanges(valueChildrenList, array, 0, array.length() - 1);
+			JsVariable length = array.getProperty("length");
+			if(length != null)
 			{
-				valueChildrenList.add(new V8VariableValue(property));
+				valueChildrenList.add(new V8VariableValue(length));
 			}
 			node.addChildren(valueChildrenList, true);
+			return;
 		}
-		else
+
+		if(myProperties == null)
 		{
-			node.addChildren(XValueChildrenList.EMPTY, true);
+			myProperties = new ArrayList<JsVariable>(((JsObject) value).getProperties());
 		}
+		myPropertiesOffset = V8ValuePaging.addPage(node, myProperties, myPropertiesOffset);
 	}
 
 	@Override
@@ -146,6 +164,6 @@ public class V8VariableValue extends XNamedValue
 						break;
 				}
 			}
-		}, true);
+		}, value instanceof JsObject);
 	}
 }